@@ -0,0 +1,72 @@
+package bench.com.atlassian.tutorial.myPlugin;
+
+import com.atlassian.tutorial.myPlugin.stats.ComplexityStatistics;
+import com.atlassian.tutorial.myPlugin.stats.DurationStats;
+import com.atlassian.tutorial.myPlugin.stats.IssueSample;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Статистика по сложности: полный пересчет (фоновая задача), инкрементальное обновление по событию
+ * и чтение, которое делает панель задачи.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ComplexityStatisticsBenchmark {
+
+    @Param({"10000", "100000"})
+    public int samples;
+
+    private List<IssueSample> issueSamples;
+    private ComplexityStatistics statistics;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        issueSamples = IssueFixtures.samples(samples, 5);
+        statistics = new ComplexityStatistics();
+        statistics.rebuild(issueSamples);
+    }
+
+    @Benchmark
+    public ComplexityStatistics rebuild() {
+        ComplexityStatistics fresh = new ComplexityStatistics();
+        fresh.rebuild(issueSamples);
+        return fresh;
+    }
+
+    @Benchmark
+    public void recordEvent() {
+        // Повторная запись той же задачи заменяет ее вклад, размер статистики не растет
+        statistics.record(issueSamples.get(next++ % issueSamples.size()));
+    }
+
+    @Benchmark
+    public DurationStats lookup() {
+        return statistics.get("5", "ABC", "10001");
+    }
+
+    @Benchmark
+    public Map<String, DurationStats> snapshotByComplexity() {
+        return statistics.snapshotByComplexity();
+    }
+}
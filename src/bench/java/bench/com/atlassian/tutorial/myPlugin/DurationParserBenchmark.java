@@ -0,0 +1,43 @@
+package bench.com.atlassian.tutorial.myPlugin;
+
+import com.atlassian.tutorial.myPlugin.service.DurationParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор ответа модели: JSON, о котором просим в промпте, и текстовые ответы, которые модель иногда дает вместо него.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DurationParserBenchmark {
+
+    @Param({
+            "{\"min\": 2, \"max\": 3, \"unit\": \"дни\"}",
+            "Прогноз: 2-3 дня",
+            "1 неделя 2 дня (с учетом ревью и тестирования)",
+            "Не могу оценить задачу без описания"
+    })
+    public String answer;
+
+    private final DurationParser parser = new DurationParser(8, 5);
+
+    @Benchmark
+    public DurationParser.Result parse() {
+        return parser.parse(answer);
+    }
+}
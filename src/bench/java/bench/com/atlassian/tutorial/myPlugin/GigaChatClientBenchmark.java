@@ -0,0 +1,85 @@
+package bench.com.atlassian.tutorial.myPlugin;
+
+import com.atlassian.tutorial.myPlugin.prompt.PromptBuilder;
+import com.atlassian.tutorial.myPlugin.prompt.PromptFragmentCache;
+import com.atlassian.tutorial.myPlugin.service.CompletionStream;
+import com.atlassian.tutorial.myPlugin.service.GigaChatHttpClient;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Транспорт GigaChat против локального заглушечного сервера: накладные расходы клиента (TLS с keep-alive,
+ * запись запроса, чтение и разбор ответа) без сети и без самой модели. Лимитер и предохранитель
+ * GigaChatGuard сюда не входят: при квоте в 2 запроса в секунду мерить было бы нечего.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GigaChatClientBenchmark {
+
+    private StubGigaChatServer server;
+    private GigaChatHttpClient client;
+    private Map<String, String> headers;
+    private String body;
+    private String streamingBody;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new StubGigaChatServer();
+        client = new GigaChatHttpClient(new GigaChatHttpClient.Settings(0, 0, null, null));
+        headers = new LinkedHashMap<>();
+        headers.put("Content-Type", "application/json");
+        headers.put("Authorization", "Bearer stub-token");
+        String prompt = new PromptBuilder(new PromptFragmentCache())
+                .buildSingle(IssueFixtures.issues(1, 6).get(0), IssueFixtures.issues(5, 7), null);
+        JSONObject request = new JSONObject()
+                .put("model", "GigaChat")
+                .put("messages", new JSONArray().put(new JSONObject().put("role", "user").put("content", prompt)))
+                .put("temperature", 0.7);
+        body = request.toString();
+        streamingBody = request.put("stream", true).toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public String completion() throws Exception {
+        GigaChatHttpClient.HttpResult response = client.post(server.url(StubGigaChatServer.COMPLETIONS_PATH), headers, body);
+        return new JSONObject(response.getBody()).getJSONArray("choices").getJSONObject(0).getJSONObject("message").getString("content");
+    }
+
+    @Benchmark
+    public String streamingCompletion() throws Exception {
+        CompletionStream stream = new CompletionStream(null);
+        client.postStreaming(server.url(StubGigaChatServer.COMPLETIONS_PATH), headers, streamingBody, stream::onLine);
+        return stream.getText();
+    }
+
+    @Benchmark
+    public String oauthToken() throws Exception {
+        return client.post(server.url(StubGigaChatServer.OAUTH_PATH), headers, "scope=GIGACHAT_API_PERS").getBody();
+    }
+}
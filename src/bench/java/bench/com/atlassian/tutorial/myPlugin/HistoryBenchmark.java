@@ -0,0 +1,68 @@
+package bench.com.atlassian.tutorial.myPlugin;
+
+import com.atlassian.tutorial.myPlugin.stats.AccuracyMetrics;
+import com.atlassian.tutorial.myPlugin.stats.ErrorStats;
+import com.atlassian.tutorial.myPlugin.store.AccuracyEntry;
+import com.atlassian.tutorial.myPlugin.store.LegacyHistoryMigration;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * История прогнозов на 10k и 100k записей: разбор старой строки из PluginSettings при миграции
+ * и пересчет метрик точности, которые показывает страница аналитики.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HistoryBenchmark {
+
+    @Param({"10000", "100000"})
+    public int entries;
+
+    private String legacyHistory;
+    private List<AccuracyEntry> accuracyEntries;
+    private AccuracyMetrics metrics;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        legacyHistory = IssueFixtures.legacyHistory(entries, 3);
+        accuracyEntries = IssueFixtures.accuracyEntries(entries, 4);
+        metrics = new AccuracyMetrics();
+        metrics.rebuild(accuracyEntries);
+    }
+
+    @Benchmark
+    public List<String[]> parseLegacyHistory() {
+        return LegacyHistoryMigration.parse(legacyHistory);
+    }
+
+    @Benchmark
+    public AccuracyMetrics rebuildAccuracy() {
+        AccuracyMetrics fresh = new AccuracyMetrics();
+        fresh.rebuild(accuracyEntries);
+        return fresh;
+    }
+
+    @Benchmark
+    public Map<String, Map<String, ErrorStats>> accuracyBreakdown() {
+        return metrics.breakdown(AccuracyMetrics.Dimension.PROJECT);
+    }
+}
@@ -0,0 +1,149 @@
+package bench.com.atlassian.tutorial.myPlugin;
+
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.issuetype.IssueType;
+import com.atlassian.jira.issue.priority.Priority;
+import com.atlassian.jira.project.Project;
+import com.atlassian.tutorial.myPlugin.stats.IssueSample;
+import com.atlassian.tutorial.myPlugin.store.AccuracyEntry;
+
+import java.lang.reflect.Proxy;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Синтетические задачи для бенчмарков: детерминированные (фиксированный seed), с разными длинами описаний,
+ * сложностью 1-10, несколькими проектами и типами. Задачи - прокси интерфейса Issue: без Jira
+ * и без накладных расходов Mockito на каждом вызове.
+ */
+public final class IssueFixtures {
+
+    private static final String[] PROJECTS = {"ABC", "WEB", "OPS", "DATA"};
+    private static final String[] TYPES = {"Задача", "Ошибка", "История"};
+    private static final String[] PRIORITIES = {"High", "Medium", "Low"};
+    private static final String[] WORDS = ("добавить исправить ошибку отчет выгрузка интеграция страница форма поле фильтр "
+            + "импорт экспорт кэш индекс поиск права пользователь проект задача сервис запрос ответ таймаут база миграция").split(" ");
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long BASE_TIME = 1_600_000_000_000L;
+
+    private IssueFixtures() {
+    }
+
+    public static List<Issue> issues(int count, long seed) {
+        Random random = new Random(seed);
+        List<Issue> issues = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String project = PROJECTS[i % PROJECTS.length];
+            long created = BASE_TIME + i * HOUR;
+            long resolved = created + (1 + random.nextInt(200)) * HOUR;
+            issues.add(issue((long) i + 1, project + "-" + (i + 1), text(random, 4 + random.nextInt(8)),
+                    "<p>" + text(random, random.nextInt(400)) + "</p>", TYPES[i % TYPES.length],
+                    PRIORITIES[random.nextInt(PRIORITIES.length)], project, created, resolved));
+        }
+        return issues;
+    }
+
+    public static List<IssueSample> samples(int count, long seed) {
+        Random random = new Random(seed);
+        List<IssueSample> samples = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int complexity = 1 + random.nextInt(10);
+            long hours = Math.max(1, (long) (complexity * 6 * Math.exp(random.nextGaussian() * 0.7)));
+            samples.add(new IssueSample((long) i + 1, String.valueOf(complexity), PROJECTS[i % PROJECTS.length],
+                    String.valueOf(10000 + i % TYPES.length), hours * HOUR));
+        }
+        return samples;
+    }
+
+    public static List<AccuracyEntry> accuracyEntries(int count, long seed) {
+        Random random = new Random(seed);
+        List<AccuracyEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String project = PROJECTS[i % PROJECTS.length];
+            int complexity = 1 + random.nextInt(10);
+            double actual = complexity * 6 * Math.exp(random.nextGaussian() * 0.7);
+            entries.add(new AccuracyEntry((long) i + 1, project + "-" + (i + 1), project, String.valueOf(complexity),
+                    String.valueOf(10000 + i % TYPES.length), BASE_TIME + i * HOUR, BASE_TIME + (i - 1) * HOUR, actual,
+                    actual * (0.5 + random.nextDouble()), i % 3 == 0 ? "local-regression" : "GigaChat", complexity * 6.0));
+        }
+        return entries;
+    }
+
+    /**
+     * Старая строка истории "KEY:прогноз;KEY:прогноз" из PluginSettings.
+     */
+    public static String legacyHistory(int count, long seed) {
+        Random random = new Random(seed);
+        StringBuilder history = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            int min = 1 + random.nextInt(5);
+            history.append(PROJECTS[i % PROJECTS.length]).append('-').append(i + 1).append(':')
+                    .append(min).append('-').append(min + random.nextInt(3)).append(" дня;");
+        }
+        return history.toString();
+    }
+
+    private static String text(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    private static Issue issue(Long id, String key, String summary, String description, String type, String priority,
+                               String projectKey, long created, long resolved) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("getId", id);
+        values.put("getKey", key);
+        values.put("getSummary", summary);
+        values.put("getDescription", description);
+        values.put("getIssueType", named(IssueType.class, type, String.valueOf(type.hashCode())));
+        values.put("getIssueTypeId", String.valueOf(type.hashCode()));
+        values.put("getPriority", named(Priority.class, priority, priority));
+        values.put("getProjectObject", project(projectKey));
+        values.put("getCreated", new Timestamp(created));
+        values.put("getUpdated", new Timestamp(resolved));
+        values.put("getResolutionDate", new Timestamp(resolved));
+        return proxy(Issue.class, values);
+    }
+
+    // Тип и приоритет: имя и строковый id
+    private static <T> T named(Class<T> type, String name, String id) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("getName", name);
+        values.put("getId", id);
+        return proxy(type, values);
+    }
+
+    private static Project project(String key) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("getKey", key);
+        values.put("getName", key);
+        return proxy(Project.class, values);
+    }
+
+    private static <T> T proxy(Class<T> type, Map<String, Object> values) {
+        Object instance = Proxy.newProxyInstance(IssueFixtures.class.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(self);
+                case "equals":
+                    return self == args[0];
+                case "toString":
+                    return String.valueOf(values.get("getKey"));
+                default:
+                    return values.get(method.getName());
+            }
+        });
+        return type.cast(instance);
+    }
+}
@@ -0,0 +1,67 @@
+package bench.com.atlassian.tutorial.myPlugin;
+
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.tutorial.myPlugin.prompt.PromptBuilder;
+import com.atlassian.tutorial.myPlugin.prompt.PromptFragmentCache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сборка промпта: одиночного и пакетного (10 задач), с прогретым кэшем кусков и с пустым,
+ * как сразу после изменения задач.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PromptBuilderBenchmark {
+
+    private List<Issue> targets;
+    private List<Issue> examples;
+    private PromptFragmentCache warmCache;
+    private PromptBuilder warmBuilder;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        targets = IssueFixtures.issues(10, 1);
+        examples = IssueFixtures.issues(5, 2);
+        warmCache = new PromptFragmentCache();
+        warmBuilder = new PromptBuilder(warmCache);
+        warmBuilder.buildBatch(targets, examples, null);
+    }
+
+    @Benchmark
+    public String singleWarm() {
+        return warmBuilder.buildSingle(targets.get(0), examples, null);
+    }
+
+    @Benchmark
+    public String singleCold() {
+        return new PromptBuilder(new PromptFragmentCache()).buildSingle(targets.get(0), examples, null);
+    }
+
+    @Benchmark
+    public String batchWarm() {
+        return warmBuilder.buildBatch(targets, examples, null);
+    }
+
+    @Benchmark
+    public String batchCold() {
+        return new PromptBuilder(new PromptFragmentCache()).buildBatch(targets, examples, null);
+    }
+}
@@ -0,0 +1,128 @@
+package bench.com.atlassian.tutorial.myPlugin;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Локальный HTTPS-сервер вместо GigaChat: OAuth отдает токен, chat/completions - готовый ответ целиком
+ * или потоком SSE (если в теле запроса "stream": true). Самоподписанный сертификат создается keytool
+ * из текущей JDK; клиент без truststore проверку сертификата не делает.
+ */
+public final class StubGigaChatServer implements AutoCloseable {
+
+    public static final String OAUTH_PATH = "/api/v2/oauth";
+    public static final String COMPLETIONS_PATH = "/api/v1/chat/completions";
+
+    private static final String PASSWORD = "benchmark";
+    private static final String ANSWER = "{\\\"min\\\": 2, \\\"max\\\": 3, \\\"unit\\\": \\\"дни\\\"}";
+
+    private final HttpsServer server;
+    private final ExecutorService executor;
+    private final File keystore;
+
+    public StubGigaChatServer() throws Exception {
+        keystore = File.createTempFile("jirapredict-bench", ".jks");
+        if (!keystore.delete()) {
+            throw new IOException("Cannot prepare keystore file " + keystore);
+        }
+        generateKeystore(keystore);
+
+        server = HttpsServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setHttpsConfigurator(new HttpsConfigurator(sslContext(keystore)));
+        executor = Executors.newFixedThreadPool(4);
+        server.setExecutor(executor);
+        server.createContext(OAUTH_PATH, exchange -> respond(exchange, "application/json",
+                "{\"access_token\":\"stub-token\",\"expires_at\":" + (System.currentTimeMillis() + 1_800_000L) + "}"));
+        server.createContext(COMPLETIONS_PATH, this::complete);
+        server.start();
+    }
+
+    public String url(String path) {
+        return "https://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private void complete(HttpExchange exchange) throws IOException {
+        String request = read(exchange.getRequestBody());
+        if (request.contains("\"stream\":true")) {
+            StringBuilder events = new StringBuilder();
+            for (String chunk : new String[]{"{\\\"min\\\": 2, ", "\\\"max\\\": 3, ", "\\\"unit\\\": \\\"дни\\\"}"}) {
+                events.append("data: {\"choices\":[{\"delta\":{\"content\":\"").append(chunk).append("\"},\"index\":0}]}\n\n");
+            }
+            events.append("data: {\"choices\":[{\"delta\":{},\"finish_reason\":\"stop\"}],\"usage\":{\"prompt_tokens\":900,\"completion_tokens\":20}}\n\n");
+            events.append("data: [DONE]\n\n");
+            respond(exchange, "text/event-stream", events.toString());
+        } else {
+            respond(exchange, "application/json", "{\"choices\":[{\"message\":{\"role\":\"assistant\",\"content\":\"" + ANSWER
+                    + "\"}}],\"usage\":{\"prompt_tokens\":900,\"completion_tokens\":20}}");
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType + ";charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void generateKeystore(File file) throws Exception {
+        String keytool = System.getProperty("java.home") + File.separator + "bin" + File.separator + "keytool";
+        Process process = new ProcessBuilder(keytool, "-genkeypair", "-alias", "stub", "-keyalg", "RSA", "-keysize", "2048",
+                "-validity", "1", "-dname", "CN=127.0.0.1", "-storetype", "JKS", "-keystore", file.getAbsolutePath(),
+                "-storepass", PASSWORD, "-keypass", PASSWORD)
+                .redirectErrorStream(true)
+                .start();
+        if (process.waitFor() != 0) {
+            throw new IOException("keytool failed: " + read(process.getInputStream()));
+        }
+    }
+
+    private static SSLContext sslContext(File file) throws Exception {
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        try (InputStream in = new FileInputStream(file)) {
+            keyStore.load(in, PASSWORD.toCharArray());
+        }
+        KeyManagerFactory kmf = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        kmf.init(keyStore, PASSWORD.toCharArray());
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(kmf.getKeyManagers(), null, null);
+        return context;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        if (!keystore.delete()) {
+            keystore.deleteOnExit();
+        }
+    }
+}
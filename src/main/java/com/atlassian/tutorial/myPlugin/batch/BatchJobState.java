@@ -0,0 +1,105 @@
+package com.atlassian.tutorial.myPlugin.batch;
+
+/**
+ * Состояние пакетного прогноза. Хранится в Active Objects ({@link com.atlassian.tutorial.myPlugin.store.BatchRunStore}),
+ * чтобы после перезапуска Jira продолжить с места остановки: список задач фиксируется при старте, cursor - сколько из них уже обработано.
+ */
+public class BatchJobState {
+
+    public enum Status { RUNNING, FINISHED, CANCELLED, FAILED }
+
+    private final int id;
+    private final String jql;
+    private final String userKey;
+    private final long startedAt;
+    private final int total;
+    private Status status;
+    private int cursor;
+    private int succeeded;
+    private int skipped;
+    private int failed;
+    private long finishedAt;
+    private String message;
+
+    public BatchJobState(int id, String jql, String userKey, long startedAt, int total, Status status,
+                         int cursor, int succeeded, int skipped, int failed, long finishedAt, String message) {
+        this.id = id;
+        this.jql = jql;
+        this.userKey = userKey;
+        this.startedAt = startedAt;
+        this.total = total;
+        this.status = status;
+        this.cursor = cursor;
+        this.succeeded = succeeded;
+        this.skipped = skipped;
+        this.failed = failed;
+        this.finishedAt = finishedAt;
+        this.message = message;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getJql() {
+        return jql;
+    }
+
+    public String getUserKey() {
+        return userKey;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    public synchronized int getCursor() {
+        return cursor;
+    }
+
+    public synchronized int getSucceeded() {
+        return succeeded;
+    }
+
+    // Задачи, которые удалили или решили, пока шел пакет
+    public synchronized int getSkipped() {
+        return skipped;
+    }
+
+    public synchronized int getFailed() {
+        return failed;
+    }
+
+    public synchronized long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public synchronized String getMessage() {
+        return message;
+    }
+
+    public synchronized int getPercentDone() {
+        return total == 0 ? 100 : cursor * 100 / total;
+    }
+
+    synchronized void advance(int processed, int succeededInChunk, int skippedInChunk, int failedInChunk) {
+        cursor += processed;
+        succeeded += succeededInChunk;
+        skipped += skippedInChunk;
+        failed += failedInChunk;
+    }
+
+    synchronized void finish(Status newStatus, String newMessage) {
+        status = newStatus;
+        message = newMessage;
+        finishedAt = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,262 @@
+package com.atlassian.tutorial.myPlugin.batch;
+
+import com.atlassian.jira.bc.issue.search.SearchService;
+import com.atlassian.jira.component.ComponentAccessor;
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.search.SearchResults;
+import com.atlassian.jira.security.JiraAuthenticationContext;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.jira.web.bean.PagerFilter;
+import com.atlassian.tutorial.myPlugin.cluster.ClusterCoordinator;
+import com.atlassian.tutorial.myPlugin.service.GeminiPredictionService;
+import com.atlassian.tutorial.myPlugin.service.RateLimiter;
+import com.atlassian.tutorial.myPlugin.store.BatchRunStore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Пакетный прогноз по JQL: заранее прогревает прогнозы для всего бэклога, чтобы панель задачи брала их из кэша.
+ * Задачи одного проекта объединяются в пакетные промпты, до {@link #CONCURRENCY} промптов идут параллельно
+ * и не чаще {@link #REQUESTS_PER_SECOND} запросов в секунду. После каждой порции прогресс сохраняется в AO, незавершенный запуск продолжается после рестарта.
+ * В кластере запуск выполняет один узел - тот, что держит блокировку; если он упал, запуск подхватывает другой.
+ */
+public class BatchPredictionJob {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchPredictionJob.class);
+
+    public static final String CLUSTER_CHANNEL = "jp.batch";
+    private static final String LOCK_NAME = "batch";
+
+    private static final int CONCURRENCY = 3;
+    private static final int CHUNK_SIZE = CONCURRENCY * GeminiPredictionService.MAX_ISSUES_PER_PROMPT;
+    private static final double REQUESTS_PER_SECOND = 0.5;
+    private static final int MAX_ISSUES = 10_000;
+    private static final int SEARCH_PAGE_SIZE = 500;
+    private static final long RESUME_DELAY_SECONDS = 60;
+    // Так часто проверяем, не остался ли запуск без узла
+    private static final long RESUME_CHECK_SECONDS = TimeUnit.MINUTES.toSeconds(5);
+    private static final long UNAVAILABLE_PAUSE_MILLIS = TimeUnit.SECONDS.toMillis(5);
+
+    private final GeminiPredictionService geminiService;
+    private final BatchRunStore runStore;
+    private final ClusterCoordinator cluster;
+    private final RateLimiter rateLimiter = new RateLimiter(REQUESTS_PER_SECOND, 1);
+    private final ScheduledExecutorService coordinator;
+    private final ExecutorService workers;
+    private volatile BatchJobState current;
+    private volatile boolean cancelRequested;
+    private volatile boolean runningHere;
+
+    public BatchPredictionJob(GeminiPredictionService geminiService, BatchRunStore runStore,
+                              ClusterCoordinator cluster) {
+        this.geminiService = geminiService;
+        this.runStore = runStore;
+        this.cluster = cluster;
+        this.coordinator = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("jirapredict-batch"));
+        this.workers = Executors.newFixedThreadPool(CONCURRENCY, new NamedThreadFactory("jirapredict-batch-worker"));
+    }
+
+    /**
+     * Подхватывает запуск, прерванный остановкой Jira или плагина (или падением другого узла кластера).
+     */
+    public void start() {
+        // Остановку могли нажать на другом узле
+        cluster.subscribe(CLUSTER_CHANNEL, message -> {
+            if (runningHere) {
+                cancelRequested = true;
+            }
+        });
+        coordinator.scheduleWithFixedDelay(this::resume, RESUME_DELAY_SECONDS, RESUME_CHECK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void resume() {
+        runExclusive(() -> {
+            BatchJobState saved = loadState();
+            current = saved;
+            if (saved != null && saved.getStatus() == BatchJobState.Status.RUNNING) {
+                log.info("Resuming batch prediction at {}/{}", saved.getCursor(), saved.getTotal());
+                run(saved);
+            }
+        });
+    }
+
+    // Запуск выполняет только узел, взявший блокировку; остальные его пропускают
+    private void runExclusive(Runnable action) {
+        Lock lock = cluster.getLock(LOCK_NAME);
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            action.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void shutdown() {
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Запускает прогноз по всем нерешенным задачам из JQL от имени пользователя (его права используются при поиске).
+     */
+    public synchronized BatchJobState submit(String jql, ApplicationUser user) throws Exception {
+        BatchJobState running = getCurrent();
+        if (running != null && running.getStatus() == BatchJobState.Status.RUNNING) {
+            throw new IllegalStateException("Пакетный прогноз уже выполняется");
+        }
+        List<Long> issueIds = findUnresolvedIssueIds(jql, user);
+        BatchJobState state = runStore.create(jql, user.getKey(), System.currentTimeMillis(), issueIds);
+        current = state;
+        // Если блокировку держит другой узел, сохраненный запуск подхватит он или следующая проверка
+        coordinator.execute(() -> runExclusive(() -> run(state)));
+        return state;
+    }
+
+    public void cancel() {
+        cancelRequested = true;
+        cluster.publish(CLUSTER_CHANNEL, "cancel");
+    }
+
+    /**
+     * Текущий запуск; если он идет на другом узле - прогресс из последнего сохранения.
+     */
+    public BatchJobState getCurrent() {
+        BatchJobState state = current;
+        return state != null && runningHere ? state : loadState();
+    }
+
+    private void run(BatchJobState state) {
+        cancelRequested = false;
+        runningHere = true;
+        try {
+            runChunks(state);
+        } finally {
+            runningHere = false;
+        }
+    }
+
+    private void runChunks(BatchJobState state) {
+        ApplicationUser user = state.getUserKey() != null ? ComponentAccessor.getUserManager().getUserByKey(state.getUserKey()) : null;
+        try {
+            while (state.getCursor() < state.getTotal()) {
+                if (cancelRequested || Thread.currentThread().isInterrupted()) {
+                    state.finish(BatchJobState.Status.CANCELLED, "Остановлено администратором");
+                    saveState(state);
+                    return;
+                }
+                if (!geminiService.isLlmAvailable()) {
+                    // Пока GigaChat недоступен, задачи не сжигаем запасными ответами, а ждем
+                    TimeUnit.MILLISECONDS.sleep(UNAVAILABLE_PAUSE_MILLIS);
+                    continue;
+                }
+                int from = state.getCursor();
+                int to = Math.min(from + CHUNK_SIZE, state.getTotal());
+                processChunk(runStore.findIssueIds(state.getId(), from, to), user, state);
+                saveState(state);
+            }
+            state.finish(BatchJobState.Status.FINISHED, null);
+            log.info("Batch prediction finished: {} ok, {} skipped, {} failed", state.getSucceeded(), state.getSkipped(), state.getFailed());
+        } catch (InterruptedException e) {
+            // Плагин выключается: статус RUNNING остается, после старта продолжим
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            log.error("Batch prediction failed", e);
+            state.finish(BatchJobState.Status.FAILED, e.getMessage());
+        }
+        saveState(state);
+    }
+
+    // Порция делится на пакетные промпты по проектам, каждый промпт - один запрос к GigaChat
+    private void processChunk(List<Long> chunk, ApplicationUser user, BatchJobState state) throws InterruptedException {
+        Map<String, List<Issue>> issuesByProject = new LinkedHashMap<>();
+        int skipped = 0;
+        for (Long issueId : chunk) {
+            Issue issue = ComponentAccessor.getIssueManager().getIssueObject(issueId);
+            if (issue == null || issue.getResolutionDate() != null) {
+                // Задачу удалили или успели решить, пока шел пакет - считать нечего
+                skipped++;
+                continue;
+            }
+            issuesByProject.computeIfAbsent(issue.getProjectObject().getKey(), k -> new ArrayList<>()).add(issue);
+        }
+
+        AtomicInteger succeeded = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (List<Issue> projectIssues : issuesByProject.values()) {
+            for (int from = 0; from < projectIssues.size(); from += GeminiPredictionService.MAX_ISSUES_PER_PROMPT) {
+                List<Issue> batch = projectIssues.subList(from, Math.min(from + GeminiPredictionService.MAX_ISSUES_PER_PROMPT, projectIssues.size()));
+                rateLimiter.acquire();
+                futures.add(workers.submit(() -> {
+                    for (Map<String, String> result : predict(batch, user).values()) {
+                        String prediction = result.get("prediction");
+                        if (prediction != null && !prediction.startsWith("Ошибка") && !"true".equals(result.get("fallback"))) {
+                            succeeded.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                log.warn("Batch prediction chunk failed", e.getCause());
+            }
+        }
+        // Все, что не посчиталось и не пропущено (включая упавшие промпты), - неуспешные
+        state.advance(chunk.size(), succeeded.get(), skipped, chunk.size() - skipped - succeeded.get());
+    }
+
+    private Map<Long, Map<String, String>> predict(List<Issue> issues, ApplicationUser user) {
+        JiraAuthenticationContext authContext = ComponentAccessor.getJiraAuthenticationContext();
+        ApplicationUser previousUser = authContext.getLoggedInUser();
+        authContext.setLoggedInUser(user);
+        try {
+            return geminiService.getPredictionsFromGemini(issues);
+        } finally {
+            authContext.setLoggedInUser(previousUser);
+        }
+    }
+
+    private List<Long> findUnresolvedIssueIds(String jql, ApplicationUser user) throws Exception {
+        SearchService searchService = ComponentAccessor.getOSGiComponentInstanceOfType(SearchService.class);
+        SearchService.ParseResult parseResult = searchService.parseQuery(user, "(" + jql + ") AND resolution IS EMPTY");
+        if (!parseResult.isValid()) {
+            throw new IllegalArgumentException("Некорректный JQL: " + parseResult.getErrors().getErrorMessages());
+        }
+        List<Long> issueIds = new ArrayList<>();
+        for (int start = 0; issueIds.size() < MAX_ISSUES; start += SEARCH_PAGE_SIZE) {
+            SearchResults results = searchService.search(user, parseResult.getQuery(), new PagerFilter<>(start, SEARCH_PAGE_SIZE));
+            List<Issue> page = results.getIssues();
+            for (Issue issue : page) {
+                if (issueIds.size() < MAX_ISSUES) {
+                    issueIds.add(issue.getId());
+                }
+            }
+            if (page.size() < SEARCH_PAGE_SIZE) {
+                break;
+            }
+        }
+        return issueIds;
+    }
+
+    private BatchJobState loadState() {
+        return runStore.findLatest();
+    }
+
+    private void saveState(BatchJobState state) {
+        runStore.save(state);
+    }
+}
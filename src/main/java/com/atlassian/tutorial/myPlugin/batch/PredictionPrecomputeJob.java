@@ -0,0 +1,175 @@
+package com.atlassian.tutorial.myPlugin.batch;
+
+import com.atlassian.jira.component.ComponentAccessor;
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.tutorial.myPlugin.cluster.ClusterCoordinator;
+import com.atlassian.tutorial.myPlugin.metrics.PredictionMetrics;
+import com.atlassian.tutorial.myPlugin.service.GeminiPredictionService;
+import com.atlassian.tutorial.myPlugin.service.RateLimiter;
+import com.atlassian.tutorial.myPlugin.store.PendingPredictionStore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Прогноз заранее: созданные и измененные задачи попадают в очередь {@link PendingPredictionStore},
+ * и фоновые потоки считают их прогноз, пока задачу никто не открыл. Панель задачи потом берет готовый ответ из кэша.
+ * Серия правок одной задачи схлопывается в один пересчет, к модели уходит не больше {@link #REQUESTS_PER_SECOND} запросов в секунду.
+ * Очередь общая для кластера, разбирает ее один узел за раз.
+ */
+public class PredictionPrecomputeJob {
+
+    private static final Logger log = LoggerFactory.getLogger(PredictionPrecomputeJob.class);
+
+    public static final String PRECOMPUTED = "precompute.done";
+    public static final String PRECOMPUTE_FAILED = "precompute.failed";
+
+    // Правки обычно идут сериями: ждем, пока задача "успокоится"
+    private static final long DEBOUNCE_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final long MAX_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long POLL_SECONDS = 10;
+    private static final long START_DELAY_SECONDS = 60;
+    private static final int WORKERS = 2;
+    private static final int CHUNK_SIZE = 20;
+    // Ниже лимита пакетного прогноза: очередь не должна съедать квоту, нужную панели задачи
+    private static final double REQUESTS_PER_SECOND = 0.2;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    private static final String LOCK_NAME = "precompute";
+
+    private final GeminiPredictionService geminiService;
+    private final PendingPredictionStore store;
+    private final PredictionMetrics metrics;
+    private final ClusterCoordinator cluster;
+    private final RateLimiter rateLimiter = new RateLimiter(REQUESTS_PER_SECOND, 1);
+    private final ScheduledExecutorService coordinator;
+    private final ExecutorService workers;
+
+    public PredictionPrecomputeJob(GeminiPredictionService geminiService, PendingPredictionStore store, PredictionMetrics metrics,
+                                   ClusterCoordinator cluster) {
+        this.geminiService = geminiService;
+        this.store = store;
+        this.metrics = metrics;
+        this.cluster = cluster;
+        this.coordinator = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("jirapredict-precompute"));
+        this.workers = Executors.newFixedThreadPool(WORKERS, new NamedThreadFactory("jirapredict-precompute-worker"));
+    }
+
+    public void start() {
+        metrics.gauge("precompute.pending", store::count);
+        // Очередь в базе: после рестарта досчитываем то, что не успели
+        coordinator.scheduleWithFixedDelay(this::drainSafely, START_DELAY_SECONDS, POLL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public void shutdown() {
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Ставит задачу в очередь или откладывает уже стоящую; вызывается из слушателя событий задач.
+     */
+    public void enqueue(Issue issue) {
+        store.schedule(issue.getId(), System.currentTimeMillis(), DEBOUNCE_MILLIS, MAX_DELAY_MILLIS);
+    }
+
+    /**
+     * Ставит задачу в очередь без задержки: ее прогноз уже запросили, а в кэше его нет.
+     */
+    public void enqueueNow(Issue issue) {
+        store.schedule(issue.getId(), System.currentTimeMillis(), 0, 0);
+    }
+
+    /**
+     * Задачи из переданных, которые сейчас стоят в очереди.
+     */
+    public Set<Long> findQueued(Collection<Long> issueIds) {
+        return store.findQueued(issueIds);
+    }
+
+    public void remove(Long issueId) {
+        store.remove(issueId);
+    }
+
+    private void drainSafely() {
+        Lock lock = cluster.getLock(LOCK_NAME);
+        if (!lock.tryLock()) {
+            // Очередь сейчас разбирает другой узел
+            return;
+        }
+        try {
+            drain();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Исключение отменило бы расписание; следующая попытка - на следующем опросе
+            log.error("Prediction precompute failed", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drain() throws InterruptedException {
+        while (!Thread.currentThread().isInterrupted()) {
+            if (!geminiService.isLlmAvailable()) {
+                // Запасные ответы в кэш не попадают, считать сейчас бессмысленно
+                return;
+            }
+            List<PendingPredictionStore.Pending> due = store.findDue(System.currentTimeMillis(), CHUNK_SIZE);
+            if (due.isEmpty()) {
+                return;
+            }
+            List<Future<?>> futures = new ArrayList<>(due.size());
+            for (PendingPredictionStore.Pending pending : due) {
+                Issue issue = ComponentAccessor.getIssueManager().getIssueObject(pending.getIssueId());
+                if (issue == null || issue.getResolutionDate() != null || !geminiService.isPrecomputable(issue)) {
+                    // Задачу удалили или решили, либо ее провайдер и так отвечает мгновенно
+                    store.complete(pending);
+                    continue;
+                }
+                rateLimiter.acquire();
+                futures.add(workers.submit(() -> precompute(issue, pending)));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    log.warn("Prediction precompute task failed", e.getCause());
+                }
+            }
+        }
+    }
+
+    private void precompute(Issue issue, PendingPredictionStore.Pending pending) {
+        String prediction;
+        Map<String, String> result;
+        try {
+            result = geminiService.getPredictionFromGemini(issue);
+            prediction = result.get("prediction");
+        } catch (RuntimeException e) {
+            // Запись иначе осталась бы "готовой" и опрос крутился бы на ней без остановки
+            log.warn("Prediction precompute failed for {}", issue.getKey(), e);
+            result = null;
+            prediction = null;
+        }
+        if (prediction != null && !prediction.startsWith("Ошибка") && !"true".equals(result.get("fallback"))) {
+            metrics.increment(PRECOMPUTED);
+            store.complete(pending);
+        } else if (pending.getAttempts() + 1 < MAX_ATTEMPTS) {
+            store.retry(pending, System.currentTimeMillis() + RETRY_DELAY_MILLIS);
+        } else {
+            // Посчитается, когда задачу откроют
+            metrics.increment(PRECOMPUTE_FAILED);
+            log.debug("Giving up precomputing prediction for {}: {}", issue.getKey(), prediction);
+            store.complete(pending);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.atlassian.tutorial.myPlugin.cluster;
+
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Координация узлов Jira Data Center: общие блокировки (одна задача - один запрос к модели, фоновые задания -
+ * на одном узле) и рассылка сообщений остальным узлам (сброс кэшей в памяти, изменения задач).
+ * На Jira Server узел один, блокировки локальные, а сообщения никуда не уходят.
+ */
+public interface ClusterCoordinator {
+
+    String getNodeId();
+
+    /**
+     * Блокировка, общая для всех узлов. Реентерабельна и принадлежит потоку, как ReentrantLock.
+     */
+    Lock getLock(String name);
+
+    /**
+     * Отправляет сообщение остальным узлам; на своем узле слушатели не вызываются.
+     * Канал - до 20 символов, сообщение - до 200 (ограничение Jira).
+     */
+    void publish(String channel, String message);
+
+    void subscribe(String channel, MessageListener listener);
+
+    interface MessageListener {
+        void onMessage(String message);
+    }
+}
@@ -0,0 +1,77 @@
+package com.atlassian.tutorial.myPlugin.cluster;
+
+import com.atlassian.beehive.ClusterLockService;
+import com.atlassian.jira.cluster.ClusterInfo;
+import com.atlassian.jira.cluster.ClusterMessageConsumer;
+import com.atlassian.jira.cluster.ClusterMessagingService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * {@link ClusterCoordinator} на сервисах Jira: блокировки beehive (в кластере - через базу)
+ * и ClusterMessagingService. Имена блокировок и каналов получают префикс плагина.
+ */
+public class JiraClusterCoordinator implements ClusterCoordinator {
+
+    private static final Logger log = LoggerFactory.getLogger(JiraClusterCoordinator.class);
+
+    // Настройки прогноза сохранены на одном из узлов; в сообщении - кто сохранил
+    public static final String CONFIG_CHANNEL = "jp.config";
+
+    private static final String LOCK_PREFIX = "com.atlassian.tutorial.myPlugin.";
+
+    private final ClusterLockService lockService;
+    private final ClusterMessagingService messagingService;
+    private final ClusterInfo clusterInfo;
+    private final List<ClusterMessageConsumer> consumers = new CopyOnWriteArrayList<>();
+
+    public JiraClusterCoordinator(ClusterLockService lockService, ClusterMessagingService messagingService,
+                                  ClusterInfo clusterInfo) {
+        this.lockService = lockService;
+        this.messagingService = messagingService;
+        this.clusterInfo = clusterInfo;
+    }
+
+    @Override
+    public String getNodeId() {
+        String nodeId = clusterInfo.getNodeId();
+        return nodeId != null ? nodeId : "standalone";
+    }
+
+    @Override
+    public Lock getLock(String name) {
+        return lockService.getLockForName(LOCK_PREFIX + name);
+    }
+
+    @Override
+    public void publish(String channel, String message) {
+        if (clusterInfo.isClustered()) {
+            messagingService.sendRemote(channel, message);
+        }
+    }
+
+    @Override
+    public void subscribe(String channel, MessageListener listener) {
+        ClusterMessageConsumer consumer = (receivedChannel, message, senderId) -> {
+            try {
+                listener.onMessage(message);
+            } catch (RuntimeException e) {
+                log.error("Failed to handle cluster message {} on channel {} from {}", message, receivedChannel, senderId, e);
+            }
+        };
+        consumers.add(consumer);
+        messagingService.registerListener(channel, consumer);
+    }
+
+    public void shutdown() {
+        for (ClusterMessageConsumer consumer : consumers) {
+            messagingService.unregisterListener(consumer);
+        }
+        consumers.clear();
+    }
+}
@@ -1,7 +1,35 @@
 package com.atlassian.tutorial.myPlugin.config;
 
+import com.atlassian.activeobjects.external.ActiveObjects;
+import com.atlassian.beehive.ClusterLockService;
+import com.atlassian.event.api.EventPublisher;
+import com.atlassian.jira.cluster.ClusterInfo;
+import com.atlassian.jira.cluster.ClusterMessagingService;
+import com.atlassian.sal.api.pluginsettings.PluginSettingsFactory;
 import com.atlassian.tutorial.myPlugin.api.MyPluginComponent;
+import com.atlassian.tutorial.myPlugin.batch.BatchPredictionJob;
+import com.atlassian.tutorial.myPlugin.batch.PredictionPrecomputeJob;
+import com.atlassian.tutorial.myPlugin.cluster.ClusterCoordinator;
+import com.atlassian.tutorial.myPlugin.cluster.JiraClusterCoordinator;
 import com.atlassian.tutorial.myPlugin.impl.MyPluginComponentImpl;
+import com.atlassian.tutorial.myPlugin.llm.GigaChatProvider;
+import com.atlassian.tutorial.myPlugin.llm.LlmProviderRegistry;
+import com.atlassian.tutorial.myPlugin.llm.LocalRegressionProvider;
+import com.atlassian.tutorial.myPlugin.metrics.PredictionMetrics;
+import com.atlassian.tutorial.myPlugin.prompt.PromptFragmentCache;
+import com.atlassian.tutorial.myPlugin.service.GeminiPredictionService;
+import com.atlassian.tutorial.myPlugin.service.PredictionExecutor;
+import com.atlassian.tutorial.myPlugin.listener.IssueEventListener;
+import com.atlassian.tutorial.myPlugin.retrieval.ExampleIndex;
+import com.atlassian.tutorial.myPlugin.stats.AccuracyMetrics;
+import com.atlassian.tutorial.myPlugin.stats.ComplexityStatistics;
+import com.atlassian.tutorial.myPlugin.stats.StatisticsRebuildJob;
+import com.atlassian.tutorial.myPlugin.store.BatchRunStore;
+import com.atlassian.tutorial.myPlugin.store.LegacyHistoryMigration;
+import com.atlassian.tutorial.myPlugin.store.PendingPredictionStore;
+import com.atlassian.tutorial.myPlugin.store.PredictedHoursIndex;
+import com.atlassian.tutorial.myPlugin.store.PredictionAccuracyStore;
+import com.atlassian.tutorial.myPlugin.store.PredictionHistoryStore;
 import com.atlassian.plugins.osgi.javaconfig.configs.beans.ModuleFactoryBean;
 import com.atlassian.plugins.osgi.javaconfig.configs.beans.PluginAccessorBean;
 import com.atlassian.sal.api.ApplicationProperties;
@@ -28,6 +56,44 @@ public class MyPluginJavaConfig {
         return importOsgiService(ApplicationProperties.class);
     }
 
+    @Bean
+    public PluginSettingsFactory pluginSettingsFactory() {
+        return importOsgiService(PluginSettingsFactory.class);
+    }
+
+    @Bean
+    public ActiveObjects activeObjects() {
+        return importOsgiService(ActiveObjects.class);
+    }
+
+    @Bean
+    public EventPublisher eventPublisher() {
+        return importOsgiService(EventPublisher.class);
+    }
+
+    @Bean
+    public ClusterLockService clusterLockService() {
+        return importOsgiService(ClusterLockService.class);
+    }
+
+    @Bean
+    public ClusterMessagingService clusterMessagingService() {
+        return importOsgiService(ClusterMessagingService.class);
+    }
+
+    @Bean
+    public ClusterInfo clusterInfo() {
+        return importOsgiService(ClusterInfo.class);
+    }
+
+    // Блокировки и сообщения между узлами Data Center; на Jira Server работает как один узел
+    @Bean(destroyMethod = "shutdown")
+    public JiraClusterCoordinator clusterCoordinator(ClusterLockService clusterLockService,
+                                                     ClusterMessagingService clusterMessagingService,
+                                                     ClusterInfo clusterInfo) {
+        return new JiraClusterCoordinator(clusterLockService, clusterMessagingService, clusterInfo);
+    }
+
     @Bean
     public MyPluginComponent myPluginComponent(ApplicationProperties applicationProperties) {
         return new MyPluginComponentImpl(applicationProperties);
@@ -39,4 +105,128 @@ public class MyPluginJavaConfig {
             final MyPluginComponent mypluginComponent) {
         return exportOsgiService(mypluginComponent, null, MyPluginComponent.class);
     }
-}
\ No newline at end of file
+
+    @Bean
+    public PredictionHistoryStore predictionHistoryStore(ActiveObjects activeObjects, PluginSettingsFactory pluginSettingsFactory,
+                                                         ClusterCoordinator clusterCoordinator) {
+        return new PredictionHistoryStore(activeObjects, new LegacyHistoryMigration(pluginSettingsFactory), clusterCoordinator);
+    }
+
+    // Значения поля "Predicted hours": часы последнего прогноза по задаче в памяти
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    public PredictedHoursIndex predictedHoursIndex(PredictionHistoryStore predictionHistoryStore, ClusterCoordinator clusterCoordinator) {
+        return new PredictedHoursIndex(predictionHistoryStore, clusterCoordinator);
+    }
+
+    @Bean
+    public PredictionAccuracyStore predictionAccuracyStore(ActiveObjects activeObjects, PredictionHistoryStore predictionHistoryStore) {
+        return new PredictionAccuracyStore(activeObjects, predictionHistoryStore);
+    }
+
+    @Bean
+    public ComplexityStatistics complexityStatistics() {
+        return new ComplexityStatistics();
+    }
+
+    @Bean
+    public AccuracyMetrics accuracyMetrics() {
+        return new AccuracyMetrics();
+    }
+
+    @Bean
+    public ExampleIndex exampleIndex() {
+        return new ExampleIndex();
+    }
+
+    // Полный пересчет статистики и индекса примеров при старте и раз в сутки
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    public StatisticsRebuildJob statisticsRebuildJob(ComplexityStatistics complexityStatistics, ExampleIndex exampleIndex,
+                                                     PredictionAccuracyStore predictionAccuracyStore, AccuracyMetrics accuracyMetrics,
+                                                     LocalRegressionProvider localRegressionProvider,
+                                                     ClusterCoordinator clusterCoordinator) {
+        return new StatisticsRebuildJob(complexityStatistics, exampleIndex, predictionAccuracyStore, accuracyMetrics,
+                localRegressionProvider, clusterCoordinator);
+    }
+
+    @Bean
+    public IssueEventListener issueEventListener(EventPublisher eventPublisher, ComplexityStatistics complexityStatistics,
+                                                 ExampleIndex exampleIndex, PredictionAccuracyStore predictionAccuracyStore,
+                                                 AccuracyMetrics accuracyMetrics, PromptFragmentCache promptFragmentCache,
+                                                 PredictionPrecomputeJob predictionPrecomputeJob,
+                                                 ClusterCoordinator clusterCoordinator) {
+        return new IssueEventListener(eventPublisher, complexityStatistics, exampleIndex, predictionAccuracyStore, accuracyMetrics,
+                promptFragmentCache, predictionPrecomputeJob, clusterCoordinator);
+    }
+
+    // Метрики конвейера прогноза, публикуются в JMX
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    public PredictionMetrics predictionMetrics() {
+        return new PredictionMetrics();
+    }
+
+    @Bean
+    public PromptFragmentCache promptFragmentCache() {
+        return new PromptFragmentCache();
+    }
+
+    // Локальная модель обучается при пересчете статистики
+    @Bean
+    public LocalRegressionProvider localRegressionProvider() {
+        return new LocalRegressionProvider();
+    }
+
+    // Провайдеры прогнозов; первый - по умолчанию, пока в настройках не выбран другой
+    @Bean(destroyMethod = "shutdown")
+    public LlmProviderRegistry llmProviderRegistry(PredictionMetrics predictionMetrics, LocalRegressionProvider localRegressionProvider) {
+        return new LlmProviderRegistry(new GigaChatProvider(predictionMetrics), localRegressionProvider);
+    }
+
+    // Единственный экземпляр сервиса: его получают панель задачи, REST и сервлеты; настройки перечитывает по событию
+    @Bean
+    public GeminiPredictionService geminiPredictionService(PredictionHistoryStore predictionHistoryStore,
+                                                           ComplexityStatistics complexityStatistics,
+                                                           ExampleIndex exampleIndex, PredictionMetrics predictionMetrics,
+                                                           PromptFragmentCache promptFragmentCache,
+                                                           LlmProviderRegistry llmProviderRegistry,
+                                                           PluginSettingsFactory pluginSettingsFactory,
+                                                           EventPublisher eventPublisher,
+                                                           ClusterCoordinator clusterCoordinator,
+                                                           PredictedHoursIndex predictedHoursIndex) {
+        return new GeminiPredictionService(predictionHistoryStore, complexityStatistics, exampleIndex, predictionMetrics,
+                promptFragmentCache, llmProviderRegistry, pluginSettingsFactory, eventPublisher, clusterCoordinator,
+                predictedHoursIndex);
+    }
+
+    // Фоновый пул прогнозов для панели задачи, останавливается вместе с плагином
+    @Bean(destroyMethod = "shutdown")
+    public PredictionExecutor predictionExecutor(GeminiPredictionService geminiPredictionService) {
+        return new PredictionExecutor(geminiPredictionService);
+    }
+
+    @Bean
+    public BatchRunStore batchRunStore(ActiveObjects activeObjects) {
+        return new BatchRunStore(activeObjects);
+    }
+
+    // Пакетный прогноз по JQL; при старте продолжает прерванный запуск
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    public BatchPredictionJob batchPredictionJob(GeminiPredictionService geminiPredictionService,
+                                                 BatchRunStore batchRunStore,
+                                                 ClusterCoordinator clusterCoordinator) {
+        return new BatchPredictionJob(geminiPredictionService, batchRunStore, clusterCoordinator);
+    }
+
+    @Bean
+    public PendingPredictionStore pendingPredictionStore(ActiveObjects activeObjects) {
+        return new PendingPredictionStore(activeObjects);
+    }
+
+    // Прогноз заранее для созданных и измененных задач; очередь в AO переживает рестарт
+    @Bean(initMethod = "start", destroyMethod = "shutdown")
+    public PredictionPrecomputeJob predictionPrecomputeJob(GeminiPredictionService geminiPredictionService,
+                                                           PendingPredictionStore pendingPredictionStore,
+                                                           PredictionMetrics predictionMetrics,
+                                                           ClusterCoordinator clusterCoordinator) {
+        return new PredictionPrecomputeJob(geminiPredictionService, pendingPredictionStore, predictionMetrics, clusterCoordinator);
+    }
+}
@@ -0,0 +1,43 @@
+package com.atlassian.tutorial.myPlugin.customfield;
+
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.customfields.impl.CalculatedCFType;
+import com.atlassian.jira.issue.customfields.impl.FieldValidationException;
+import com.atlassian.jira.issue.fields.CustomField;
+import com.atlassian.tutorial.myPlugin.store.PredictedHoursIndex;
+
+/**
+ * Поле только для чтения "Predicted hours": часы последнего прогноза AI по задаче.
+ * С числовым поисковиком по нему работают сортировка и JQL вида "Predicted hours" > 16.
+ * Значение берется из {@link PredictedHoursIndex}, поэтому переиндексация не ходит ни в базу, ни к модели.
+ */
+public class PredictedHoursCFType extends CalculatedCFType<Double, Double> {
+
+    private final PredictedHoursIndex predictedHours;
+
+    public PredictedHoursCFType(PredictedHoursIndex predictedHours) {
+        this.predictedHours = predictedHours;
+    }
+
+    @Override
+    public String getStringFromSingularObject(Double hours) {
+        return hours != null ? hours.toString() : null;
+    }
+
+    @Override
+    public Double getSingularObjectFromString(String value) throws FieldValidationException {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return Double.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new FieldValidationException("Ожидается число часов: " + value);
+        }
+    }
+
+    @Override
+    public Double getValueFromIssue(CustomField field, Issue issue) {
+        return issue.getId() != null ? predictedHours.get(issue.getId()) : null;
+    }
+}
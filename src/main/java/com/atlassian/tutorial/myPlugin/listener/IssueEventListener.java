@@ -0,0 +1,216 @@
+package com.atlassian.tutorial.myPlugin.listener;
+
+import com.atlassian.event.api.EventListener;
+import com.atlassian.event.api.EventPublisher;
+import com.atlassian.jira.component.ComponentAccessor;
+import com.atlassian.jira.event.issue.IssueEvent;
+import com.atlassian.jira.event.type.EventType;
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.fields.CustomField;
+import com.atlassian.tutorial.myPlugin.batch.PredictionPrecomputeJob;
+import com.atlassian.tutorial.myPlugin.cluster.ClusterCoordinator;
+import com.atlassian.tutorial.myPlugin.prompt.PromptFragmentCache;
+import com.atlassian.tutorial.myPlugin.retrieval.ExampleDocument;
+import com.atlassian.tutorial.myPlugin.retrieval.ExampleIndex;
+import com.atlassian.tutorial.myPlugin.service.GeminiPredictionService;
+import com.atlassian.tutorial.myPlugin.stats.AccuracyMetrics;
+import com.atlassian.tutorial.myPlugin.stats.ComplexityStatistics;
+import com.atlassian.tutorial.myPlugin.stats.IssueSample;
+import com.atlassian.tutorial.myPlugin.store.AccuracyEntry;
+import com.atlassian.tutorial.myPlugin.store.PredictionAccuracyStore;
+
+import org.ofbiz.core.entity.GenericValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Слушает события задач Jira и инкрементально обновляет статистику по сложности, индекс примеров
+ * и точность прогнозов (таблицу и метрики), а также сбрасывает закэшированные куски промпта.
+ * Созданные и измененные задачи ставятся в очередь предварительного прогноза.
+ * В потоке события Jira обновляются только данные в памяти; запись в таблицы идет в одном фоновом потоке,
+ * в порядке событий, чтобы сохранение задачи не ждало базу.
+ * Любое событие (решение, переоткрытие, редактирование, перенос) просто пересчитывает вклад задачи по ее текущему состоянию.
+ * В кластере событие приходит только на узел, где задачу изменили, поэтому он рассылает остальным узлам id задачи,
+ * и те обновляют свои данные в памяти; таблицы и очередь общие и обновляются один раз.
+ */
+public class IssueEventListener implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(IssueEventListener.class);
+
+    public static final String CLUSTER_CHANNEL = "jp.issue";
+    private static final String DELETED_PREFIX = "-";
+    // Массовая правка дает тысячи событий; при переполнении запись идет в потоке события, а не теряется
+    private static final int WRITE_QUEUE_CAPACITY = 10_000;
+    private static final long SHUTDOWN_WAIT_SECONDS = 5;
+
+    private final EventPublisher eventPublisher;
+    private final ComplexityStatistics complexityStatistics;
+    private final ExampleIndex exampleIndex;
+    private final PredictionAccuracyStore accuracyStore;
+    private final AccuracyMetrics accuracyMetrics;
+    private final PromptFragmentCache promptFragments;
+    private final PredictionPrecomputeJob precomputeJob;
+    private final ClusterCoordinator cluster;
+    private final ThreadPoolExecutor writer;
+
+    public IssueEventListener(EventPublisher eventPublisher, ComplexityStatistics complexityStatistics, ExampleIndex exampleIndex,
+                              PredictionAccuracyStore accuracyStore, AccuracyMetrics accuracyMetrics, PromptFragmentCache promptFragments,
+                              PredictionPrecomputeJob precomputeJob, ClusterCoordinator cluster) {
+        this.eventPublisher = eventPublisher;
+        this.complexityStatistics = complexityStatistics;
+        this.exampleIndex = exampleIndex;
+        this.accuracyStore = accuracyStore;
+        this.accuracyMetrics = accuracyMetrics;
+        this.promptFragments = promptFragments;
+        this.precomputeJob = precomputeJob;
+        this.cluster = cluster;
+        this.writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(WRITE_QUEUE_CAPACITY), r -> {
+            Thread thread = new Thread(r, "jirapredict-events");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        eventPublisher.register(this);
+        cluster.subscribe(CLUSTER_CHANNEL, this::onRemoteIssueChange);
+    }
+
+    @Override
+    public void destroy() {
+        eventPublisher.unregister(this);
+        // Даем дописать уже принятые события
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Dropped {} pending issue event writes on shutdown", writer.shutdownNow().size());
+            }
+        } catch (InterruptedException e) {
+            writer.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @EventListener
+    public void onIssueEvent(IssueEvent event) {
+        Issue issue = event.getIssue();
+        if (issue == null) {
+            return;
+        }
+        try {
+            boolean deleted = EventType.ISSUE_DELETED_ID.equals(event.getEventTypeId());
+            if (deleted) {
+                removeLocal(issue.getId());
+                writer.execute(() -> writeDeleted(issue));
+            } else {
+                CustomField complexityField = ComponentAccessor.getCustomFieldManager().getCustomFieldObject(GeminiPredictionService.COMPLEXITY_FIELD_ID);
+                recordLocal(issue, complexityField);
+                boolean enqueue = issue.getResolutionDate() == null && needsPrediction(event, complexityField);
+                writer.execute(() -> writeChanged(issue, complexityField, enqueue));
+            }
+        } catch (RuntimeException e) {
+            // Ошибка в плагине не должна ломать сохранение задачи
+            log.error("Failed to update statistics for {}", issue.getKey(), e);
+        }
+    }
+
+    private void writeDeleted(Issue issue) {
+        try {
+            accuracyStore.remove(issue.getId());
+            precomputeJob.remove(issue.getId());
+            cluster.publish(CLUSTER_CHANNEL, DELETED_PREFIX + issue.getId());
+        } catch (RuntimeException e) {
+            log.error("Failed to remove prediction data of deleted {}", issue.getKey(), e);
+        }
+    }
+
+    // Метрики точности и сообщение узлам - после записи: другие узлы читают пару из таблицы
+    private void writeChanged(Issue issue, CustomField complexityField, boolean enqueue) {
+        try {
+            // Решение фиксирует пару "прогноз - факт", переоткрытие ее убирает
+            recordAccuracy(issue.getId(), accuracyStore.update(issue, complexityField));
+            if (enqueue) {
+                precomputeJob.enqueue(issue);
+            }
+            cluster.publish(CLUSTER_CHANNEL, String.valueOf(issue.getId()));
+        } catch (RuntimeException e) {
+            log.error("Failed to update prediction accuracy for {}", issue.getKey(), e);
+        }
+    }
+
+    // Задачу изменили на другом узле: таблицы он уже обновил, здесь догоняем только данные в памяти
+    private void onRemoteIssueChange(String message) {
+        boolean deleted = message.startsWith(DELETED_PREFIX);
+        Long issueId = Long.valueOf(deleted ? message.substring(DELETED_PREFIX.length()) : message);
+        Issue issue = deleted ? null : ComponentAccessor.getIssueManager().getIssueObject(issueId);
+        if (issue == null) {
+            removeLocal(issueId);
+            return;
+        }
+        recordLocal(issue, ComponentAccessor.getCustomFieldManager().getCustomFieldObject(GeminiPredictionService.COMPLEXITY_FIELD_ID));
+        recordAccuracy(issueId, accuracyStore.get(issueId));
+    }
+
+    private void recordLocal(Issue issue, CustomField complexityField) {
+        // Куски промпта соберутся заново при следующем прогнозе
+        promptFragments.invalidate(issue.getId());
+        IssueSample sample = IssueSample.of(issue, complexityField);
+        if (sample != null) {
+            complexityStatistics.record(sample);
+        } else {
+            complexityStatistics.remove(issue.getId());
+        }
+        ExampleDocument document = ExampleDocument.of(issue, complexityField);
+        if (document != null) {
+            exampleIndex.record(document);
+        } else {
+            exampleIndex.remove(issue.getId());
+        }
+    }
+
+    private void removeLocal(Long issueId) {
+        promptFragments.invalidate(issueId);
+        complexityStatistics.remove(issueId);
+        exampleIndex.remove(issueId);
+        accuracyMetrics.remove(issueId);
+    }
+
+    private void recordAccuracy(Long issueId, AccuracyEntry accuracy) {
+        if (accuracy != null) {
+            accuracyMetrics.record(accuracy);
+        } else {
+            accuracyMetrics.remove(issueId);
+        }
+    }
+
+    // Создание и правка задачи, а также любое событие (например, переход с экраном), поменявшее сложность
+    private static boolean needsPrediction(IssueEvent event, CustomField complexityField) {
+        Long type = event.getEventTypeId();
+        if (EventType.ISSUE_CREATED_ID.equals(type) || EventType.ISSUE_UPDATED_ID.equals(type)) {
+            return true;
+        }
+        GenericValue changeLog = event.getChangeLog();
+        if (changeLog == null || complexityField == null) {
+            return false;
+        }
+        try {
+            List<GenericValue> items = changeLog.getRelated("ChildChangeItem");
+            for (GenericValue item : items) {
+                if (complexityField.getName().equals(item.getString("field"))) {
+                    return true;
+                }
+            }
+        } catch (Exception e) {
+            log.debug("Cannot read change log of {}", event.getIssue().getKey(), e);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,228 @@
+package com.atlassian.tutorial.myPlugin.llm;
+
+import com.atlassian.tutorial.myPlugin.stats.IssueSample;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Гребневая регрессия логарифма времени решения по признакам задачи: сложность (числом и значением),
+ * проект и тип. Обучается за один проход по решенным задачам через нормальные уравнения (признаков - десятки),
+ * прогноз - скалярное произведение, то есть микросекунды и без сети.
+ * Значения, встретившиеся реже {@link #MIN_CATEGORY_SAMPLES} раз, отдельного признака не получают.
+ */
+public final class DurationRegression {
+
+    // На меньшей выборке регрессия не лучше среднего по сложности
+    public static final int MIN_TRAINING_SAMPLES = 30;
+    private static final int MIN_CATEGORY_SAMPLES = 5;
+    private static final double RIDGE = 1.0;
+    // Задачи, закрытые за минуты, не должны тянуть логарифм в минус бесконечность
+    private static final double MIN_HOURS = 0.25;
+    // Квантиль 0.75 нормального распределения: диапазон прогноза - средние 50% задач
+    private static final double QUARTILE_Z = 0.674;
+
+    private final Map<String, Integer> features;
+    private final double[] weights;
+    private final double meanComplexity;
+    private final double residualStd;
+    private final int sampleCount;
+
+    private DurationRegression(Map<String, Integer> features, double[] weights, double meanComplexity, double residualStd,
+                               int sampleCount) {
+        this.features = features;
+        this.weights = weights;
+        this.meanComplexity = meanComplexity;
+        this.residualStd = residualStd;
+        this.sampleCount = sampleCount;
+    }
+
+    /**
+     * Обучает модель или возвращает null, если задач меньше {@link #MIN_TRAINING_SAMPLES}.
+     */
+    public static DurationRegression train(Collection<IssueSample> samples) {
+        if (samples.size() < MIN_TRAINING_SAMPLES) {
+            return null;
+        }
+        double complexitySum = 0;
+        int numericCount = 0;
+        Map<String, Integer> counts = new HashMap<>();
+        for (IssueSample sample : samples) {
+            Double numeric = numeric(sample.getComplexity());
+            if (numeric != null) {
+                complexitySum += numeric;
+                numericCount++;
+            }
+            for (String category : categories(sample.getComplexity(), sample.getProjectKey(), sample.getIssueTypeId())) {
+                if (category != null) {
+                    counts.merge(category, 1, Integer::sum);
+                }
+            }
+        }
+        double meanComplexity = numericCount > 0 ? complexitySum / numericCount : 0;
+
+        // 0 - свободный член, 1 - сложность числом, дальше - частые значения категорий
+        Map<String, Integer> features = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() >= MIN_CATEGORY_SAMPLES) {
+                features.put(entry.getKey(), features.size() + 2);
+            }
+        }
+        int dimension = features.size() + 2;
+
+        double[][] xtx = new double[dimension][dimension];
+        double[] xty = new double[dimension];
+        double[] x = new double[dimension];
+        for (IssueSample sample : samples) {
+            fill(x, features, meanComplexity, sample.getComplexity(), sample.getProjectKey(), sample.getIssueTypeId());
+            double y = logHours(sample.getDurationMillis());
+            for (int i = 0; i < dimension; i++) {
+                if (x[i] == 0) {
+                    continue;
+                }
+                xty[i] += x[i] * y;
+                for (int j = 0; j < dimension; j++) {
+                    xtx[i][j] += x[i] * x[j];
+                }
+            }
+        }
+        for (int i = 1; i < dimension; i++) {
+            xtx[i][i] += RIDGE;
+        }
+        double[] weights = solve(xtx, xty);
+
+        double squaredError = 0;
+        for (IssueSample sample : samples) {
+            fill(x, features, meanComplexity, sample.getComplexity(), sample.getProjectKey(), sample.getIssueTypeId());
+            double residual = logHours(sample.getDurationMillis()) - dot(weights, x);
+            squaredError += residual * residual;
+        }
+        double residualStd = Math.sqrt(squaredError / (samples.size() - 1));
+        return new DurationRegression(features, weights, meanComplexity, residualStd, samples.size());
+    }
+
+    /**
+     * Оценка времени решения в календарных часах; любой аргумент может быть null.
+     */
+    public Estimate predict(String complexity, String projectKey, String issueTypeId) {
+        double[] x = new double[weights.length];
+        fill(x, features, meanComplexity, complexity, projectKey, issueTypeId);
+        double logHours = dot(weights, x);
+        return new Estimate(Math.exp(logHours - QUARTILE_Z * residualStd), Math.exp(logHours),
+                Math.exp(logHours + QUARTILE_Z * residualStd));
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    public int getFeatureCount() {
+        return weights.length;
+    }
+
+    private static void fill(double[] x, Map<String, Integer> features, double meanComplexity,
+                             String complexity, String projectKey, String issueTypeId) {
+        Arrays.fill(x, 0);
+        x[0] = 1;
+        Double numeric = numeric(complexity);
+        x[1] = numeric != null ? numeric : meanComplexity;
+        for (String category : categories(complexity, projectKey, issueTypeId)) {
+            Integer index = category != null ? features.get(category) : null;
+            if (index != null) {
+                x[index] = 1;
+            }
+        }
+    }
+
+    private static String[] categories(String complexity, String projectKey, String issueTypeId) {
+        return new String[] {
+                complexity != null ? "c:" + complexity : null,
+                projectKey != null ? "p:" + projectKey : null,
+                issueTypeId != null ? "t:" + issueTypeId : null };
+    }
+
+    private static Double numeric(String complexity) {
+        if (complexity == null) {
+            return null;
+        }
+        try {
+            return Double.parseDouble(complexity.trim().replace(',', '.'));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static double logHours(long durationMillis) {
+        return Math.log(Math.max(MIN_HOURS, (double) durationMillis / TimeUnit.HOURS.toMillis(1)));
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    // Матрица симметричная положительно определенная (гребневая добавка), поэтому Холецкий
+    private static double[] solve(double[][] a, double[] b) {
+        int n = b.length;
+        double[][] l = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = a[i][j];
+                for (int k = 0; k < j; k++) {
+                    sum -= l[i][k] * l[j][k];
+                }
+                l[i][j] = i == j ? Math.sqrt(Math.max(sum, 1e-12)) : sum / l[j][j];
+            }
+        }
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            double sum = b[i];
+            for (int k = 0; k < i; k++) {
+                sum -= l[i][k] * y[k];
+            }
+            y[i] = sum / l[i][i];
+        }
+        double[] w = new double[n];
+        for (int i = n - 1; i >= 0; i--) {
+            double sum = y[i];
+            for (int k = i + 1; k < n; k++) {
+                sum -= l[k][i] * w[k];
+            }
+            w[i] = sum / l[i][i];
+        }
+        return w;
+    }
+
+    /**
+     * Оценка в календарных часах: медиана и диапазон, в который попадает половина похожих задач.
+     */
+    public static final class Estimate {
+        private final double lowHours;
+        private final double medianHours;
+        private final double highHours;
+
+        Estimate(double lowHours, double medianHours, double highHours) {
+            this.lowHours = lowHours;
+            this.medianHours = medianHours;
+            this.highHours = highHours;
+        }
+
+        public double getLowHours() {
+            return lowHours;
+        }
+
+        public double getMedianHours() {
+            return medianHours;
+        }
+
+        public double getHighHours() {
+            return highHours;
+        }
+    }
+}
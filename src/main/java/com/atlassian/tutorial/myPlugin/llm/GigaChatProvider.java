@@ -0,0 +1,183 @@
+package com.atlassian.tutorial.myPlugin.llm;
+
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.tutorial.myPlugin.metrics.PredictionMetrics;
+import com.atlassian.tutorial.myPlugin.service.CompletionStream;
+import com.atlassian.tutorial.myPlugin.service.GigaChatGuard;
+import com.atlassian.tutorial.myPlugin.service.GigaChatHttpClient;
+import com.atlassian.tutorial.myPlugin.service.GigaChatTokenProvider;
+import com.atlassian.tutorial.myPlugin.service.PredictionConfig;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.HttpURLConnection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * GigaChat: OAuth-токен по ключу авторизации, chat/completions (в том числе потоком) через {@link GigaChatGuard}.
+ */
+public class GigaChatProvider implements LlmProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(GigaChatProvider.class);
+
+    public static final String ID = "gigachat";
+
+    private static final String OAUTH_URL = "https://ngw.devices.sberbank.ru:9443/api/v2/oauth";
+    private static final String API_URL = "https://gigachat.devices.sberbank.ru/api/v1/chat/completions";
+    private static final String MODEL_NAME = "GigaChat";
+
+    private volatile String base64AuthKey;
+    private volatile GigaChatHttpClient httpClient;
+    private final GigaChatGuard guard = new GigaChatGuard();
+    private final GigaChatTokenProvider tokenProvider;
+    private final PredictionMetrics metrics;
+
+    public GigaChatProvider(PredictionMetrics metrics) {
+        this.metrics = metrics;
+        this.tokenProvider = new GigaChatTokenProvider(this::requestToken);
+        metrics.gauge("gigachat.inFlight", guard::getInFlightCount);
+        metrics.gauge("gigachat.circuitOpen", () -> guard.isAvailable() ? 0 : 1);
+    }
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @Override
+    public String getModelName() {
+        return MODEL_NAME;
+    }
+
+    @Override
+    public boolean usesPrompt() {
+        return true;
+    }
+
+    @Override
+    public void configure(PredictionConfig config) {
+        this.base64AuthKey = config.getAuthKey();
+        updateHttpClient(config.getHttpSettings());
+        guard.setRequestsPerSecond(config.getRequestsPerSecond());
+    }
+
+    // SSLContext дорогой, поэтому клиент пересоздаем только при изменении настроек транспорта
+    private synchronized void updateHttpClient(GigaChatHttpClient.Settings clientSettings) {
+        if (httpClient != null && httpClient.getSettings().equals(clientSettings)) {
+            return;
+        }
+        try {
+            httpClient = new GigaChatHttpClient(clientSettings);
+        } catch (Exception e) {
+            log.error("Cannot initialize GigaChat HTTP client, truststore: {}", clientSettings.getTruststorePath(), e);
+        }
+    }
+
+    @Override
+    public void invalidateCredentials() {
+        tokenProvider.invalidate();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return guard.isAvailable();
+    }
+
+    @Override
+    public void shutdown() {
+        tokenProvider.shutdown();
+    }
+
+    @Override
+    public Completion complete(Issue issue, String prompt, Consumer<String> onDelta) throws Exception {
+        String token = getToken();
+
+        JSONObject body = new JSONObject();
+        body.put("model", MODEL_NAME);
+        JSONArray msgs = new JSONArray().put(new JSONObject().put("role", "user").put("content", prompt));
+        body.put("messages", msgs);
+        body.put("temperature", 0.7);
+        if (onDelta != null) {
+            body.put("stream", true);
+        }
+
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Content-Type", "application/json");
+        headers.put("Authorization", "Bearer " + token);
+
+        GigaChatHttpClient client = requireHttpClient();
+        // Каждая попытка читает поток заново; повтор возможен, только пока текст еще не пошел
+        CompletionStream[] stream = new CompletionStream[1];
+        GigaChatHttpClient.HttpResult response;
+        if (onDelta != null) {
+            response = guard.execute(() -> {
+                stream[0] = new CompletionStream(onDelta);
+                return client.postStreaming(API_URL, headers, body.toString(), stream[0]::onLine);
+            });
+        } else {
+            response = guard.post(client, API_URL, headers, body.toString());
+        }
+        if (!response.isOk()) {
+            if (response.getStatus() == HttpURLConnection.HTTP_UNAUTHORIZED) {
+                // Токен отозван раньше срока - следующий запрос получит новый
+                tokenProvider.invalidate();
+            }
+            throw new LlmHttpException(response.getStatus());
+        }
+
+        JSONObject usage;
+        String text;
+        if (onDelta != null) {
+            usage = stream[0].getUsage();
+            text = stream[0].getText();
+        } else {
+            JSONObject res = new JSONObject(response.getBody());
+            usage = res.optJSONObject("usage");
+            text = res.getJSONArray("choices").getJSONObject(0).getJSONObject("message").getString("content");
+        }
+        return new Completion(text.trim(),
+                usage != null ? usage.optLong("prompt_tokens", 0L) : 0L,
+                usage != null ? usage.optLong("completion_tokens", 0L) : 0L);
+    }
+
+    private String getToken() throws Exception {
+        String authKey = this.base64AuthKey;
+        if (authKey == null || authKey.isEmpty()) {
+            throw new Exception("Auth Key не настроен в конфигурации!");
+        }
+        // Токен живет десятки минут, за новым ходим только когда он истекает (или сменился ключ)
+        try (PredictionMetrics.Timer ignored = metrics.time(PredictionMetrics.Stage.TOKEN)) {
+            return tokenProvider.getToken(authKey);
+        }
+    }
+
+    private GigaChatTokenProvider.AccessToken requestToken(String authKey) throws Exception {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Content-Type", "application/x-www-form-urlencoded");
+        headers.put("Accept", "application/json");
+        headers.put("Authorization", "Basic " + authKey);
+        headers.put("RqUID", UUID.randomUUID().toString());
+
+        GigaChatHttpClient.HttpResult response = guard.post(requireHttpClient(), OAUTH_URL, headers, "scope=GIGACHAT_API_PERS");
+        if (response.isOk()) {
+            JSONObject json = new JSONObject(response.getBody());
+            return GigaChatTokenProvider.AccessToken.fromOAuthResponse(json.getString("access_token"), json.optLong("expires_at", 0L));
+        } else {
+            throw new Exception("OAuth Error: " + response.getStatus() + " " + response.getBody());
+        }
+    }
+
+    private GigaChatHttpClient requireHttpClient() throws Exception {
+        GigaChatHttpClient client = this.httpClient;
+        if (client == null) {
+            throw new Exception("HTTP-клиент GigaChat не инициализирован, проверьте настройки truststore");
+        }
+        return client;
+    }
+}
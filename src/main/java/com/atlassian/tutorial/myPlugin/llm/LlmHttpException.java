@@ -0,0 +1,19 @@
+package com.atlassian.tutorial.myPlugin.llm;
+
+import java.io.IOException;
+
+/**
+ * API модели ответило ошибкой HTTP (после всех повторов).
+ */
+public class LlmHttpException extends IOException {
+    private final int status;
+
+    public LlmHttpException(int status) {
+        super("API ответило " + status);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,84 @@
+package com.atlassian.tutorial.myPlugin.llm;
+
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.tutorial.myPlugin.service.PredictionConfig;
+
+import java.util.function.Consumer;
+
+/**
+ * Источник прогнозов: облачная модель (GigaChat) или локальная модель без сети.
+ * Ответ - текст, который разбирает DurationParser, поэтому история, кэш и аналитика от провайдера не зависят.
+ * Провайдер проекта выбирает {@link LlmProviderRegistry}.
+ */
+public interface LlmProvider {
+
+    /**
+     * Идентификатор для настроек, например "gigachat".
+     */
+    String getId();
+
+    /**
+     * Название модели для истории прогнозов.
+     */
+    String getModelName();
+
+    /**
+     * Нужен ли провайдеру промпт с примерами. Если нет, сервис не ищет примеры и не строит промпт.
+     */
+    boolean usesPrompt();
+
+    /**
+     * Применяет новый снимок настроек (ключ, таймауты, квоты); вызывается при старте и после сохранения настроек.
+     */
+    void configure(PredictionConfig config);
+
+    /**
+     * Сбрасывает закэшированные учетные данные, например после смены ключа.
+     */
+    void invalidateCredentials();
+
+    /**
+     * false, пока провайдер не может отвечать: модель не обучена, предохранитель разомкнут и т.п.
+     */
+    boolean isAvailable();
+
+    /**
+     * Ответ модели на промпт.
+     *
+     * @param issue   оцениваемая задача; null для пакетного промпта
+     * @param prompt  промпт; null, если провайдер его не использует
+     * @param onDelta если не null, куски текста отдаются сюда по мере получения
+     * @throws LlmUnavailableException запрос не отправлялся, стоит ответить запасным прогнозом
+     * @throws Exception               запрос не удался, текст ошибки показывается пользователю
+     */
+    Completion complete(Issue issue, String prompt, Consumer<String> onDelta) throws Exception;
+
+    void shutdown();
+
+    /**
+     * Текст ответа и расход токенов (0, если провайдер их не считает).
+     */
+    final class Completion {
+        private final String text;
+        private final long promptTokens;
+        private final long completionTokens;
+
+        public Completion(String text, long promptTokens, long completionTokens) {
+            this.text = text;
+            this.promptTokens = promptTokens;
+            this.completionTokens = completionTokens;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public long getPromptTokens() {
+            return promptTokens;
+        }
+
+        public long getCompletionTokens() {
+            return completionTokens;
+        }
+    }
+}
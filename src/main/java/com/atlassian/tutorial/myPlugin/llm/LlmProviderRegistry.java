@@ -0,0 +1,107 @@
+package com.atlassian.tutorial.myPlugin.llm;
+
+import com.atlassian.tutorial.myPlugin.service.PredictionConfig;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Все провайдеры прогнозов и выбор провайдера для проекта: по умолчанию из настроек,
+ * для отдельных проектов - переопределения вида "ABC=local", по одному на строку.
+ */
+public class LlmProviderRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmProviderRegistry.class);
+
+    public static final String DEFAULT_PROVIDER_SETTING = "com.atlassian.tutorial.myPlugin.llmProvider";
+    public static final String PROJECT_PROVIDERS_SETTING = "com.atlassian.tutorial.myPlugin.llmProjectProviders";
+
+    private final Map<String, LlmProvider> providers = new LinkedHashMap<>();
+    private final String firstId;
+    private volatile String defaultId;
+    private volatile Map<String, String> projectProviders = Collections.emptyMap();
+
+    /**
+     * Первый провайдер - провайдер по умолчанию, пока в настройках не выбран другой.
+     */
+    public LlmProviderRegistry(LlmProvider... providers) {
+        for (LlmProvider provider : providers) {
+            this.providers.put(provider.getId(), provider);
+        }
+        this.firstId = providers[0].getId();
+        this.defaultId = firstId;
+    }
+
+    public void configure(PredictionConfig config) {
+        String configuredId = config.getDefaultProviderId();
+        defaultId = configuredId != null && providers.containsKey(configuredId) ? configuredId : firstId;
+        projectProviders = config.getProjectProviders();
+        for (LlmProvider provider : providers.values()) {
+            provider.configure(config);
+        }
+    }
+
+    /**
+     * Разбирает переопределения "КЛЮЧ=провайдер" (строки или через запятую); ключ проекта без учета регистра.
+     */
+    public static Map<String, String> parseProjectProviders(String text) {
+        Map<String, String> result = new LinkedHashMap<>();
+        if (text == null) {
+            return result;
+        }
+        for (String line : text.split("[\\r\\n,;]+")) {
+            int separator = line.indexOf('=');
+            if (separator <= 0) {
+                continue;
+            }
+            String projectKey = line.substring(0, separator).trim().toUpperCase(Locale.ROOT);
+            String providerId = line.substring(separator + 1).trim().toLowerCase(Locale.ROOT);
+            if (!projectKey.isEmpty() && !providerId.isEmpty()) {
+                result.put(projectKey, providerId);
+            }
+        }
+        return result;
+    }
+
+    public LlmProvider forProject(String projectKey) {
+        String id = projectKey != null ? projectProviders.get(projectKey.toUpperCase(Locale.ROOT)) : null;
+        LlmProvider provider = id != null ? providers.get(id) : null;
+        if (id != null && provider == null) {
+            log.warn("Unknown prediction provider '{}' for project {}, using default", id, projectKey);
+        }
+        return provider != null ? provider : getDefault();
+    }
+
+    public LlmProvider getDefault() {
+        return providers.get(defaultId);
+    }
+
+    /**
+     * Провайдер по id или null.
+     */
+    public LlmProvider get(String id) {
+        return providers.get(id);
+    }
+
+    public Collection<LlmProvider> getProviders() {
+        return Collections.unmodifiableCollection(providers.values());
+    }
+
+    public void invalidateCredentials() {
+        for (LlmProvider provider : providers.values()) {
+            provider.invalidateCredentials();
+        }
+    }
+
+    public void shutdown() {
+        for (LlmProvider provider : providers.values()) {
+            provider.shutdown();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.atlassian.tutorial.myPlugin.llm;
+
+/**
+ * Провайдер сейчас не принимает запросы: вместо ошибки показывается запасной прогноз.
+ */
+public class LlmUnavailableException extends Exception {
+    public LlmUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,126 @@
+package com.atlassian.tutorial.myPlugin.llm;
+
+import com.atlassian.jira.component.ComponentAccessor;
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.fields.CustomField;
+import com.atlassian.tutorial.myPlugin.service.GeminiPredictionService;
+import com.atlassian.tutorial.myPlugin.service.PredictionConfig;
+import com.atlassian.tutorial.myPlugin.stats.IssueSample;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Локальная модель без сети: {@link DurationRegression}, обученная на решенных задачах
+ * при каждом пересчете статистики (StatisticsRebuildJob). Отвечает тем же JSON, что просим у LLM,
+ * поэтому разбор, история и аналитика общие. Служит и запасным прогнозом, когда LLM недоступна.
+ */
+public class LocalRegressionProvider implements LlmProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalRegressionProvider.class);
+
+    public static final String ID = "local";
+    private static final String MODEL_NAME = "local-regression";
+
+    private volatile DurationRegression model;
+
+    /**
+     * Переобучает модель; при нехватке данных остается прежняя.
+     */
+    public void train(Collection<IssueSample> samples) {
+        long started = System.currentTimeMillis();
+        DurationRegression trained = DurationRegression.train(samples);
+        if (trained == null) {
+            log.info("Local prediction model not trained: {} resolved issues with complexity, need {}",
+                    samples.size(), DurationRegression.MIN_TRAINING_SAMPLES);
+            return;
+        }
+        model = trained;
+        log.info("Local prediction model trained on {} issues, {} features in {} ms",
+                trained.getSampleCount(), trained.getFeatureCount(), System.currentTimeMillis() - started);
+    }
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+
+    @Override
+    public String getModelName() {
+        return MODEL_NAME;
+    }
+
+    @Override
+    public boolean usesPrompt() {
+        return false;
+    }
+
+    @Override
+    public void configure(PredictionConfig config) {
+        // Настраивать нечего: модель обучается по расписанию пересчета статистики
+    }
+
+    @Override
+    public void invalidateCredentials() {
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return model != null;
+    }
+
+    @Override
+    public void shutdown() {
+    }
+
+    @Override
+    public Completion complete(Issue issue, String prompt, Consumer<String> onDelta) throws Exception {
+        DurationRegression current = model;
+        if (current == null) {
+            throw new LlmUnavailableException("Локальная модель еще не обучена");
+        }
+        if (issue == null) {
+            // Пакетный промпт: оценок нет, сервис досчитает каждую задачу отдельно
+            return new Completion("{}", 0L, 0L);
+        }
+        String text = answer(estimate(current, issue));
+        if (onDelta != null) {
+            onDelta.accept(text);
+        }
+        return new Completion(text, 0L, 0L);
+    }
+
+    /**
+     * Оценка задачи или null, если модель еще не обучена.
+     */
+    public DurationRegression.Estimate estimate(Issue issue) {
+        DurationRegression current = model;
+        return current != null ? estimate(current, issue) : null;
+    }
+
+    private static DurationRegression.Estimate estimate(DurationRegression model, Issue issue) {
+        CustomField complexityField = ComponentAccessor.getCustomFieldManager().getCustomFieldObject(GeminiPredictionService.COMPLEXITY_FIELD_ID);
+        String complexity = complexityField != null ? IssueSample.complexityValue(issue.getCustomFieldValue(complexityField)) : null;
+        return model.predict(complexity,
+                issue.getProjectObject() != null ? issue.getProjectObject().getKey() : null,
+                issue.getIssueType() != null ? issue.getIssueType().getId() : null);
+    }
+
+    /**
+     * Оценка в формате ответа LLM. Единица - часы: модель учится на календарном времени, а дни
+     * DurationParser переводит в рабочие часы по настройкам, и в днях прогноз оказался бы занижен.
+     */
+    public static String answer(DurationRegression.Estimate estimate) {
+        double min = roundHalf(estimate.getLowHours());
+        double max = Math.max(min, roundHalf(estimate.getHighHours()));
+        return new JSONObject().put("min", min).put("max", max).put("unit", "часы").toString();
+    }
+
+    private static double roundHalf(double value) {
+        return Math.max(0.5, Math.round(value * 2) / 2.0);
+    }
+}
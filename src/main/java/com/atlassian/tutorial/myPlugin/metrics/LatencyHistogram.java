@@ -0,0 +1,158 @@
+package com.atlassian.tutorial.myPlugin.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Гистограмма задержек со скользящим окном: окно поделено на слоты (по умолчанию 5 по минуте),
+ * перцентили считаются по слотам, попавшим в окно, поэтому регрессия видна сразу, а не растворяется
+ * в статистике с момента старта. Корзины логарифмические, как у {@link com.atlassian.tutorial.myPlugin.stats.DurationHistogram},
+ * но от микросекунды до часа. Запись без блокировок.
+ */
+public class LatencyHistogram {
+
+    private static final double GAMMA = 1.04; // относительная точность ~2%
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final long MAX_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final int BUCKET_COUNT = index(MAX_MICROS) + 1;
+
+    private final long slotMillis;
+    private final LongSupplier clock;
+    private final AtomicLongArray[] slots;
+    // Номер минуты (слота времени), к которой относятся значения слота
+    private final AtomicLongArray slotEpochs;
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+
+    public LatencyHistogram() {
+        this(5, TimeUnit.MINUTES.toMillis(1), System::currentTimeMillis);
+    }
+
+    public LatencyHistogram(int slotCount, long slotMillis, LongSupplier clock) {
+        this.slotMillis = slotMillis;
+        this.clock = clock;
+        this.slots = new AtomicLongArray[slotCount];
+        this.slotEpochs = new AtomicLongArray(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new AtomicLongArray(BUCKET_COUNT);
+            slotEpochs.set(i, -1);
+        }
+    }
+
+    public void record(long nanos) {
+        long micros = Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos));
+        totalCount.increment();
+        totalMicros.add(micros);
+        long epoch = clock.getAsLong() / slotMillis;
+        int slot = (int) (epoch % slots.length);
+        if (slotEpochs.get(slot) != epoch) {
+            rotate(slot, epoch);
+        }
+        slots[slot].incrementAndGet(bucket(micros));
+    }
+
+    // Слот достался новой минуте: старые значения выбрасываем
+    private synchronized void rotate(int slot, long epoch) {
+        if (slotEpochs.get(slot) == epoch) {
+            return;
+        }
+        AtomicLongArray counts = slots[slot];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        slotEpochs.set(slot, epoch);
+    }
+
+    /**
+     * Значения за скользящее окно.
+     */
+    public Snapshot snapshot() {
+        long currentEpoch = clock.getAsLong() / slotMillis;
+        long[] counts = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int s = 0; s < slots.length; s++) {
+            long epoch = slotEpochs.get(s);
+            if (epoch < 0 || currentEpoch - epoch >= slots.length) {
+                continue;
+            }
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                long value = slots[s].get(i);
+                counts[i] += value;
+                count += value;
+            }
+        }
+        return new Snapshot(counts, count, totalCount.sum(), totalMicros.sum());
+    }
+
+    public long getWindowMillis() {
+        return slotMillis * slots.length;
+    }
+
+    private static int bucket(long micros) {
+        return index(Math.min(MAX_MICROS, micros));
+    }
+
+    private static int index(long micros) {
+        return (int) Math.ceil(Math.log(micros) / LOG_GAMMA);
+    }
+
+    // Середина корзины (gamma^(i-1), gamma^i]
+    private static double representativeMillis(int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1) / 1000.0;
+    }
+
+    public static class Snapshot {
+        private final long[] counts;
+        private final long windowCount;
+        private final long totalCount;
+        private final long totalMicros;
+
+        Snapshot(long[] counts, long windowCount, long totalCount, long totalMicros) {
+            this.counts = counts;
+            this.windowCount = windowCount;
+            this.totalCount = totalCount;
+            this.totalMicros = totalMicros;
+        }
+
+        /**
+         * Сколько значений попало в окно.
+         */
+        public long getWindowCount() {
+            return windowCount;
+        }
+
+        /**
+         * Сколько значений записано с момента старта.
+         */
+        public long getTotalCount() {
+            return totalCount;
+        }
+
+        /**
+         * Среднее с момента старта, мс.
+         */
+        public double getMeanMillis() {
+            return totalCount > 0 ? totalMicros / 1000.0 / totalCount : 0;
+        }
+
+        /**
+         * Перцентиль в окне, мс, или 0, если значений в окне нет.
+         */
+        public double getPercentileMillis(double quantile) {
+            if (windowCount <= 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * windowCount));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return representativeMillis(i);
+                }
+            }
+            return representativeMillis(counts.length - 1);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.atlassian.tutorial.myPlugin.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Метрики конвейера прогноза: время каждого этапа, попадания в кэш, токены GigaChat, ошибки по классам.
+ * Публикуются как MXBean и отдаются JSON-ом через MetricsResource.
+ */
+public class PredictionMetrics implements PredictionMetricsMXBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PredictionMetrics.class);
+
+    public static final String OBJECT_NAME = "com.atlassian.tutorial.myPlugin:type=PredictionMetrics";
+
+    public enum Stage { TOTAL, TOKEN, EXAMPLES, PROMPT, COMPLETION, HISTORY_SAVE }
+
+    // Имена счетчиков
+    public static final String CACHE_HIT = "cache.hit";
+    public static final String CACHE_MISS = "cache.miss";
+    public static final String FALLBACK = "fallback";
+    public static final String PROMPT_TOKENS = "tokens.prompt";
+    public static final String COMPLETION_TOKENS = "tokens.completion";
+    public static final String AVERAGE_LOOKUPS = "average.lookups";
+    public static final String AVERAGE_SAMPLES = "average.samples";
+
+    private final Map<Stage, LatencyHistogram> latencies = new EnumMap<>(Stage.class);
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    public PredictionMetrics() {
+        for (Stage stage : Stage.values()) {
+            latencies.put(stage, new LatencyHistogram());
+        }
+    }
+
+    public void start() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            // После переустановки плагина без рестарта Jira старый бин может остаться зарегистрированным
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (Exception e) {
+            log.warn("Cannot register prediction metrics MBean", e);
+        }
+    }
+
+    public void shutdown() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            log.warn("Cannot unregister prediction metrics MBean", e);
+        }
+    }
+
+    /**
+     * Замер этапа для try-with-resources: время записывается при закрытии.
+     */
+    public Timer time(Stage stage) {
+        return new Timer(latencies.get(stage));
+    }
+
+    public void increment(String counter) {
+        add(counter, 1);
+    }
+
+    public void add(String counter, long delta) {
+        counters.computeIfAbsent(counter, k -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * Ошибка по классу: имя исключения или "HTTP 429" и т.п.
+     */
+    public void recordError(String errorClass) {
+        errors.computeIfAbsent(errorClass, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * Текущее значение, которое считается при чтении (запросы в полете, состояние предохранителя).
+     */
+    public void gauge(String name, LongSupplier supplier) {
+        gauges.put(name, supplier);
+    }
+
+    public LatencyHistogram.Snapshot getLatency(Stage stage) {
+        return latencies.get(stage).snapshot();
+    }
+
+    public long getWindowMillis() {
+        return latencies.get(Stage.TOTAL).getWindowMillis();
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        return sums(counters);
+    }
+
+    @Override
+    public Map<String, Long> getErrors() {
+        return sums(errors);
+    }
+
+    @Override
+    public Map<String, Long> getGauges() {
+        Map<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+            values.put(gauge.getKey(), gauge.getValue().getAsLong());
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP50Millis() {
+        return percentiles(0.5);
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP95Millis() {
+        return percentiles(0.95);
+    }
+
+    @Override
+    public Map<String, Double> getLatencyP99Millis() {
+        return percentiles(0.99);
+    }
+
+    @Override
+    public double getCacheHitRatio() {
+        long hits = sum(CACHE_HIT);
+        long total = hits + sum(CACHE_MISS);
+        return total > 0 ? (double) hits / total : 0;
+    }
+
+    private long sum(String counter) {
+        LongAdder adder = counters.get(counter);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    private Map<String, Double> percentiles(double quantile) {
+        Map<String, Double> values = new TreeMap<>();
+        for (Map.Entry<Stage, LatencyHistogram> entry : latencies.entrySet()) {
+            values.put(entry.getKey().name(), entry.getValue().snapshot().getPercentileMillis(quantile));
+        }
+        return values;
+    }
+
+    private static Map<String, Long> sums(Map<String, LongAdder> adders) {
+        Map<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : adders.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().sum());
+        }
+        return values;
+    }
+
+    public static class Timer implements AutoCloseable {
+        private final LatencyHistogram histogram;
+        private final long startNanos = System.nanoTime();
+
+        Timer(LatencyHistogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public void close() {
+            histogram.record(System.nanoTime() - startNanos);
+        }
+    }
+}
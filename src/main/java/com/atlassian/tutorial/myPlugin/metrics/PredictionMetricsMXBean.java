@@ -0,0 +1,24 @@
+package com.atlassian.tutorial.myPlugin.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX-представление {@link PredictionMetrics}: com.atlassian.tutorial.myPlugin:type=PredictionMetrics.
+ * Перцентили - за скользящее окно, счетчики - с момента старта плагина.
+ */
+public interface PredictionMetricsMXBean {
+
+    Map<String, Long> getCounters();
+
+    Map<String, Long> getErrors();
+
+    Map<String, Long> getGauges();
+
+    Map<String, Double> getLatencyP50Millis();
+
+    Map<String, Double> getLatencyP95Millis();
+
+    Map<String, Double> getLatencyP99Millis();
+
+    double getCacheHitRatio();
+}
@@ -0,0 +1,43 @@
+package com.atlassian.tutorial.myPlugin.prompt;
+
+/**
+ * Удаление HTML-тегов из описаний задач за один проход без регулярных выражений.
+ */
+public final class HtmlText {
+
+    private HtmlText() {
+    }
+
+    /**
+     * Текст без тегов (как replaceAll("&lt;[^&gt;]*&gt;", "")) и без ведущих пробелов, не длиннее maxChars.
+     * Разбор останавливается, как только набрано maxChars символов: хвост длинного описания не читается.
+     */
+    public static String strip(String html, int maxChars) {
+        if (html == null || maxChars <= 0) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder(Math.min(html.length(), maxChars));
+        int i = 0;
+        while (i < html.length() && out.length() < maxChars) {
+            char c = html.charAt(i);
+            if (c == '<') {
+                int close = html.indexOf('>', i + 1);
+                if (close >= 0) {
+                    i = close + 1;
+                    continue;
+                }
+                // Незакрытая '<' - обычный символ, как и в регулярном выражении
+            }
+            if (out.length() > 0 || !Character.isWhitespace(c)) {
+                out.append(c);
+            }
+            i++;
+        }
+        int end = out.length();
+        while (end > 0 && Character.isWhitespace(out.charAt(end - 1))) {
+            end--;
+        }
+        out.setLength(end);
+        return out.toString();
+    }
+}
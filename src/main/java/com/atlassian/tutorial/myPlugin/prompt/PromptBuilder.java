@@ -0,0 +1,162 @@
+package com.atlassian.tutorial.myPlugin.prompt;
+
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.fields.CustomField;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Сборка промптов для GigaChat в пределах бюджета токенов. Поля задачи и инструкция входят всегда,
+ * остальное делится так: описанию оставляется минимум, затем добавляются примеры (в порядке похожести),
+ * пока помещаются, а остаток бюджета достается описанию. Куски берутся из {@link PromptFragmentCache}.
+ */
+public class PromptBuilder {
+
+    public static final int DEFAULT_TOKEN_BUDGET = 1500;
+    // Столько описания резервируем до примеров: без него модель оценивает по одному заголовку
+    private static final int MIN_DESCRIPTION_TOKENS = 100;
+
+    private static final String SINGLE_INSTRUCTION = "Ты - эксперт по оценке времени выполнения задач в Jira. Твоя задача - на основе предоставленной информации о задаче дать краткий прогноз времени, необходимого для ее полного выполнения. Ответь только JSON-объектом вида {\"min\": 2, \"max\": 3, \"unit\": \"дни\"}, где min и max - нижняя и верхняя граница оценки, а unit - одно из \"часы\", \"дни\", \"недели\". Не добавляй никаких других объяснений.\n\n";
+    private static final String BATCH_INSTRUCTION = "Ты - эксперт по оценке времени выполнения задач в Jira. Твоя задача - на основе предоставленной информации о задачах дать краткий прогноз времени, необходимого для полного выполнения каждой из них. Ответь только JSON-объектом, где ключ - ключ задачи, а значение - оценка вида {\"min\": 2, \"max\": 3, \"unit\": \"дни\"} (unit - одно из \"часы\", \"дни\", \"недели\"), например {\"ABC-1\": {\"min\": 2, \"max\": 3, \"unit\": \"дни\"}, \"ABC-2\": {\"min\": 4, \"max\": 4, \"unit\": \"часы\"}}. Не добавляй никаких других объяснений.\n";
+    private static final String TARGET_HEADING = "--- Информация об оцениваемой задаче ---\n";
+    private static final String EXAMPLES_HEADING = "\n--- Примеры решенных задач ---\n";
+    private static final String BATCH_TARGETS_HEADING = "\n--- Оцениваемые задачи ---\n";
+    private static final String SINGLE_TRAILER = "\nТвой прогноз времени выполнения в формате JSON:";
+    private static final String DESCRIPTION_LABEL = "Описание: ";
+
+    private final PromptFragmentCache fragments;
+    private volatile int tokenBudget = DEFAULT_TOKEN_BUDGET;
+
+    public PromptBuilder(PromptFragmentCache fragments) {
+        this.fragments = fragments;
+    }
+
+    public void setTokenBudget(int tokenBudget) {
+        this.tokenBudget = tokenBudget > 0 ? tokenBudget : DEFAULT_TOKEN_BUDGET;
+    }
+
+    public int getTokenBudget() {
+        return tokenBudget;
+    }
+
+    public String buildSingle(Issue issue, List<Issue> exampleIssues, CustomField complexityField) {
+        PromptFragmentCache.Fragment target = fragments.get(issue, complexityField);
+        int remaining = tokenBudget - TokenEstimator.estimate(SINGLE_INSTRUCTION) - TokenEstimator.estimate(TARGET_HEADING)
+                - target.getDetailsTokens() - TokenEstimator.estimate(SINGLE_TRAILER);
+
+        int descriptionReserve = Math.min(target.getDescriptionTokens(), MIN_DESCRIPTION_TOKENS);
+        List<PromptFragmentCache.Fragment> examples = chooseExamples(exampleIssues, complexityField, remaining - descriptionReserve);
+        remaining -= examplesTokens(examples);
+
+        StringBuilder prompt = new StringBuilder(SINGLE_INSTRUCTION);
+        prompt.append(TARGET_HEADING);
+        appendTarget(prompt, target, remaining);
+        appendExamples(prompt, examples);
+        prompt.append(SINGLE_TRAILER);
+        return prompt.toString();
+    }
+
+    /**
+     * Пакетный промпт: инструкция и примеры один раз, затем все оцениваемые задачи с ключами.
+     * Бюджет описаний делится между задачами поровну, недобор коротких описаний достается длинным.
+     */
+    public String buildBatch(List<Issue> issues, List<Issue> exampleIssues, CustomField complexityField) {
+        String trailer = "\nТвой JSON с прогнозами для всех " + issues.size() + " задач:";
+        int remaining = tokenBudget - TokenEstimator.estimate(BATCH_INSTRUCTION) - TokenEstimator.estimate(BATCH_TARGETS_HEADING)
+                - TokenEstimator.estimate(trailer);
+
+        List<PromptFragmentCache.Fragment> targets = new ArrayList<>(issues.size());
+        int descriptionReserve = 0;
+        for (Issue issue : issues) {
+            PromptFragmentCache.Fragment target = fragments.get(issue, complexityField);
+            targets.add(target);
+            remaining -= TokenEstimator.estimate(keyLine(issue)) + target.getDetailsTokens();
+            descriptionReserve += Math.min(target.getDescriptionTokens(), MIN_DESCRIPTION_TOKENS);
+        }
+        List<PromptFragmentCache.Fragment> examples = chooseExamples(exampleIssues, complexityField, remaining - descriptionReserve);
+        remaining -= examplesTokens(examples);
+        int[] descriptionBudgets = shareDescriptionBudget(targets, remaining);
+
+        StringBuilder prompt = new StringBuilder(BATCH_INSTRUCTION);
+        appendExamples(prompt, examples);
+        prompt.append(BATCH_TARGETS_HEADING);
+        for (int i = 0; i < issues.size(); i++) {
+            prompt.append(keyLine(issues.get(i)));
+            appendTarget(prompt, targets.get(i), descriptionBudgets[i]);
+        }
+        prompt.append(trailer);
+        return prompt.toString();
+    }
+
+    private List<PromptFragmentCache.Fragment> chooseExamples(List<Issue> exampleIssues, CustomField complexityField, int budget) {
+        List<PromptFragmentCache.Fragment> chosen = new ArrayList<>();
+        if (exampleIssues == null || exampleIssues.isEmpty()) {
+            return chosen;
+        }
+        int remaining = budget - TokenEstimator.estimate(EXAMPLES_HEADING);
+        for (Issue example : exampleIssues) {
+            PromptFragmentCache.Fragment fragment = fragments.get(example, complexityField);
+            if (fragment.getExampleTokens() > remaining) {
+                // Примеры идут от самых похожих, поэтому на первом непоместившемся останавливаемся
+                break;
+            }
+            chosen.add(fragment);
+            remaining -= fragment.getExampleTokens();
+        }
+        return chosen;
+    }
+
+    private static int examplesTokens(List<PromptFragmentCache.Fragment> examples) {
+        if (examples.isEmpty()) {
+            return 0;
+        }
+        int tokens = TokenEstimator.estimate(EXAMPLES_HEADING);
+        for (PromptFragmentCache.Fragment example : examples) {
+            tokens += example.getExampleTokens();
+        }
+        return tokens;
+    }
+
+    // Поровну на задачу; если описанию столько не нужно, остаток делится между оставшимися
+    private static int[] shareDescriptionBudget(List<PromptFragmentCache.Fragment> targets, int budget) {
+        int[] budgets = new int[targets.size()];
+        Integer[] order = new Integer[targets.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(targets.get(a).getDescriptionTokens(), targets.get(b).getDescriptionTokens()));
+        int remaining = Math.max(0, budget);
+        for (int k = 0; k < order.length; k++) {
+            int share = remaining / (order.length - k);
+            int index = order[k];
+            budgets[index] = Math.min(share, targets.get(index).getDescriptionTokens());
+            remaining -= budgets[index];
+        }
+        return budgets;
+    }
+
+    private static void appendTarget(StringBuilder prompt, PromptFragmentCache.Fragment target, int descriptionBudget) {
+        prompt.append(target.getSummaryLine());
+        String description = TokenEstimator.truncate(target.getDescription(), descriptionBudget);
+        if (!description.isEmpty()) {
+            prompt.append(DESCRIPTION_LABEL).append(description).append("\n");
+        }
+        prompt.append(target.getAttributeLines());
+    }
+
+    private static void appendExamples(StringBuilder prompt, List<PromptFragmentCache.Fragment> examples) {
+        if (examples.isEmpty()) {
+            return;
+        }
+        prompt.append(EXAMPLES_HEADING);
+        for (PromptFragmentCache.Fragment example : examples) {
+            prompt.append(example.getExample());
+        }
+    }
+
+    private static String keyLine(Issue issue) {
+        return "\nКлюч: " + issue.getKey() + "\n";
+    }
+}
@@ -0,0 +1,150 @@
+package com.atlassian.tutorial.myPlugin.prompt;
+
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.fields.CustomField;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Готовые куски промпта по задаче: строки с полями, очищенное от HTML описание и блок примера.
+ * Одни и те же решенные задачи попадают в примеры снова и снова, поэтому их не разбираем каждый раз.
+ * Запись действительна, пока не изменилась дата обновления задачи; IssueEventListener
+ * дополнительно выбрасывает ее при любом событии задачи.
+ */
+public class PromptFragmentCache {
+
+    // Длиннее описание в промпт не попадет ни при каком бюджете
+    public static final int MAX_DESCRIPTION_CHARS = 2000;
+    private static final int DEFAULT_CAPACITY = 2000;
+
+    private final Map<Long, Fragment> fragments;
+
+    public PromptFragmentCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PromptFragmentCache(final int capacity) {
+        this.fragments = new LinkedHashMap<Long, Fragment>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Fragment> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public Fragment get(Issue issue, CustomField complexityField) {
+        long version = issue.getUpdated() != null ? issue.getUpdated().getTime() : 0L;
+        synchronized (fragments) {
+            Fragment cached = fragments.get(issue.getId());
+            if (cached != null && cached.version == version) {
+                return cached;
+            }
+        }
+        Fragment fragment = Fragment.of(issue, complexityField, version);
+        synchronized (fragments) {
+            fragments.put(issue.getId(), fragment);
+        }
+        return fragment;
+    }
+
+    public void invalidate(Long issueId) {
+        synchronized (fragments) {
+            fragments.remove(issueId);
+        }
+    }
+
+    public int size() {
+        synchronized (fragments) {
+            return fragments.size();
+        }
+    }
+
+    /**
+     * Куски промпта одной задачи с заранее посчитанным числом токенов.
+     */
+    public static final class Fragment {
+        private final long version;
+        private final String summaryLine;
+        private final String attributeLines;
+        private final String description;
+        private final String example;
+        private final int detailsTokens;
+        private final int descriptionTokens;
+        private final int exampleTokens;
+
+        private Fragment(long version, String summaryLine, String attributeLines, String description, String example) {
+            this.version = version;
+            this.summaryLine = summaryLine;
+            this.attributeLines = attributeLines;
+            this.description = description;
+            this.example = example;
+            this.detailsTokens = TokenEstimator.estimate(summaryLine) + TokenEstimator.estimate(attributeLines);
+            this.descriptionTokens = TokenEstimator.estimate(description);
+            this.exampleTokens = TokenEstimator.estimate(example);
+        }
+
+        static Fragment of(Issue issue, CustomField complexityField, long version) {
+            String summaryLine = "Заголовок: " + issue.getSummary() + "\n";
+
+            StringBuilder attributes = new StringBuilder();
+            attributes.append("Тип: ").append(issue.getIssueType().getName()).append("\n");
+            if (issue.getPriority() != null) {
+                attributes.append("Приоритет: ").append(issue.getPriority().getName()).append("\n");
+            }
+            Object complexity = complexityField != null ? issue.getCustomFieldValue(complexityField) : null;
+            if (complexityField != null) {
+                attributes.append("Уровень сложности (1-10): ").append(complexity != null ? complexity.toString() : "Не указан").append("\n");
+            }
+
+            return new Fragment(version, summaryLine, attributes.toString(),
+                    HtmlText.strip(issue.getDescription(), MAX_DESCRIPTION_CHARS),
+                    exampleBlock(issue, complexityField != null ? complexity : "N/A"));
+        }
+
+        private static String exampleBlock(Issue issue, Object complexity) {
+            StringBuilder block = new StringBuilder();
+            block.append("\nЗадача: ").append(issue.getSummary()).append("\n");
+            block.append("Сложность: ").append(complexity).append("\n");
+            if (issue.getResolutionDate() != null && issue.getCreated() != null) {
+                long durationMillis = issue.getResolutionDate().getTime() - issue.getCreated().getTime();
+                long days = TimeUnit.MILLISECONDS.toDays(durationMillis);
+                long hours = TimeUnit.MILLISECONDS.toHours(durationMillis - TimeUnit.DAYS.toMillis(days));
+                block.append("Фактическое время: ").append(days > 0 ? days + " дн. " : "").append(hours).append(" ч.\n");
+            }
+            return block.toString();
+        }
+
+        public String getSummaryLine() {
+            return summaryLine;
+        }
+
+        public String getAttributeLines() {
+            return attributeLines;
+        }
+
+        /**
+         * Описание без HTML, не длиннее {@link #MAX_DESCRIPTION_CHARS}; пустая строка, если его нет.
+         */
+        public String getDescription() {
+            return description;
+        }
+
+        public String getExample() {
+            return example;
+        }
+
+        public int getDetailsTokens() {
+            return detailsTokens;
+        }
+
+        public int getDescriptionTokens() {
+            return descriptionTokens;
+        }
+
+        public int getExampleTokens() {
+            return exampleTokens;
+        }
+    }
+}
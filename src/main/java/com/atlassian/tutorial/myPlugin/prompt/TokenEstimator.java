@@ -0,0 +1,56 @@
+package com.atlassian.tutorial.myPlugin.prompt;
+
+/**
+ * Грубая оценка числа токенов GigaChat без токенизатора: в среднем ~3 символа кириллицы
+ * или ~4 символа латиницы, цифр и знаков на токен, пробелы почти не стоят ничего.
+ * Ошибка в пределах 15-20%, для выбора объема промпта этого достаточно.
+ */
+public final class TokenEstimator {
+
+    // Вес символа в двенадцатых долях токена, чтобы считать в целых числах
+    private static final int UNITS_PER_TOKEN = 12;
+    private static final int CYRILLIC_WEIGHT = UNITS_PER_TOKEN / 3;
+    private static final int OTHER_WEIGHT = UNITS_PER_TOKEN / 4;
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+        long units = 0;
+        for (int i = 0; i < text.length(); i++) {
+            units += weight(text.charAt(i));
+        }
+        return (int) ((units + UNITS_PER_TOKEN - 1) / UNITS_PER_TOKEN);
+    }
+
+    /**
+     * Самое длинное начало текста, укладывающееся в maxTokens.
+     */
+    public static String truncate(String text, int maxTokens) {
+        if (text == null || maxTokens <= 0) {
+            return "";
+        }
+        long maxUnits = (long) maxTokens * UNITS_PER_TOKEN;
+        long units = 0;
+        for (int i = 0; i < text.length(); i++) {
+            units += weight(text.charAt(i));
+            if (units > maxUnits) {
+                return text.substring(0, i).trim();
+            }
+        }
+        return text;
+    }
+
+    private static int weight(char c) {
+        if (Character.isWhitespace(c)) {
+            return 0;
+        }
+        if (Character.UnicodeBlock.of(c) == Character.UnicodeBlock.CYRILLIC) {
+            return CYRILLIC_WEIGHT;
+        }
+        return OTHER_WEIGHT;
+    }
+}
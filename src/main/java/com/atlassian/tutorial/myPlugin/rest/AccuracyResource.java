@@ -0,0 +1,94 @@
+package com.atlassian.tutorial.myPlugin.rest;
+
+import com.atlassian.jira.component.ComponentAccessor;
+import com.atlassian.jira.permission.GlobalPermissionKey;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.tutorial.myPlugin.store.AccuracyEntry;
+import com.atlassian.tutorial.myPlugin.store.PredictionAccuracyStore;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+
+/**
+ * REST для страницы аналитики: пары "прогноз - факт" страницами.
+ * GET /rest/jirapredict/1.0/accuracy?project=ABC&complexity=5&from=2024-01-01&to=2024-03-31&offset=0&limit=100
+ */
+@Path("/accuracy")
+@Produces(MediaType.APPLICATION_JSON)
+public class AccuracyResource {
+
+    private static final int MAX_LIMIT = 500;
+
+    private final PredictionAccuracyStore accuracyStore;
+
+    public AccuracyResource(PredictionAccuracyStore accuracyStore) {
+        this.accuracyStore = accuracyStore;
+    }
+
+    @GET
+    public Response find(@QueryParam("project") String projectKey,
+                         @QueryParam("complexity") String complexity,
+                         @QueryParam("from") String from,
+                         @QueryParam("to") String to,
+                         @QueryParam("offset") @DefaultValue("0") int offset,
+                         @QueryParam("limit") @DefaultValue("100") int limit) {
+        // Данные сразу по всем проектам, как и на странице аналитики в админке
+        ApplicationUser user = ComponentAccessor.getJiraAuthenticationContext().getLoggedInUser();
+        if (user == null || !ComponentAccessor.getGlobalPermissionManager().hasPermission(GlobalPermissionKey.ADMINISTER, user)) {
+            return Response.status(Response.Status.FORBIDDEN).build();
+        }
+
+        Long fromMillis;
+        Long toMillis;
+        try {
+            fromMillis = startOfDay(from, 0);
+            toMillis = startOfDay(to, 1);
+            if (toMillis != null) {
+                toMillis--;
+            }
+        } catch (DateTimeParseException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity("Даты ожидаются в формате yyyy-MM-dd").build();
+        }
+        int safeOffset = Math.max(0, offset);
+        int safeLimit = Math.max(1, Math.min(limit, MAX_LIMIT));
+
+        JSONArray items = new JSONArray();
+        for (AccuracyEntry entry : accuracyStore.find(projectKey, complexity, fromMillis, toMillis, safeOffset, safeLimit)) {
+            JSONObject item = new JSONObject();
+            item.put("issueKey", entry.getIssueKey());
+            item.put("projectKey", entry.getProjectKey());
+            item.put("complexity", entry.getComplexity());
+            item.put("resolvedAt", entry.getResolvedAt());
+            item.put("actualHours", entry.getActualHours());
+            item.put("predictedHours", entry.getPredictedHours());
+            item.put("errorHours", entry.getErrorHours());
+            items.put(item);
+        }
+
+        JSONObject json = new JSONObject();
+        json.put("total", accuracyStore.count(projectKey, complexity, fromMillis, toMillis));
+        json.put("offset", safeOffset);
+        json.put("limit", safeLimit);
+        json.put("items", items);
+        return Response.ok(json.toString()).build();
+    }
+
+    // Граница "to" включает весь указанный день, поэтому берем начало следующего
+    private static Long startOfDay(String date, int plusDays) {
+        if (date == null || date.trim().isEmpty()) {
+            return null;
+        }
+        return LocalDate.parse(date.trim()).plusDays(plusDays).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
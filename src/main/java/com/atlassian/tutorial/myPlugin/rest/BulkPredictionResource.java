@@ -0,0 +1,264 @@
+package com.atlassian.tutorial.myPlugin.rest;
+
+import com.atlassian.jira.bc.issue.search.SearchService;
+import com.atlassian.jira.component.ComponentAccessor;
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.fields.CustomField;
+import com.atlassian.jira.issue.search.SearchException;
+import com.atlassian.jira.issue.search.SearchResults;
+import com.atlassian.jira.permission.ProjectPermissions;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.jira.web.bean.PagerFilter;
+import com.atlassian.tutorial.myPlugin.batch.PredictionPrecomputeJob;
+import com.atlassian.tutorial.myPlugin.service.DurationParser;
+import com.atlassian.tutorial.myPlugin.service.GeminiPredictionService;
+import com.atlassian.tutorial.myPlugin.service.PredictionCache;
+import com.atlassian.tutorial.myPlugin.stats.DurationStats;
+import com.atlassian.tutorial.myPlugin.stats.IssueSample;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * REST для доски и бэклога: прогнозы сразу по многим задачам одним ответом.
+ * GET /rest/jirapredict/1.0/predictions?jql=...&keys=ABC-1,ABC-2
+ * POST /rest/jirapredict/1.0/predictions с {"keys": [...], "jql": "..."}
+ *
+ * Модель здесь не вызывается: отдается последний сохраненный прогноз, а задачи без прогноза ставятся в очередь
+ * {@link PredictionPrecomputeJob}. Ответ - NDJSON, по строке на задачу, строки уходят клиенту сразу.
+ * Последняя строка - итог с "done": true. Поток Tomcat не ждет досчета: за прогнозами из очереди
+ * клиент приходит повторным запросом.
+ */
+@Path("/predictions")
+public class BulkPredictionResource {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    // Больше задач на доске не бывает, а очередь не должна разом получать тысячи задач
+    private static final int MAX_ISSUES = 500;
+    private static final int SEARCH_PAGE_SIZE = 100;
+
+    // Прогноз свежий; прогноз есть, но входные данные изменились и задача стоит в очереди;
+    // прогноза нет, задача поставлена в очередь; прогноза нет и считать его в фоне не будем (локальная модель или модель недоступна)
+    enum Status { CACHED, STALE, QUEUED, NONE }
+
+    private final GeminiPredictionService geminiService;
+    private final PredictionPrecomputeJob precomputeJob;
+
+    public BulkPredictionResource(GeminiPredictionService geminiService, PredictionPrecomputeJob precomputeJob) {
+        this.geminiService = geminiService;
+        this.precomputeJob = precomputeJob;
+    }
+
+    @GET
+    @Produces(NDJSON)
+    public Response get(@QueryParam("jql") String jql,
+                        @QueryParam("keys") String keys) {
+        List<String> issueKeys = new ArrayList<>();
+        if (keys != null) {
+            for (String key : keys.split(",")) {
+                if (!key.trim().isEmpty()) {
+                    issueKeys.add(key.trim());
+                }
+            }
+        }
+        return predictions(jql, issueKeys);
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(NDJSON)
+    public Response post(String body) {
+        JSONObject request;
+        try {
+            request = new JSONObject(body);
+        } catch (JSONException e) {
+            return badRequest("Ожидается JSON вида {\"keys\": [...], \"jql\": \"...\"}");
+        }
+        List<String> issueKeys = new ArrayList<>();
+        JSONArray keys = request.optJSONArray("keys");
+        if (keys != null) {
+            try {
+                for (int i = 0; i < keys.length(); i++) {
+                    issueKeys.add(keys.getString(i));
+                }
+            } catch (JSONException e) {
+                return badRequest("Ключи задач ожидаются строками");
+            }
+        }
+        return predictions(request.optString("jql", null), issueKeys);
+    }
+
+    private Response predictions(String jql, List<String> issueKeys) {
+        ApplicationUser user = ComponentAccessor.getJiraAuthenticationContext().getLoggedInUser();
+        if (user == null) {
+            return Response.status(Response.Status.UNAUTHORIZED).build();
+        }
+        boolean hasJql = jql != null && !jql.trim().isEmpty();
+        if (!hasJql && issueKeys.isEmpty()) {
+            return badRequest("Нужен параметр keys или jql");
+        }
+        if (issueKeys.size() > MAX_ISSUES) {
+            return badRequest("Не больше " + MAX_ISSUES + " задач за запрос");
+        }
+
+        // Ключ -> задача; null - задачи нет или нет прав на просмотр, клиенту это одно и то же
+        Map<String, Issue> issues = new LinkedHashMap<>();
+        for (String key : issueKeys) {
+            Issue issue = ComponentAccessor.getIssueManager().getIssueObject(key);
+            boolean visible = issue != null && ComponentAccessor.getPermissionManager().hasPermission(ProjectPermissions.BROWSE_PROJECTS, issue, user);
+            issues.put(key, visible ? issue : null);
+        }
+        if (hasJql) {
+            try {
+                for (Issue issue : search(jql, user, MAX_ISSUES - issues.size())) {
+                    issues.putIfAbsent(issue.getKey(), issue);
+                }
+            } catch (IllegalArgumentException e) {
+                return badRequest(e.getMessage());
+            } catch (SearchException e) {
+                return badRequest("Ошибка поиска: " + e.getMessage());
+            }
+        }
+
+        StreamingOutput stream = output -> write(issues, output);
+        return Response.ok(stream, NDJSON).header("Cache-Control", "no-cache").header("X-Accel-Buffering", "no").build();
+    }
+
+    private void write(Map<String, Issue> issues, OutputStream output) throws IOException {
+        Writer out = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+        CustomField complexityField = ComponentAccessor.getCustomFieldManager().getCustomFieldObject(GeminiPredictionService.COMPLEXITY_FIELD_ID);
+        DurationParser durationParser = geminiService.getConfig().getDurationParser();
+
+        List<Long> issueIds = new ArrayList<>();
+        for (Issue issue : issues.values()) {
+            if (issue != null) {
+                issueIds.add(issue.getId());
+            }
+        }
+        // По одному запросу к базе на все задачи, а не по запросу на задачу
+        Set<Long> queued = precomputeJob.findQueued(issueIds);
+        Map<Long, PredictionCache.CachedPrediction> predictions = geminiService.getCachedPredictions(issueIds);
+
+        Map<Status, Integer> totals = new LinkedHashMap<>();
+        int notFound = 0;
+        for (Map.Entry<String, Issue> entry : issues.entrySet()) {
+            Issue issue = entry.getValue();
+            if (issue == null) {
+                notFound++;
+                writeLine(out, new JSONObject().put("issueKey", entry.getKey()).put("status", "NOT_FOUND"));
+                continue;
+            }
+            PredictionCache.CachedPrediction cached = predictions.get(issue.getId());
+            Status status;
+            if (cached != null) {
+                status = queued.contains(issue.getId()) ? Status.STALE : Status.CACHED;
+            } else if (queued.contains(issue.getId())) {
+                status = Status.QUEUED;
+            } else if (issue.getResolutionDate() == null && geminiService.isPrecomputable(issue)) {
+                precomputeJob.enqueueNow(issue);
+                status = Status.QUEUED;
+            } else {
+                status = Status.NONE;
+            }
+            totals.merge(status, 1, Integer::sum);
+            writeLine(out, issueJson(issue, status, cached, complexityField, durationParser));
+        }
+
+        JSONObject summary = new JSONObject().put("done", true).put("total", issues.size()).put("notFound", notFound);
+        for (Status status : Status.values()) {
+            summary.put(status.name().toLowerCase(), totals.getOrDefault(status, 0));
+        }
+        writeLine(out, summary);
+    }
+
+    private JSONObject issueJson(Issue issue, Status status, PredictionCache.CachedPrediction cached,
+                                 CustomField complexityField, DurationParser durationParser) {
+        JSONObject json = new JSONObject();
+        json.put("issueKey", issue.getKey());
+        json.put("status", status.name());
+        if (cached != null) {
+            json.put("prediction", cached.getPrediction());
+            if (cached.getCreatedAt() > 0) {
+                json.put("predictedAt", cached.getCreatedAt());
+            }
+            DurationParser.Result duration = durationParser.parse(cached.getPrediction());
+            if (duration != null) {
+                json.put("predictedHours", duration.getHours());
+            }
+        }
+        if (complexityField != null) {
+            String complexity = IssueSample.complexityValue(issue.getCustomFieldValue(complexityField));
+            if (complexity != null) {
+                json.put("complexity", complexity);
+            }
+        }
+        // Статистика - агрегат в памяти, на задачу это поиск в карте
+        DurationStats stats = geminiService.getComplexityStats(issue);
+        if (stats != null && stats.getCount() > 0) {
+            json.put("sampleCount", stats.getCount());
+            json.put("averageHours", hours(stats.getAverageMillis()));
+            json.put("p50Hours", hours(stats.getPercentileMillis(0.5)));
+            json.put("p80Hours", hours(stats.getPercentileMillis(0.8)));
+            json.put("p95Hours", hours(stats.getPercentileMillis(0.95)));
+        }
+        return json;
+    }
+
+    private static List<Issue> search(String jql, ApplicationUser user, int limit) throws SearchException {
+        SearchService searchService = ComponentAccessor.getOSGiComponentInstanceOfType(SearchService.class);
+        SearchService.ParseResult parseResult = searchService.parseQuery(user, jql);
+        if (!parseResult.isValid()) {
+            throw new IllegalArgumentException("Некорректный JQL: " + parseResult.getErrors().getErrorMessages());
+        }
+        List<Issue> issues = new ArrayList<>();
+        for (int start = 0; issues.size() < limit; start += SEARCH_PAGE_SIZE) {
+            SearchResults results = searchService.search(user, parseResult.getQuery(), new PagerFilter<>(start, SEARCH_PAGE_SIZE));
+            List<Issue> page = results.getIssues();
+            for (Issue issue : page) {
+                if (issues.size() < limit) {
+                    issues.add(issue);
+                }
+            }
+            if (page.size() < SEARCH_PAGE_SIZE) {
+                break;
+            }
+        }
+        return issues;
+    }
+
+    private static void writeLine(Writer out, JSONObject json) throws IOException {
+        out.write(json.toString());
+        out.write('\n');
+        out.flush();
+    }
+
+    private static double hours(long millis) {
+        return Math.round(millis / 360_000.0) / 10.0;
+    }
+
+    private static Response badRequest(String message) {
+        return Response.status(Response.Status.BAD_REQUEST).entity(message).type(MediaType.TEXT_PLAIN).build();
+    }
+}
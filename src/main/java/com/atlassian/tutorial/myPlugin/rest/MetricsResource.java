@@ -0,0 +1,59 @@
+package com.atlassian.tutorial.myPlugin.rest;
+
+import com.atlassian.jira.component.ComponentAccessor;
+import com.atlassian.jira.permission.GlobalPermissionKey;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.tutorial.myPlugin.metrics.LatencyHistogram;
+import com.atlassian.tutorial.myPlugin.metrics.PredictionMetrics;
+
+import org.json.JSONObject;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * Метрики конвейера прогноза для мониторинга: GET /rest/jirapredict/1.0/metrics.
+ * То же самое доступно по JMX ({@link PredictionMetrics#OBJECT_NAME}).
+ */
+@Path("/metrics")
+@Produces(MediaType.APPLICATION_JSON)
+public class MetricsResource {
+
+    private final PredictionMetrics metrics;
+
+    public MetricsResource(PredictionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @GET
+    public Response get() {
+        ApplicationUser user = ComponentAccessor.getJiraAuthenticationContext().getLoggedInUser();
+        if (user == null || !ComponentAccessor.getGlobalPermissionManager().hasPermission(GlobalPermissionKey.ADMINISTER, user)) {
+            return Response.status(Response.Status.FORBIDDEN).build();
+        }
+
+        JSONObject stages = new JSONObject();
+        for (PredictionMetrics.Stage stage : PredictionMetrics.Stage.values()) {
+            LatencyHistogram.Snapshot latency = metrics.getLatency(stage);
+            stages.put(stage.name(), new JSONObject()
+                    .put("count", latency.getTotalCount())
+                    .put("meanMillis", latency.getMeanMillis())
+                    .put("windowCount", latency.getWindowCount())
+                    .put("p50Millis", latency.getPercentileMillis(0.5))
+                    .put("p95Millis", latency.getPercentileMillis(0.95))
+                    .put("p99Millis", latency.getPercentileMillis(0.99)));
+        }
+
+        JSONObject json = new JSONObject();
+        json.put("windowSeconds", metrics.getWindowMillis() / 1000);
+        json.put("stages", stages);
+        json.put("counters", metrics.getCounters());
+        json.put("cacheHitRatio", metrics.getCacheHitRatio());
+        json.put("errors", metrics.getErrors());
+        json.put("gauges", metrics.getGauges());
+        return Response.ok(json.toString()).build();
+    }
+}
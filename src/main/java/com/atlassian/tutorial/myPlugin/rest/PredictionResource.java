@@ -0,0 +1,56 @@
+package com.atlassian.tutorial.myPlugin.rest;
+
+import com.atlassian.jira.component.ComponentAccessor;
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.permission.ProjectPermissions;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.tutorial.myPlugin.service.PredictionExecutor;
+
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * REST для панели задачи: отдает фоновый прогноз AI.
+ * GET /rest/jirapredict/1.0/prediction/{issueKey}?wait=N - ждет результат до N секунд (long-poll).
+ */
+@Path("/prediction")
+@Produces(MediaType.APPLICATION_JSON)
+public class PredictionResource {
+
+    // Не держим поток Tomcat дольше этого, JS просто повторит запрос
+    private static final int MAX_WAIT_SECONDS = 20;
+
+    private final PredictionExecutor predictionExecutor;
+
+    public PredictionResource(PredictionExecutor predictionExecutor) {
+        this.predictionExecutor = predictionExecutor;
+    }
+
+    @GET
+    @Path("/{issueKey}")
+    public Response getPrediction(@PathParam("issueKey") String issueKey,
+                                  @QueryParam("wait") @DefaultValue("0") int waitSeconds) {
+        ApplicationUser user = ComponentAccessor.getJiraAuthenticationContext().getLoggedInUser();
+        Issue issue = ComponentAccessor.getIssueManager().getIssueObject(issueKey);
+        if (issue == null || !ComponentAccessor.getPermissionManager().hasPermission(ProjectPermissions.BROWSE_PROJECTS, issue, user)) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+
+        PredictionExecutor.PredictionTask task = predictionExecutor.getTask(issue.getId());
+        if (task == null) {
+            // Например, после перезапуска Jira или если результат уже вытеснен
+            task = predictionExecutor.submit(issue, user);
+        }
+
+        int wait = Math.max(0, Math.min(waitSeconds, MAX_WAIT_SECONDS));
+        task.await(wait, TimeUnit.SECONDS);
+        return Response.ok(task.toJson(user).toString()).build();
+    }
+}
@@ -0,0 +1,100 @@
+package com.atlassian.tutorial.myPlugin.retrieval;
+
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.fields.CustomField;
+import com.atlassian.tutorial.myPlugin.stats.IssueSample;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Решенная задача в {@link ExampleIndex}: частоты термов заголовка и описания плюс атрибуты для ранжирования.
+ */
+public final class ExampleDocument {
+
+    // В промпт идет не больше 500 символов описания, индексировать больше смысла нет
+    private static final int MAX_DESCRIPTION_LENGTH = 500;
+
+    private final Long issueId;
+    private final String projectKey;
+    private final String issueTypeId;
+    private final String complexity;
+    private final long resolvedAt;
+    private final Map<String, Integer> termFrequencies;
+    private final int length;
+
+    public ExampleDocument(Long issueId, String projectKey, String issueTypeId, String complexity, long resolvedAt, String text) {
+        this.issueId = issueId;
+        this.projectKey = projectKey;
+        this.issueTypeId = issueTypeId;
+        this.complexity = complexity;
+        this.resolvedAt = resolvedAt;
+        Map<String, Integer> frequencies = new HashMap<>();
+        int count = 0;
+        for (String token : Tokenizer.tokenize(text)) {
+            frequencies.merge(token, 1, Integer::sum);
+            count++;
+        }
+        this.termFrequencies = Collections.unmodifiableMap(frequencies);
+        this.length = count;
+    }
+
+    /**
+     * Документ по задаче или null, если задача еще не решена.
+     */
+    public static ExampleDocument of(Issue issue, CustomField complexityField) {
+        if (issue == null || issue.getResolutionDate() == null || issue.getProjectObject() == null) {
+            return null;
+        }
+        return from(issue, complexityField, issue.getResolutionDate().getTime());
+    }
+
+    /**
+     * Поисковый запрос по оцениваемой (обычно еще не решенной) задаче.
+     */
+    public static ExampleDocument query(Issue issue, CustomField complexityField) {
+        return from(issue, complexityField, 0L);
+    }
+
+    private static ExampleDocument from(Issue issue, CustomField complexityField, long resolvedAt) {
+        String description = issue.getDescription();
+        if (description != null && description.length() > MAX_DESCRIPTION_LENGTH) {
+            description = description.substring(0, MAX_DESCRIPTION_LENGTH);
+        }
+        return new ExampleDocument(issue.getId(),
+                issue.getProjectObject() != null ? issue.getProjectObject().getKey() : null,
+                issue.getIssueType() != null ? issue.getIssueType().getId() : null,
+                complexityField != null ? IssueSample.complexityValue(issue.getCustomFieldValue(complexityField)) : null,
+                resolvedAt,
+                issue.getSummary() + " " + (description != null ? description : ""));
+    }
+
+    public Long getIssueId() {
+        return issueId;
+    }
+
+    public String getProjectKey() {
+        return projectKey;
+    }
+
+    public String getIssueTypeId() {
+        return issueTypeId;
+    }
+
+    public String getComplexity() {
+        return complexity;
+    }
+
+    public long getResolvedAt() {
+        return resolvedAt;
+    }
+
+    public Map<String, Integer> getTermFrequencies() {
+        return termFrequencies;
+    }
+
+    public int getLength() {
+        return length;
+    }
+}
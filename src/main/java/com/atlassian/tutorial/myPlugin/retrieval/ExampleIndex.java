@@ -0,0 +1,245 @@
+package com.atlassian.tutorial.myPlugin.retrieval;
+
+import com.atlassian.tutorial.myPlugin.stats.RebuildLog;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Локальный индекс решенных задач для подбора примеров в промпт: BM25 по заголовку и описанию
+ * внутри проекта плюс бонус за совпадение сложности и типа. Поиск идет по спискам термов в памяти,
+ * без JQL и индекса Jira. Индекс обновляется по событиям задач, а полный пересчет
+ * ({@link #rebuild}) работает так же, как у статистики: новое состояние собирается в стороне,
+ * события за время пересчета накатываются поверх.
+ */
+public class ExampleIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double COMPLEXITY_BOOST = 1.5;
+    private static final double ISSUE_TYPE_BOOST = 0.5;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private State state = new State();
+    private volatile boolean ready;
+    private final RebuildLog rebuildLog = new RebuildLog();
+
+    /**
+     * Добавляет решенную задачу, заменяя ее прежнюю версию.
+     */
+    public void record(final ExampleDocument document) {
+        lock.writeLock().lock();
+        try {
+            state.record(document);
+            rebuildLog.add(() -> state.record(document));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Убирает задачу: ее переоткрыли или удалили.
+     */
+    public void remove(final Long issueId) {
+        lock.writeLock().lock();
+        try {
+            state.remove(issueId);
+            rebuildLog.add(() -> state.remove(issueId));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void rebuild(Iterable<ExampleDocument> documents) {
+        lock.writeLock().lock();
+        try {
+            rebuildLog.start();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        State fresh = new State();
+        try {
+            for (ExampleDocument document : documents) {
+                fresh.record(document);
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                rebuildLog.abort();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            state = fresh;
+            rebuildLog.replay();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * До {@code limit} самых похожих решенных задач того же проекта, что и запрос, лучшие первыми.
+     * Если похожих по тексту мало, список добивается недавно решенными задачами.
+     */
+    public List<Long> findSimilar(ExampleDocument query, Collection<Long> excludeIds, int limit) {
+        lock.readLock().lock();
+        try {
+            ProjectIndex project = state.projects.get(query.getProjectKey());
+            if (project == null || limit <= 0) {
+                return Collections.emptyList();
+            }
+            Map<Long, Double> scores = project.score(query);
+            List<ExampleDocument> ranked = new ArrayList<>();
+            for (Long issueId : scores.keySet()) {
+                if (!excludeIds.contains(issueId)) {
+                    ranked.add(project.documents.get(issueId));
+                }
+            }
+            ranked.sort(Comparator.<ExampleDocument>comparingDouble(d -> scores.get(d.getIssueId())).reversed()
+                    .thenComparing(Comparator.comparingLong(ExampleDocument::getResolvedAt).reversed()));
+
+            List<Long> result = new ArrayList<>(limit);
+            for (int i = 0; i < ranked.size() && result.size() < limit; i++) {
+                result.add(ranked.get(i).getIssueId());
+            }
+            if (result.size() < limit) {
+                fillWithRecent(project, query, excludeIds, result, limit);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return state.projectByIssue.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void fillWithRecent(ProjectIndex project, ExampleDocument query, Collection<Long> excludeIds,
+                                       List<Long> result, int limit) {
+        List<ExampleDocument> recent = new ArrayList<>(project.documents.values());
+        recent.sort(Comparator.comparingDouble((ExampleDocument d) -> attributeBoost(query, d)).reversed()
+                .thenComparing(Comparator.comparingLong(ExampleDocument::getResolvedAt).reversed()));
+        for (ExampleDocument document : recent) {
+            if (result.size() >= limit) {
+                break;
+            }
+            if (!excludeIds.contains(document.getIssueId()) && !result.contains(document.getIssueId())) {
+                result.add(document.getIssueId());
+            }
+        }
+    }
+
+    private static double attributeBoost(ExampleDocument query, ExampleDocument document) {
+        double boost = 0;
+        if (query.getComplexity() != null && query.getComplexity().equals(document.getComplexity())) {
+            boost += COMPLEXITY_BOOST;
+        }
+        if (query.getIssueTypeId() != null && query.getIssueTypeId().equals(document.getIssueTypeId())) {
+            boost += ISSUE_TYPE_BOOST;
+        }
+        return boost;
+    }
+
+    private static class State {
+        private final Map<String, ProjectIndex> projects = new HashMap<>();
+        private final Map<Long, String> projectByIssue = new HashMap<>();
+
+        void record(ExampleDocument document) {
+            remove(document.getIssueId());
+            projects.computeIfAbsent(document.getProjectKey(), k -> new ProjectIndex()).add(document);
+            projectByIssue.put(document.getIssueId(), document.getProjectKey());
+        }
+
+        void remove(Long issueId) {
+            String projectKey = projectByIssue.remove(issueId);
+            if (projectKey != null) {
+                ProjectIndex project = projects.get(projectKey);
+                project.remove(issueId);
+                if (project.documents.isEmpty()) {
+                    projects.remove(projectKey);
+                }
+            }
+        }
+    }
+
+    /**
+     * Инвертированный индекс одного проекта: терм -> задачи, в которых он встречается.
+     */
+    private static class ProjectIndex {
+        private final Map<Long, ExampleDocument> documents = new HashMap<>();
+        private final Map<String, Set<Long>> postings = new HashMap<>();
+        private long totalLength;
+
+        void add(ExampleDocument document) {
+            documents.put(document.getIssueId(), document);
+            totalLength += document.getLength();
+            for (String term : document.getTermFrequencies().keySet()) {
+                postings.computeIfAbsent(term, k -> new HashSet<>()).add(document.getIssueId());
+            }
+        }
+
+        void remove(Long issueId) {
+            ExampleDocument document = documents.remove(issueId);
+            if (document == null) {
+                return;
+            }
+            totalLength -= document.getLength();
+            for (String term : document.getTermFrequencies().keySet()) {
+                Set<Long> issues = postings.get(term);
+                if (issues != null) {
+                    issues.remove(issueId);
+                    if (issues.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+        }
+
+        Map<Long, Double> score(ExampleDocument query) {
+            Map<Long, Double> scores = new HashMap<>();
+            int documentCount = documents.size();
+            double averageLength = documentCount > 0 ? Math.max(1.0, (double) totalLength / documentCount) : 1.0;
+            for (String term : query.getTermFrequencies().keySet()) {
+                Set<Long> issues = postings.get(term);
+                if (issues == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documentCount - issues.size() + 0.5) / (issues.size() + 0.5));
+                for (Long issueId : issues) {
+                    ExampleDocument document = documents.get(issueId);
+                    int tf = document.getTermFrequencies().get(term);
+                    double norm = tf + K1 * (1 - B + B * document.getLength() / averageLength);
+                    scores.merge(issueId, idf * tf * (K1 + 1) / norm, Double::sum);
+                }
+            }
+            // Сложность и тип учитываем только у задач, похожих по тексту; остальные идут в добивку
+            for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                entry.setValue(entry.getValue() + attributeBoost(query, documents.get(entry.getKey())));
+            }
+            return scores;
+        }
+    }
+}
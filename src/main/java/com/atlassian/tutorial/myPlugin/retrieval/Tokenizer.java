@@ -0,0 +1,58 @@
+package com.atlassian.tutorial.myPlugin.retrieval;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Разбивает заголовок и описание задачи на термы для {@link ExampleIndex}.
+ * Вместо полноценного стеммера слово обрезается до первых {@link #STEM_LENGTH} букв, а у коротких слов
+ * отбрасываются конечные гласные: для русского этого хватает, чтобы "ошибка", "ошибки" и "ошибку",
+ * "отчет" и "отчета", "баг" и "баги" совпали.
+ */
+public final class Tokenizer {
+
+    private static final Pattern HTML_TAG = Pattern.compile("<[^>]*>");
+    private static final Pattern SEPARATOR = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+    private static final int MIN_TOKEN_LENGTH = 3;
+    private static final int STEM_LENGTH = 5;
+    // Окончания коротких слов: гласные, "й" и "ь"
+    private static final String ENDING_LETTERS = "аеиоуыэюяйь";
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "для", "при", "как", "что", "это", "или", "если", "все", "так", "его", "она", "они", "надо", "нужно",
+            "после", "чтобы", "the", "and", "for", "with", "from", "that", "this", "not", "are", "should"));
+
+    private Tokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String plain = HTML_TAG.matcher(text).replaceAll(" ").toLowerCase(Locale.ROOT).replace('ё', 'е');
+        for (String word : SEPARATOR.split(plain)) {
+            if (word.length() < MIN_TOKEN_LENGTH || STOP_WORDS.contains(word)) {
+                continue;
+            }
+            tokens.add(stem(word));
+        }
+        return tokens;
+    }
+
+    private static String stem(String word) {
+        if (word.length() > STEM_LENGTH) {
+            return word.substring(0, STEM_LENGTH);
+        }
+        int end = word.length();
+        while (end > MIN_TOKEN_LENGTH && ENDING_LETTERS.indexOf(word.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return word.substring(0, end);
+    }
+}
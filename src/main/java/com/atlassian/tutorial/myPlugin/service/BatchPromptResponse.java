@@ -0,0 +1,52 @@
+package com.atlassian.tutorial.myPlugin.service;
+
+import org.json.JSONObject;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Разбор ответа модели на пакетный промпт: ожидается JSON-объект вида {"ABC-1": {"min": 2, "max": 3, "unit": "дни"}, ...}.
+ * Значение отдается строкой как есть (вложенный объект - его JSON), разбирает его {@link DurationParser}.
+ * Модель часто оборачивает JSON в ```json ... ``` или добавляет текст вокруг, поэтому берем
+ * содержимое между первой '{' и последней '}'.
+ */
+public final class BatchPromptResponse {
+
+    private BatchPromptResponse() {
+    }
+
+    /**
+     * @return прогнозы по ключам задач; задачи без ответа в результат не попадают.
+     * Пустая карта, если ответ вообще не удалось разобрать.
+     */
+    public static Map<String, String> parse(String text, Collection<String> issueKeys) {
+        Map<String, String> predictions = new LinkedHashMap<>();
+        if (text == null) {
+            return predictions;
+        }
+        int start = text.indexOf('{');
+        int end = text.lastIndexOf('}');
+        if (start < 0 || end <= start) {
+            return predictions;
+        }
+
+        JSONObject json;
+        try {
+            json = new JSONObject(text.substring(start, end + 1));
+        } catch (Exception e) {
+            return predictions;
+        }
+        for (String key : issueKeys) {
+            Object value = json.opt(key);
+            if (value != null && !JSONObject.NULL.equals(value)) {
+                String prediction = value.toString().trim();
+                if (!prediction.isEmpty()) {
+                    predictions.put(key, prediction);
+                }
+            }
+        }
+        return predictions;
+    }
+}
@@ -0,0 +1,115 @@
+package com.atlassian.tutorial.myPlugin.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Предохранитель для внешнего сервиса. После failureThreshold неудачных попыток подряд размыкается
+ * и openMillis сразу отказывает, не тратя потоки Jira на заведомо неудачные запросы.
+ * Затем пропускает один пробный запрос: успех замыкает цепь, неудача снова размыкает.
+ */
+public class CircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis) {
+        this(name, failureThreshold, openMillis, System::currentTimeMillis);
+    }
+
+    public CircuitBreaker(String name, int failureThreshold, long openMillis, LongSupplier clock) {
+        if (failureThreshold <= 0 || openMillis <= 0) {
+            throw new IllegalArgumentException("Threshold and open time must be positive");
+        }
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Можно ли сделать запрос. В полуоткрытом состоянии разрешение получает только один пробный запрос,
+     * и его исход нужно сообщить через {@link #onSuccess}, {@link #onFailure} или {@link #release}.
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openMillis) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+            log.info("{}: circuit half-open, sending a trial request", name);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+        }
+        return true;
+    }
+
+    /**
+     * То же, что {@link #allowRequest}, но без изменения состояния - для проверок "стоит ли пробовать".
+     */
+    public synchronized boolean isCallPermitted() {
+        switch (state) {
+            case OPEN:
+                return clock.getAsLong() - openedAt >= openMillis;
+            case HALF_OPEN:
+                return !trialInFlight;
+            default:
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            log.info("{}: circuit closed, service is responding again", name);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            log.warn("{}: circuit opened after {} failed requests, failing fast for {} ms", name, consecutiveFailures, openMillis);
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+            trialInFlight = false;
+        }
+    }
+
+    /**
+     * Запрос так и не был отправлен (например, не хватило лимита): пробный слот освобождается.
+     */
+    public synchronized void release() {
+        trialInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Когда разомкнутая цепь пропустит пробный запрос (epoch millis), или 0, если она не разомкнута.
+     */
+    public synchronized long getRetryAt() {
+        return state == State.OPEN ? openedAt + openMillis : 0;
+    }
+}
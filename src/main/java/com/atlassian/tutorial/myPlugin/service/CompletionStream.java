@@ -0,0 +1,80 @@
+package com.atlassian.tutorial.myPlugin.service;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.function.Consumer;
+
+/**
+ * Разбор потокового ответа chat/completions (stream: true) построчно по мере чтения.
+ * Сервер шлет Server-Sent Events: строки "data: {...}" с очередным куском choices[0].delta.content,
+ * пустые строки между событиями и "data: [DONE]" в конце. Текст собирается без изменений,
+ * переводы строк внутри ответа сохраняются.
+ */
+public class CompletionStream {
+
+    private static final String DATA_PREFIX = "data:";
+    private static final String DONE = "[DONE]";
+
+    private final Consumer<String> onDelta;
+    private final StringBuilder text = new StringBuilder();
+    private JSONObject usage;
+    private boolean done;
+
+    public CompletionStream(Consumer<String> onDelta) {
+        this.onDelta = onDelta;
+    }
+
+    public void onLine(String line) {
+        if (done || line == null || !line.startsWith(DATA_PREFIX)) {
+            // Пустые строки, комментарии ":" и поля event/id нам не нужны
+            return;
+        }
+        String payload = line.substring(DATA_PREFIX.length()).trim();
+        if (DONE.equals(payload)) {
+            done = true;
+            return;
+        }
+        if (payload.isEmpty()) {
+            return;
+        }
+        JSONObject chunk = new JSONObject(payload);
+        if (chunk.has("usage")) {
+            usage = chunk.optJSONObject("usage");
+        }
+        JSONArray choices = chunk.optJSONArray("choices");
+        if (choices == null || choices.length() == 0) {
+            return;
+        }
+        JSONObject delta = choices.getJSONObject(0).optJSONObject("delta");
+        String content = delta != null ? delta.optString("content", "") : "";
+        if (!content.isEmpty()) {
+            text.append(content);
+            if (onDelta != null) {
+                onDelta.accept(content);
+            }
+        }
+    }
+
+    public String getText() {
+        return text.toString();
+    }
+
+    /**
+     * Пришел ли хотя бы один кусок текста: после этого запрос уже нельзя повторять незаметно.
+     */
+    public boolean hasContent() {
+        return text.length() > 0;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Блок usage из последнего события, если сервер его прислал.
+     */
+    public JSONObject getUsage() {
+        return usage;
+    }
+}
@@ -0,0 +1,266 @@
+package com.atlassian.tutorial.myPlugin.service;
+
+import org.json.JSONObject;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Разбор прогноза модели в часы. Понимает структурированный ответ {"min": 2, "max": 3, "unit": "дни"}
+ * и свободный текст: диапазоны ("2-3 дня", "от 2 до 3 дней"), составные сроки ("1 неделя 2 дня"),
+ * русские и английские единицы. День и неделя переводятся в рабочие часы по настройкам.
+ * Часы считаются один раз при сохранении прогноза, а не при каждом открытии аналитики.
+ */
+public final class DurationParser {
+
+    public static final double DEFAULT_WORKDAY_HOURS = 8;
+    public static final double DEFAULT_WORKWEEK_DAYS = 5;
+    public static final DurationParser DEFAULT = new DurationParser(DEFAULT_WORKDAY_HOURS, DEFAULT_WORKWEEK_DAYS);
+
+    // Число, слово или разделитель; все остальное (пробелы, знаки) пропускается
+    private static final Pattern TOKEN = Pattern.compile("(\\d+(?:[.,]\\d+)?)|(\\p{L}+)|([-–—~(;=\\n])");
+    private static final double WEEKS_IN_MONTH = 4.33;
+
+    private final double workdayHours;
+    private final double workweekDays;
+
+    public DurationParser(double workdayHours, double workweekDays) {
+        this.workdayHours = workdayHours > 0 ? workdayHours : DEFAULT_WORKDAY_HOURS;
+        this.workweekDays = workweekDays > 0 ? workweekDays : DEFAULT_WORKWEEK_DAYS;
+    }
+
+    public double getWorkdayHours() {
+        return workdayHours;
+    }
+
+    public double getWorkweekDays() {
+        return workweekDays;
+    }
+
+    /**
+     * Часы (середина диапазона) или null, если срок в тексте не найден.
+     */
+    public static Double parseHours(String text) {
+        Result result = DEFAULT.parse(text);
+        return result != null ? result.getHours() : null;
+    }
+
+    /**
+     * Разбирает ответ модели: сначала как JSON, затем как текст. null, если срок не найден.
+     */
+    public Result parse(String text) {
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        Result structured = parseStructured(text);
+        return structured != null ? structured : parseText(text);
+    }
+
+    private Result parseStructured(String text) {
+        int start = text.indexOf('{');
+        int end = text.lastIndexOf('}');
+        if (start < 0 || end <= start) {
+            return null;
+        }
+        try {
+            JSONObject json = new JSONObject(text.substring(start, end + 1));
+            double unitHours = unitHours(json.optString("unit", "часы").toLowerCase(Locale.ROOT));
+            double min = json.optDouble("min", Double.NaN);
+            double max = json.optDouble("max", min);
+            if (unitHours <= 0 || Double.isNaN(min) || min < 0) {
+                return null;
+            }
+            if (Double.isNaN(max) || max < min) {
+                max = min;
+            }
+            return new Result(min * unitHours, max * unitHours, true);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private Result parseText(String text) {
+        Matcher matcher = TOKEN.matcher(text.toLowerCase(Locale.ROOT));
+        double totalMin = 0;
+        double totalMax = 0;
+        boolean found = false;
+        double low = Double.NaN;
+        double high = Double.NaN;
+        boolean rangeOpen = false;
+        // Составной срок идет от крупных единиц к мелким; повтор или рост единицы - уже пояснение
+        double lastUnitHours = Double.MAX_VALUE;
+        // Разделитель после полного срока ("2 часа - 1 день"): дальше верхняя граница со своими единицами
+        boolean upperSide = false;
+        boolean upperFound = false;
+        double upperTotal = 0;
+
+        while (matcher.find()) {
+            if (matcher.group(1) != null) {
+                double value = Double.parseDouble(matcher.group(1).replace(',', '.'));
+                if (rangeOpen && !Double.isNaN(low)) {
+                    high = value;
+                } else {
+                    low = value;
+                    high = Double.NaN;
+                }
+                rangeOpen = false;
+            } else if (matcher.group(3) != null) {
+                char separator = matcher.group(3).charAt(0);
+                if (separator == '-' || separator == '–' || separator == '—') {
+                    if (found && Double.isNaN(low) && !upperSide) {
+                        upperSide = true;
+                        lastUnitHours = Double.MAX_VALUE;
+                    } else {
+                        rangeOpen = true;
+                    }
+                } else if (separator != '~' && found) {
+                    break; // скобки и т.п. после срока - пояснение к нему
+                }
+            } else {
+                String word = matcher.group(2);
+                if (word.equals("до") || word.equals("to") || word.equals("или") || word.equals("or")) {
+                    if (found && Double.isNaN(low) && !upperSide) {
+                        upperSide = true;
+                        lastUnitHours = Double.MAX_VALUE;
+                    } else {
+                        rangeOpen = true;
+                    }
+                    continue;
+                }
+                if (word.startsWith("полтор")) {
+                    low = 1.5;
+                    continue;
+                }
+                double unitHours = unitHours(word);
+                if (unitHours <= 0) {
+                    if (upperSide && !upperFound && Double.isNaN(low)) {
+                        break; // "2 часа - это ..." - после тире пояснение, а не вторая граница
+                    }
+                    continue;
+                }
+                if (Double.isNaN(low)) {
+                    if ((upperSide ? upperFound : found) || !isSingular(word)) {
+                        continue;
+                    }
+                    low = 1;
+                }
+                if (unitHours >= lastUnitHours) {
+                    break;
+                }
+                if (upperSide) {
+                    upperTotal += (Double.isNaN(high) ? low : high) * unitHours;
+                    upperFound = true;
+                } else {
+                    totalMin += low * unitHours;
+                    totalMax += (Double.isNaN(high) ? low : high) * unitHours;
+                }
+                found = true;
+                lastUnitHours = unitHours;
+                low = Double.NaN;
+                high = Double.NaN;
+                rangeOpen = false;
+            }
+        }
+        if (!found && !Double.isNaN(low)) {
+            // Число без единицы - как и раньше, считаем часами
+            totalMin = low;
+            totalMax = Double.isNaN(high) ? low : high;
+            found = true;
+        }
+        if (!found) {
+            return null;
+        }
+        if (upperFound) {
+            totalMax = upperTotal;
+        }
+        return new Result(totalMin, Math.max(totalMin, totalMax), false);
+    }
+
+    // Часов в единице по слову или 0, если это не единица времени. Префиксы подобраны так,
+    // чтобы не ловить "через", "минимум", "дней" в "денег" и т.п.
+    private double unitHours(String word) {
+        if (word.equals("мин") || word.startsWith("минут") || word.equals("min") || word.equals("mins") || word.startsWith("minute")) {
+            return 1.0 / 60;
+        }
+        if (word.equals("ч") || word.startsWith("час") || word.equals("h") || word.equals("hr") || word.equals("hrs") || word.startsWith("hour")) {
+            return 1;
+        }
+        if (word.equals("дн") || word.equals("дня") || word.equals("дней") || word.equals("дни") || word.equals("день")
+                || word.equals("d") || word.startsWith("day")) {
+            return workdayHours;
+        }
+        if (word.startsWith("недел") || word.equals("нед") || word.equals("w") || word.startsWith("week")) {
+            return workdayHours * workweekDays;
+        }
+        if (word.startsWith("месяц") || word.equals("мес") || word.startsWith("month")) {
+            return workdayHours * workweekDays * WEEKS_IN_MONTH;
+        }
+        return 0;
+    }
+
+    // Единица без числа понимается как одна: "около недели", "в течение дня"
+    private static boolean isSingular(String word) {
+        switch (word) {
+            case "час": case "часа": case "день": case "дня": case "неделя": case "недели": case "неделю":
+            case "месяц": case "месяца": case "hour": case "day": case "week": case "month":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Разобранный срок в рабочих часах.
+     */
+    public static final class Result {
+        private final double minHours;
+        private final double maxHours;
+        private final boolean structured;
+
+        Result(double minHours, double maxHours, boolean structured) {
+            this.minHours = minHours;
+            this.maxHours = maxHours;
+            this.structured = structured;
+        }
+
+        public double getMinHours() {
+            return minHours;
+        }
+
+        public double getMaxHours() {
+            return maxHours;
+        }
+
+        /**
+         * Точечная оценка - середина диапазона.
+         */
+        public double getHours() {
+            return (minHours + maxHours) / 2;
+        }
+
+        /**
+         * true, если модель ответила JSON, а не текстом.
+         */
+        public boolean isStructured() {
+            return structured;
+        }
+
+        /**
+         * Срок для показа пользователю: "4-6 ч." или "2-3 дн." при рабочем дне workdayHours.
+         */
+        public String format(double workdayHours) {
+            boolean inDays = minHours >= workdayHours;
+            double divisor = inDays ? workdayHours : 1;
+            String unit = inDays ? " дн." : " ч.";
+            String min = formatNumber(minHours / divisor);
+            String max = formatNumber(maxHours / divisor);
+            return (min.equals(max) ? min : min + "-" + max) + unit;
+        }
+
+        private static String formatNumber(double value) {
+            double rounded = Math.round(value * 10.0) / 10.0;
+            return rounded == Math.rint(rounded) ? String.valueOf((long) rounded) : String.valueOf(rounded);
+        }
+    }
+}
@@ -1,200 +1,529 @@
 package com.atlassian.tutorial.myPlugin.service;
 
-import com.atlassian.sal.api.pluginsettings.PluginSettings;
+import com.atlassian.event.api.EventListener;
+import com.atlassian.event.api.EventPublisher;
 import com.atlassian.sal.api.pluginsettings.PluginSettingsFactory;
+import com.atlassian.tutorial.myPlugin.cluster.ClusterCoordinator;
+import com.atlassian.tutorial.myPlugin.cluster.JiraClusterCoordinator;
+import com.atlassian.tutorial.myPlugin.llm.LlmHttpException;
+import com.atlassian.tutorial.myPlugin.llm.LlmProvider;
+import com.atlassian.tutorial.myPlugin.llm.LlmProviderRegistry;
+import com.atlassian.tutorial.myPlugin.llm.LlmUnavailableException;
+import com.atlassian.tutorial.myPlugin.llm.LocalRegressionProvider;
+import com.atlassian.tutorial.myPlugin.metrics.PredictionMetrics;
+import com.atlassian.tutorial.myPlugin.prompt.PromptBuilder;
+import com.atlassian.tutorial.myPlugin.prompt.PromptFragmentCache;
+import com.atlassian.tutorial.myPlugin.retrieval.ExampleDocument;
+import com.atlassian.tutorial.myPlugin.retrieval.ExampleIndex;
+import com.atlassian.tutorial.myPlugin.stats.ComplexityStatistics;
+import com.atlassian.tutorial.myPlugin.stats.DurationStats;
+import com.atlassian.tutorial.myPlugin.stats.IssueSample;
+import com.atlassian.tutorial.myPlugin.store.PredictionEntry;
+import com.atlassian.tutorial.myPlugin.store.PredictedHoursIndex;
+import com.atlassian.tutorial.myPlugin.store.PredictionHistoryStore;
 import com.atlassian.jira.component.ComponentAccessor;
 import com.atlassian.jira.bc.issue.search.SearchService;
 import com.atlassian.jira.issue.Issue;
 import com.atlassian.jira.issue.fields.CustomField;
-import com.atlassian.jira.issue.customfields.option.Option;
 import com.atlassian.jira.issue.search.SearchException;
 import com.atlassian.jira.issue.search.SearchResults;
 import com.atlassian.jira.user.ApplicationUser;
 import com.atlassian.jira.web.bean.PagerFilter;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 
-import javax.net.ssl.*;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
-import java.security.cert.X509Certificate;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
 
-public class GeminiPredictionService {
+/**
+ * Прогноз срока задачи: единственный экземпляр на плагин, создается в MyPluginJavaConfig.
+ * Настройки держит снимком {@link PredictionConfig} и перечитывает только по {@link PredictionConfigChangedEvent}.
+ */
+public class GeminiPredictionService implements InitializingBean, DisposableBean {
 
     private static final Logger log = LoggerFactory.getLogger(GeminiPredictionService.class);
 
     // Ключи для PluginSettings
     public static final String GEMINI_API_KEY_PLUGIN_SETTING = "com.atlassian.tutorial.myPlugin.geminiApiKey";
     public static final String PREDICTION_HISTORY_SETTING = "com.atlassian.tutorial.myPlugin.history";
-
-    private static final String GIGACHAT_OAUTH_URL = "https://ngw.devices.sberbank.ru:9443/api/v2/oauth";
-    private static final String GIGACHAT_API_URL = "https://gigachat.devices.sberbank.ru/api/v1/chat/completions";
-    private static final String MODEL_NAME = "GigaChat";
+    public static final String CONNECT_TIMEOUT_SETTING = "com.atlassian.tutorial.myPlugin.connectTimeoutMillis";
+    public static final String READ_TIMEOUT_SETTING = "com.atlassian.tutorial.myPlugin.readTimeoutMillis";
+    public static final String TRUSTSTORE_PATH_SETTING = "com.atlassian.tutorial.myPlugin.truststorePath";
+    public static final String TRUSTSTORE_PASSWORD_SETTING = "com.atlassian.tutorial.myPlugin.truststorePassword";
+    public static final String WORKDAY_HOURS_SETTING = "com.atlassian.tutorial.myPlugin.workdayHours";
+    public static final String WORKWEEK_DAYS_SETTING = "com.atlassian.tutorial.myPlugin.workweekDays";
+    public static final String REQUESTS_PER_SECOND_SETTING = "com.atlassian.tutorial.myPlugin.requestsPerSecond";
+    public static final String PROMPT_TOKEN_BUDGET_SETTING = "com.atlassian.tutorial.myPlugin.promptTokenBudget";
 
     private static final int TARGET_EXAMPLE_ISSUES_COUNT_FOR_LLM = 5;
+    // Больше задач в одном запросе - длиннее ответ и выше риск, что модель собьется с формата
+    public static final int MAX_ISSUES_PER_PROMPT = 10;
     public static final String COMPLEXITY_FIELD_ID = "customfield_10000";
+    // Дольше ждать узел, который уже спрашивает модель о той же задаче, нет смысла - считаем сами
+    private static final long CLUSTER_LOCK_WAIT_SECONDS = 60;
+
+    // Снимок настроек подменяется целиком, прогноз читает его один раз и видит согласованные значения
+    private volatile PredictionConfig config = PredictionConfig.DEFAULT;
+    // Ключ - id задачи и отпечаток входных данных промпта
+    private final SingleFlight<String, Map<String, String>> predictionFlights = new SingleFlight<>();
+    private final PredictionCache predictionCache;
+    private final LlmProviderRegistry providers;
+    private final PredictionHistoryStore historyStore;
+    private final ComplexityStatistics complexityStatistics;
+    private final ExampleIndex exampleIndex;
+    private final PredictionMetrics metrics;
+    private final PromptBuilder promptBuilder;
+    private final PluginSettingsFactory pluginSettingsFactory;
+    private final EventPublisher eventPublisher;
+    private final ClusterCoordinator cluster;
+    private final PredictedHoursIndex predictedHours;
+
+    public GeminiPredictionService(PredictionHistoryStore historyStore, ComplexityStatistics complexityStatistics,
+                                   ExampleIndex exampleIndex, PredictionMetrics metrics, PromptFragmentCache promptFragments,
+                                   LlmProviderRegistry providers, PluginSettingsFactory pluginSettingsFactory,
+                                   EventPublisher eventPublisher, ClusterCoordinator cluster, PredictedHoursIndex predictedHours) {
+        this.historyStore = historyStore;
+        this.complexityStatistics = complexityStatistics;
+        this.exampleIndex = exampleIndex;
+        this.metrics = metrics;
+        this.promptBuilder = new PromptBuilder(promptFragments);
+        this.providers = providers;
+        this.pluginSettingsFactory = pluginSettingsFactory;
+        this.eventPublisher = eventPublisher;
+        this.cluster = cluster;
+        this.predictedHours = predictedHours;
+        this.predictionCache = new PredictionCache(historyStore, cluster);
+        metrics.gauge("predictions.coalescing", predictionFlights::size);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        reloadConfig();
+        eventPublisher.register(this);
+        // Настройки сохранили на другом узле: PluginSettings общие, перечитываем их и сбрасываем токен
+        cluster.subscribe(JiraClusterCoordinator.CONFIG_CHANNEL, username -> {
+            log.info("Prediction settings changed by {} on another node, reloading", username);
+            reloadConfig();
+            providers.invalidateCredentials();
+        });
+    }
 
-    private String base64AuthKey;
+    @Override
+    public void destroy() {
+        eventPublisher.unregister(this);
+    }
 
-    public GeminiPredictionService() {
-        loadApiKeyFromSettings();
+    @EventListener
+    public void onConfigChanged(PredictionConfigChangedEvent event) {
+        log.info("Prediction settings changed by {}, reloading", event.getUsername());
+        reloadConfig();
+        cluster.publish(JiraClusterCoordinator.CONFIG_CHANNEL, String.valueOf(event.getUsername()));
     }
 
-    private void loadApiKeyFromSettings() {
-        PluginSettingsFactory factory = ComponentAccessor.getOSGiComponentInstanceOfType(PluginSettingsFactory.class);
-        if (factory != null) {
-            PluginSettings settings = factory.createGlobalSettings();
-            this.base64AuthKey = (String) settings.get(GEMINI_API_KEY_PLUGIN_SETTING);
-            if (this.base64AuthKey != null) this.base64AuthKey = this.base64AuthKey.trim();
+    /**
+     * Перечитывает PluginSettings и применяет новый снимок к провайдерам и построителю промпта.
+     */
+    public synchronized void reloadConfig() {
+        PredictionConfig previous = config;
+        PredictionConfig next = PredictionConfig.load(pluginSettingsFactory.createGlobalSettings());
+        providers.configure(next);
+        promptBuilder.setTokenBudget(next.getPromptTokenBudget());
+        config = next;
+        if (!Objects.equals(previous.getAuthKey(), next.getAuthKey())) {
+            // Токен старого ключа больше не нужен
+            providers.invalidateCredentials();
         }
     }
 
-    public void refreshApiKey() {
-        loadApiKeyFromSettings();
+    public PredictionConfig getConfig() {
+        return config;
     }
 
-    // --- СЕКЦИЯ SSL (ОБХОД ПРОВЕРОК) ---
-    private SSLSocketFactory getInsecureSSLSocketFactory() throws Exception {
-        TrustManager[] trustAllCerts = new TrustManager[]{
-                new X509TrustManager() {
-                    public X509Certificate[] getAcceptedIssuers() { return null; }
-                    public void checkClientTrusted(X509Certificate[] certs, String authType) {}
-                    public void checkServerTrusted(X509Certificate[] certs, String authType) {}
-                }
-        };
-        SSLContext sc = SSLContext.getInstance("SSL");
-        sc.init(null, trustAllCerts, new java.security.SecureRandom());
-        return sc.getSocketFactory();
+    /**
+     * false, пока провайдер по умолчанию недоступен и запросы к нему сразу отклоняются.
+     */
+    public boolean isLlmAvailable() {
+        return providers.getDefault().isAvailable();
+    }
+
+    /**
+     * true, если прогноз задачи кэшируется и его есть смысл считать заранее; локальная модель отвечает сразу.
+     */
+    public boolean isPrecomputable(Issue issue) {
+        LlmProvider provider = providers.forProject(issue.getProjectObject().getKey());
+        return provider.usesPrompt() && provider.isAvailable();
     }
 
-    private HostnameVerifier getInsecureHostnameVerifier() {
-        return (hostname, session) -> true;
+    public Map<String, String> getPredictionFromGemini(Issue currentIssue) {
+        return getPredictionFromGemini(currentIssue, null);
     }
 
-    // --- СЕКЦИЯ РАБОТЫ С GIGACHAT ---
-    private String getGigaChatToken() throws Exception {
-        if (this.base64AuthKey == null || this.base64AuthKey.isEmpty()) {
-            throw new Exception("Auth Key не настроен в конфигурации!");
+    /**
+     * То же, но с потоковым ответом: куски текста модели отдаются в onPartial по мере получения,
+     * чтобы панель задачи показывала ответ сразу. Итог (и запись в историю) - как у обычного прогноза.
+     * Ответ из кэша и запасной ответ приходят только итогом.
+     */
+    public Map<String, String> getPredictionFromGemini(Issue currentIssue, Consumer<String> onPartial) {
+        try (PredictionMetrics.Timer ignored = metrics.time(PredictionMetrics.Stage.TOTAL)) {
+            return predict(currentIssue, onPartial);
         }
+    }
 
-        URL url = new URL(GIGACHAT_OAUTH_URL);
-        HttpsURLConnection conn = (HttpsURLConnection) url.openConnection();
-        conn.setSSLSocketFactory(getInsecureSSLSocketFactory());
-        conn.setHostnameVerifier(getInsecureHostnameVerifier());
-
-        conn.setRequestMethod("POST");
-        conn.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-        conn.setRequestProperty("Accept", "application/json");
-        conn.setRequestProperty("Authorization", "Basic " + this.base64AuthKey);
-        conn.setRequestProperty("RqUID", UUID.randomUUID().toString());
-        conn.setDoOutput(true);
-
-        String data = "scope=GIGACHAT_API_PERS";
-        try (OutputStream os = conn.getOutputStream()) {
-            os.write(data.getBytes(StandardCharsets.UTF_8));
+    private Map<String, String> predict(Issue currentIssue, Consumer<String> onPartial) {
+        Map<String, String> result = new HashMap<>();
+        LlmProvider provider = providers.forProject(currentIssue.getProjectObject().getKey());
+        if (!provider.isAvailable()) {
+            // Модель недоступна: не ищем примеры и не ждем таймаутов, сразу отдаем запасной прогноз
+            return fallbackPrediction(currentIssue, provider, result);
         }
 
-        if (conn.getResponseCode() == 200) {
-            JSONObject json = new JSONObject(readStream(conn));
-            return json.getString("access_token");
-        } else {
-            throw new Exception("OAuth Error: " + conn.getResponseCode() + " " + readStream(conn));
+        try {
+            if (!provider.usesPrompt()) {
+                // Локальной модели не нужны ни примеры, ни промпт, ни кэш: ответ считается за микросекунды
+                return requestPrediction(provider, currentIssue, null, null, null, onPartial);
+            }
+
+            // Примеры - самые похожие решенные задачи проекта
+            CustomField complexityField = ComponentAccessor.getCustomFieldManager().getCustomFieldObject(COMPLEXITY_FIELD_ID);
+            List<Issue> exampleIssues = findExampleIssues(Collections.singletonList(currentIssue), complexityField);
+
+            // Если входные данные промпта не менялись, повторно модель не спрашиваем
+            String fingerprint = provider.getId() + ":" + PredictionFingerprint.of(currentIssue, exampleIssues, complexityField);
+            PredictionCache.CachedPrediction cached = predictionCache.get(currentIssue.getId(), fingerprint);
+            if (cached != null) {
+                metrics.increment(PredictionMetrics.CACHE_HIT);
+                result.put("prompt", cached.getPrompt());
+                result.put("prediction", cached.getPrediction());
+                return result;
+            }
+            metrics.increment(PredictionMetrics.CACHE_MISS);
+
+            // Одну задачу открыли сразу несколько человек - к модели уходит один запрос на всех
+            result.putAll(predictionFlights.execute(currentIssue.getId() + ":" + fingerprint,
+                    () -> requestPrediction(provider, currentIssue, exampleIssues, complexityField, fingerprint, onPartial)));
+            return result;
+
+        } catch (LlmUnavailableException e) {
+            log.debug("Provider {} unavailable for {}: {}", provider.getId(), currentIssue.getKey(), e.getMessage());
+            return fallbackPrediction(currentIssue, provider, result);
+        } catch (Exception e) {
+            metrics.recordError(e.getClass().getSimpleName());
+            log.error("Prediction error", e);
+            result.put("prediction", "Ошибка: " + e.getMessage());
+            return result;
         }
     }
 
-    public Map<String, String> getPredictionFromGemini(Issue currentIssue) {
-        refreshApiKey();
-        Map<String, String> result = new HashMap<>();
-
+    // fingerprint == null - провайдер без промпта, ответ не кэшируется
+    private Map<String, String> requestPrediction(LlmProvider provider, Issue currentIssue, List<Issue> exampleIssues,
+                                                  CustomField complexityField, String fingerprint,
+                                                  Consumer<String> onPartial) throws Exception {
+        if (fingerprint == null) {
+            return computePrediction(provider, currentIssue, exampleIssues, complexityField, null, onPartial);
+        }
+        // SingleFlight объединяет запросы одного узла, блокировка - узлов кластера: второй узел дождется
+        // ответа первого и возьмет его из общего кэша
+        Lock lock = cluster.getLock("prediction." + currentIssue.getId());
+        boolean locked = lock.tryLock(CLUSTER_LOCK_WAIT_SECONDS, TimeUnit.SECONDS);
+        if (!locked) {
+            log.warn("Prediction lock for {} is held too long, predicting without it", currentIssue.getKey());
+        }
         try {
-            String token = getGigaChatToken();
-            SearchService searchService = ComponentAccessor.getOSGiComponentInstanceOfType(SearchService.class);
+            return computePrediction(provider, currentIssue, exampleIssues, complexityField, fingerprint, onPartial);
+        } finally {
+            if (locked) {
+                lock.unlock();
+            }
+        }
+    }
 
-            // Получаем примеры (ПОЛНАЯ ЛОГИКА)
-            List<Issue> exampleIssues = findResolvedIssuesInSameProject(currentIssue, searchService, TARGET_EXAMPLE_ISSUES_COUNT_FOR_LLM);
+    private Map<String, String> computePrediction(LlmProvider provider, Issue currentIssue, List<Issue> exampleIssues,
+                                                  CustomField complexityField, String fingerprint,
+                                                  Consumer<String> onPartial) throws Exception {
+        Map<String, String> result = new HashMap<>();
+        String prompt = null;
+        if (fingerprint != null) {
+            // Предыдущий такой же запрос (и на другом узле) мог закончиться, пока мы искали примеры или ждали блокировку
+            PredictionCache.CachedPrediction cached = predictionCache.get(currentIssue.getId(), fingerprint);
+            if (cached != null) {
+                result.put("prompt", cached.getPrompt());
+                result.put("prediction", cached.getPrediction());
+                return result;
+            }
 
-            // Строим детальный промпт (ПОЛНАЯ ЛОГИКА)
-            String prompt = buildPromptForIssueWithExamples(currentIssue, exampleIssues);
+            // Промпт в пределах бюджета токенов: сколько примеров и описания поместится
+            try (PredictionMetrics.Timer ignored = metrics.time(PredictionMetrics.Stage.PROMPT)) {
+                prompt = promptBuilder.buildSingle(currentIssue, exampleIssues, complexityField);
+            }
             result.put("prompt", prompt);
+        }
+
+        // Запрос к модели
+        Map<String, String> predictionData = complete(provider, currentIssue, prompt, result, onPartial);
+
+        // СОХРАНЕНИЕ: Если прогноз получен успешно, записываем его в историю и в кэш
+        String predictionText = predictionData.get("prediction");
+        if (predictionText != null && !predictionText.startsWith("Ошибка")) {
+            DurationParser parser = config.getDurationParser();
+            DurationParser.Result duration = parser.parse(predictionText);
+            predictionText = displayText(predictionText, duration, parser);
+            predictionData.put("prediction", predictionText);
+            savePredictionToHistory(currentIssue, predictionText, duration, prompt, provider, fingerprint);
+            if (fingerprint != null) {
+                predictionCache.put(currentIssue.getId(), fingerprint, predictionText, prompt);
+            }
+        }
+        return predictionData;
+    }
 
-            // Запрос к модели
-            Map<String, String> predictionData = sendToGigaChat(token, prompt, result);
+    /**
+     * Прогноз сразу для нескольких задач: задачи одного проекта уходят в LLM одним запросом
+     * с общей инструкцией и общими примерами, ответ ожидается JSON-объектом по ключам задач.
+     * Задачи, для которых ответ не разобрался, пересчитываются по одной через {@link #getPredictionFromGemini}.
+     *
+     * @return результат в том же формате, что и у одиночного прогноза, по id задачи
+     */
+    public Map<Long, Map<String, String>> getPredictionsFromGemini(List<Issue> issues) {
+        Map<Long, Map<String, String>> results = new LinkedHashMap<>();
+
+        Map<String, List<Issue>> issuesByProject = new LinkedHashMap<>();
+        for (Issue issue : issues) {
+            issuesByProject.computeIfAbsent(issue.getProjectObject().getKey(), k -> new ArrayList<>()).add(issue);
+        }
 
-            // СОХРАНЕНИЕ: Если прогноз получен успешно, записываем его в историю
-            String predictionText = predictionData.get("prediction");
-            if (predictionText != null && !predictionText.startsWith("Ошибка")) {
-                savePredictionToHistory(currentIssue.getKey(), predictionText);
+        CustomField complexityField = ComponentAccessor.getCustomFieldManager().getCustomFieldObject(COMPLEXITY_FIELD_ID);
+        for (Map.Entry<String, List<Issue>> project : issuesByProject.entrySet()) {
+            List<Issue> projectIssues = project.getValue();
+            LlmProvider provider = providers.forProject(project.getKey());
+            if (!provider.usesPrompt()) {
+                // Пакетный промпт нужен только LLM, локальная модель быстрее считает по одной
+                for (Issue issue : projectIssues) {
+                    results.put(issue.getId(), getPredictionFromGemini(issue));
+                }
+                continue;
             }
 
-            return predictionData;
+            // Примеры общие для проекта: ищем один раз на весь пакет
+            List<Issue> exampleIssues = findExampleIssues(projectIssues, complexityField);
+
+            List<Issue> misses = new ArrayList<>();
+            Map<Long, String> fingerprints = new HashMap<>();
+            for (Issue issue : projectIssues) {
+                String fingerprint = provider.getId() + ":" + PredictionFingerprint.of(issue, exampleIssues, complexityField);
+                PredictionCache.CachedPrediction cached = predictionCache.get(issue.getId(), fingerprint);
+                if (cached != null) {
+                    metrics.increment(PredictionMetrics.CACHE_HIT);
+                    Map<String, String> result = new HashMap<>();
+                    result.put("prompt", cached.getPrompt());
+                    result.put("prediction", cached.getPrediction());
+                    results.put(issue.getId(), result);
+                } else {
+                    metrics.increment(PredictionMetrics.CACHE_MISS);
+                    fingerprints.put(issue.getId(), fingerprint);
+                    misses.add(issue);
+                }
+            }
 
-        } catch (Exception e) {
-            log.error("GigaChat error", e);
-            result.put("prediction", "Ошибка: " + e.getMessage());
-            return result;
+            for (int from = 0; from < misses.size(); from += MAX_ISSUES_PER_PROMPT) {
+                List<Issue> batch = misses.subList(from, Math.min(from + MAX_ISSUES_PER_PROMPT, misses.size()));
+                predictBatch(provider, batch, exampleIssues, complexityField, fingerprints, results);
+            }
         }
+        return results;
     }
 
-    private Map<String, String> sendToGigaChat(String token, String prompt, Map<String, String> resultAccumulator) {
-        try {
-            JSONObject body = new JSONObject();
-            body.put("model", MODEL_NAME);
-            JSONArray msgs = new JSONArray().put(new JSONObject().put("role", "user").put("content", prompt));
-            body.put("messages", msgs);
-            body.put("temperature", 0.7);
-
-            URL url = new URL(GIGACHAT_API_URL);
-            HttpsURLConnection conn = (HttpsURLConnection) url.openConnection();
-            conn.setSSLSocketFactory(getInsecureSSLSocketFactory());
-            conn.setHostnameVerifier(getInsecureHostnameVerifier());
-
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            conn.setRequestProperty("Authorization", "Bearer " + token);
-            conn.setDoOutput(true);
-
-            try (OutputStream os = conn.getOutputStream()) {
-                os.write(body.toString().getBytes(StandardCharsets.UTF_8));
+    private void predictBatch(LlmProvider provider, List<Issue> batch, List<Issue> exampleIssues, CustomField complexityField,
+                              Map<Long, String> fingerprints, Map<Long, Map<String, String>> results) {
+        Map<String, String> predictions = Collections.emptyMap();
+        String prompt = null;
+        if (batch.size() > 1) {
+            try (PredictionMetrics.Timer ignored = metrics.time(PredictionMetrics.Stage.PROMPT)) {
+                prompt = promptBuilder.buildBatch(batch, exampleIssues, complexityField);
+            }
+            try {
+                String answer = complete(provider, null, prompt, new HashMap<>(), null).get("prediction");
+                if (answer != null && !answer.startsWith("Ошибка")) {
+                    List<String> keys = new ArrayList<>(batch.size());
+                    for (Issue issue : batch) {
+                        keys.add(issue.getKey());
+                    }
+                    predictions = BatchPromptResponse.parse(answer, keys);
+                }
+            } catch (LlmUnavailableException e) {
+                log.debug("Batch prediction skipped: {}", e.getMessage());
+            } catch (Exception e) {
+                metrics.recordError(e.getClass().getSimpleName());
+                log.warn("Batch prediction request failed, falling back to single predictions", e);
             }
+        }
 
-            if (conn.getResponseCode() == 200) {
-                JSONObject res = new JSONObject(readStream(conn));
-                String text = res.getJSONArray("choices").getJSONObject(0).getJSONObject("message").getString("content");
-                resultAccumulator.put("prediction", text.trim());
-            } else {
-                resultAccumulator.put("prediction", "Ошибка API: " + conn.getResponseCode());
+        DurationParser parser = config.getDurationParser();
+        for (Issue issue : batch) {
+            String predictionText = predictions.get(issue.getKey());
+            DurationParser.Result duration = predictionText != null ? parser.parse(predictionText) : null;
+            if (duration == null) {
+                // Модель пропустила задачу, ответила не JSON или без срока - считаем ее отдельным запросом
+                results.put(issue.getId(), getPredictionFromGemini(issue));
+                continue;
             }
+            predictionText = displayText(predictionText, duration, parser);
+            Map<String, String> result = new HashMap<>();
+            result.put("prompt", prompt);
+            result.put("prediction", predictionText);
+            savePredictionToHistory(issue, predictionText, duration, prompt, provider, fingerprints.get(issue.getId()));
+            predictionCache.put(issue.getId(), fingerprints.get(issue.getId()), predictionText, prompt);
+            results.put(issue.getId(), result);
+        }
+    }
+
+    // Ошибка запроса попадает в результат текстом "Ошибка: ...", недоступность провайдера пробрасывается
+    private Map<String, String> complete(LlmProvider provider, Issue issue, String prompt, Map<String, String> resultAccumulator,
+                                         Consumer<String> onDelta) throws LlmUnavailableException {
+        try {
+            LlmProvider.Completion completion;
+            try (PredictionMetrics.Timer ignored = metrics.time(PredictionMetrics.Stage.COMPLETION)) {
+                completion = provider.complete(issue, prompt, onDelta);
+            }
+            // Расход токенов нужен для планирования квоты
+            metrics.add(PredictionMetrics.PROMPT_TOKENS, completion.getPromptTokens());
+            metrics.add(PredictionMetrics.COMPLETION_TOKENS, completion.getCompletionTokens());
+            resultAccumulator.put("prediction", completion.getText());
+        } catch (LlmUnavailableException e) {
+            throw e;
+        } catch (LlmHttpException e) {
+            metrics.recordError("HTTP " + e.getStatus());
+            resultAccumulator.put("prediction", "Ошибка API: " + e.getStatus());
         } catch (Exception e) {
+            metrics.recordError(e.getClass().getSimpleName());
             resultAccumulator.put("prediction", "Ошибка: " + e.getMessage());
         }
         return resultAccumulator;
     }
 
     // --- СОХРАНЕНИЕ ПРОГНОЗОВ (Для аналитики) ---
-    private void savePredictionToHistory(String issueKey, String prediction) {
-        PluginSettingsFactory factory = ComponentAccessor.getOSGiComponentInstanceOfType(PluginSettingsFactory.class);
-        if (factory != null) {
-            PluginSettings settings = factory.createGlobalSettings();
-            // Формат: Ключ_задачи=Прогноз (число часов, если сможем распарсить)
-            // Для простоты храним как "ISSUE-123:3 часа;ISSUE-124:5 дней"
-            String history = (String) settings.get(PREDICTION_HISTORY_SETTING);
-            if (history == null) history = "";
-
-            // Добавляем запись (удаляя старую по этой задаче, если была)
-            String entry = issueKey + ":" + prediction.replace(";", ",") + ";";
-            settings.put(PREDICTION_HISTORY_SETTING, history + entry);
+    private void savePredictionToHistory(Issue issue, String prediction, DurationParser.Result duration, String prompt,
+                                         LlmProvider provider, String fingerprint) {
+        try (PredictionMetrics.Timer ignored = metrics.time(PredictionMetrics.Stage.HISTORY_SAVE)) {
+            // Часы считаем один раз здесь, аналитика потом берет готовое число; null - срок не распознан
+            Double hours = duration != null ? duration.getHours() : null;
+            historyStore.append(new PredictionEntry(issue.getId(), issue.getKey(), issue.getProjectObject().getKey(),
+                    System.currentTimeMillis(), prediction, hours, provider.getModelName(),
+                    PredictionFingerprint.hash(prompt), baselineHours(issue), fingerprint));
+            // Поле "Predicted hours" берет значение отсюда; задача переиндексируется, только если часы изменились
+            predictedHours.record(issue, hours);
+        } catch (Exception e) {
+            // Прогноз уже получен, отсутствие записи в истории не повод показывать ошибку
+            log.error("Failed to save prediction history for {}", issue.getKey(), e);
         }
     }
 
+    /**
+     * Ответ, пока провайдер недоступен: последний сохраненный прогноз задачи, затем оценка локальной модели,
+     * а если нет и ее - среднее по сложности. Помечается флагом fallback, в историю и кэш не попадает.
+     */
+    private Map<String, String> fallbackPrediction(Issue issue, LlmProvider failed, Map<String, String> result) {
+        metrics.increment(PredictionMetrics.FALLBACK);
+        String unavailable = failed.getModelName() + " временно недоступен";
+        PredictionCache.CachedPrediction cached = predictionCache.getLatest(issue.getId());
+        String localEstimate;
+        if (cached != null) {
+            result.put("prompt", cached.getPrompt());
+            result.put("prediction", cached.getPrediction() + " (сохраненный прогноз, " + unavailable + ")");
+        } else if ((localEstimate = localEstimate(issue, failed)) != null) {
+            result.put("prediction", localEstimate + " (оценка локальной модели, " + unavailable + ")");
+        } else {
+            result.put("prediction", unavailable + ". Среднее по сложности: " + getAverageTimeByComplexity(issue));
+        }
+        result.put("fallback", "true");
+        return result;
+    }
+
+    // null, если локальная модель не обучена или сама и есть недоступный провайдер
+    private String localEstimate(Issue issue, LlmProvider failed) {
+        LlmProvider local = providers.get(LocalRegressionProvider.ID);
+        if (local == null || local == failed || !local.isAvailable()) {
+            return null;
+        }
+        try {
+            String answer = complete(local, issue, null, new HashMap<>(), null).get("prediction");
+            if (answer == null || answer.startsWith("Ошибка")) {
+                return null;
+            }
+            DurationParser parser = config.getDurationParser();
+            return displayText(answer, parser.parse(answer), parser);
+        } catch (LlmUnavailableException e) {
+            return null;
+        }
+    }
+
+    // JSON-ответ модели показываем пользователю как "2-3 дн.", текстовый - как есть
+    private static String displayText(String answer, DurationParser.Result duration, DurationParser parser) {
+        return duration != null && duration.isStructured() ? duration.format(parser.getWorkdayHours()) : answer;
+    }
+
+    /**
+     * Примеры для промпта из локального индекса: решенные задачи того же проекта, похожие по тексту,
+     * сложности и типу. Пока индекс строится после старта, берем последние решенные задачи через JQL.
+     */
+    private List<Issue> findExampleIssues(List<Issue> targetIssues, CustomField complexityField) {
+        try (PredictionMetrics.Timer ignored = metrics.time(PredictionMetrics.Stage.EXAMPLES)) {
+            return searchExampleIssues(targetIssues, complexityField);
+        }
+    }
+
+    private List<Issue> searchExampleIssues(List<Issue> targetIssues, CustomField complexityField) {
+        if (exampleIndex.isReady()) {
+            Set<Long> targetIds = new HashSet<>();
+            for (Issue issue : targetIssues) {
+                targetIds.add(issue.getId());
+            }
+            List<Long> exampleIds = exampleIndex.findSimilar(exampleQuery(targetIssues, complexityField), targetIds, TARGET_EXAMPLE_ISSUES_COUNT_FOR_LLM);
+            List<Issue> exampleIssues = new ArrayList<>(exampleIds.size());
+            for (Long exampleId : exampleIds) {
+                Issue example = ComponentAccessor.getIssueManager().getIssueObject(exampleId);
+                if (example != null) {
+                    exampleIssues.add(example);
+                }
+            }
+            if (!exampleIssues.isEmpty()) {
+                return exampleIssues;
+            }
+        }
+        SearchService searchService = ComponentAccessor.getOSGiComponentInstanceOfType(SearchService.class);
+        return findResolvedIssuesInSameProject(targetIssues.get(0), searchService, TARGET_EXAMPLE_ISSUES_COUNT_FOR_LLM);
+    }
+
+    // Для пакета задач запрос - их общий текст, сложность и тип в нем не учитываются
+    private static ExampleDocument exampleQuery(List<Issue> targetIssues, CustomField complexityField) {
+        Issue first = targetIssues.get(0);
+        if (targetIssues.size() == 1) {
+            return ExampleDocument.query(first, complexityField);
+        }
+        StringBuilder text = new StringBuilder();
+        for (Issue issue : targetIssues) {
+            text.append(issue.getSummary()).append(' ');
+        }
+        return new ExampleDocument(null, first.getProjectObject().getKey(), null, null, 0L, text.toString());
+    }
+
+    // Оценка по среднему (как в getAverageTimeByComplexity), чтобы потом сравнить ее точность с прогнозом модели
+    private Double baselineHours(Issue issue) {
+        CustomField complexityField = ComponentAccessor.getCustomFieldManager().getCustomFieldObject(COMPLEXITY_FIELD_ID);
+        if (complexityField == null || !complexityStatistics.isReady()) {
+            return null;
+        }
+        DurationStats stats = complexityStatistics.get(IssueSample.complexityValue(issue.getCustomFieldValue(complexityField)), null, null);
+        if (stats == null || stats.getCount() == 0) {
+            return null;
+        }
+        return (double) stats.getAverageMillis() / TimeUnit.HOURS.toMillis(1);
+    }
+
     // --- ПОЛНАЯ ЛОГИКА ПОИСКА ПРИМЕРОВ ---
     private List<Issue> findResolvedIssuesInSameProject(Issue currentIssue, SearchService searchService, int limit) {
         List<Issue> exampleIssues = new ArrayList<>();
@@ -210,102 +539,85 @@ public class GeminiPredictionService {
         SearchService.ParseResult parseResult = searchService.parseQuery(searchUser, jqlQuery);
         if (parseResult.isValid()) {
             try {
-                SearchResults searchResults = searchService.search(searchUser, parseResult.getQuery(), new PagerFilter(limit));
+                SearchResults searchResults = searchService.search(searchUser, parseResult.getQuery(), new PagerFilter<>(limit));
                 if (searchResults != null) { exampleIssues.addAll(searchResults.getIssues()); }
             } catch (SearchException e) { log.error("Search error", e); }
         }
         return exampleIssues;
     }
 
-    // --- ПОЛНАЯ ЛОГИКА ПОСТРОЕНИЯ ПРОМПТА (Как в вашем оригинале) ---
-    private String buildPromptForIssueWithExamples(Issue currentIssue, List<Issue> exampleIssues) {
-        StringBuilder promptBuilder = new StringBuilder();
-        promptBuilder.append("Ты - эксперт по оценке времени выполнения задач в Jira. Твоя задача - на основе предоставленной информации о задаче дать краткий прогноз времени, необходимого для ее полного выполнения. Пожалуйста, ответь только предполагаемым временем (например, '2-3 дня', 'около 4 часов', '1 неделя'). Не добавляй никаких других объяснений.\n\n");
-
-        promptBuilder.append("--- Информация об оцениваемой задаче ---\n");
-        promptBuilder.append("Заголовок: ").append(currentIssue.getSummary()).append("\n");
+    // Среднее время решения задач той же сложности из заранее посчитанной статистики (без JQL)
+    public String getAverageTimeByComplexity(Issue currentIssue) {
+        if (currentIssue == null) return "N/A";
+        CustomField complexityField = ComponentAccessor.getCustomFieldManager().getCustomFieldObject(COMPLEXITY_FIELD_ID);
+        if (complexityField == null) return "N/A (сложность не указана)";
 
-        if (currentIssue.getDescription() != null && !currentIssue.getDescription().trim().isEmpty()) {
-            String desc = currentIssue.getDescription().replaceAll("<[^>]*>", "").trim();
-            promptBuilder.append("Описание: ").append(desc.substring(0, Math.min(desc.length(), 500))).append("\n");
-        }
+        String complexity = IssueSample.complexityValue(currentIssue.getCustomFieldValue(complexityField));
+        if (complexity == null) return "N/A (сложность не указана)";
 
-        promptBuilder.append("Тип: ").append(currentIssue.getIssueType().getName()).append("\n");
-        if (currentIssue.getPriority() != null) {
-            promptBuilder.append("Приоритет: ").append(currentIssue.getPriority().getName()).append("\n");
+        if (!complexityStatistics.isReady()) {
+            return "Нет данных (статистика еще собирается)";
         }
-
-        CustomField complexityField = ComponentAccessor.getCustomFieldManager().getCustomFieldObject(COMPLEXITY_FIELD_ID);
-        if (complexityField != null) {
-            Object val = currentIssue.getCustomFieldValue(complexityField);
-            promptBuilder.append("Уровень сложности (1-10): ").append(val != null ? val.toString() : "Не указан").append("\n");
+        DurationStats stats = complexityStatistics.get(complexity, null, null);
+        // Среднее берется из готового агрегата; число задач в нем - то, что раньше сканировал JQL
+        metrics.increment(PredictionMetrics.AVERAGE_LOOKUPS);
+        metrics.add(PredictionMetrics.AVERAGE_SAMPLES, stats != null ? stats.getCount() : 0);
+        if (stats != null && stats.getCount() > 0) {
+            return String.format("%s (на основе %d задач)", formatDuration(stats.getAverageMillis()), stats.getCount());
         }
+        return "Нет данных";
+    }
 
-        if (exampleIssues != null && !exampleIssues.isEmpty()) {
-            promptBuilder.append("\n--- Примеры решенных задач ---\n");
-            for (Issue example : exampleIssues) {
-                promptBuilder.append("\nЗадача: ").append(example.getSummary()).append("\n");
+    /**
+     * Разброс сроков для задач той же сложности: "50% задач решены за X, 80% - за Y, 95% - за Z".
+     * Среднее сильно смещают редкие долгие задачи, по перцентилям планировать надежнее.
+     */
+    public String getPercentilesByComplexity(Issue currentIssue) {
+        DurationStats stats = getComplexityStats(currentIssue);
+        if (stats == null || stats.getCount() == 0) return null;
+        return String.format("50%% задач решены за %s, 80%% - за %s, 95%% - за %s",
+                formatDuration(stats.getPercentileMillis(0.5)),
+                formatDuration(stats.getPercentileMillis(0.8)),
+                formatDuration(stats.getPercentileMillis(0.95)));
+    }
 
-                Object exComplexity = (complexityField != null) ? example.getCustomFieldValue(complexityField) : "N/A";
-                promptBuilder.append("Сложность: ").append(exComplexity).append("\n");
+    /**
+     * Агрегат сроков решения задач той же сложности; null, если сложность не указана или статистика еще собирается.
+     */
+    public DurationStats getComplexityStats(Issue issue) {
+        if (issue == null || !complexityStatistics.isReady()) return null;
+        CustomField complexityField = ComponentAccessor.getCustomFieldManager().getCustomFieldObject(COMPLEXITY_FIELD_ID);
+        if (complexityField == null) return null;
+        return complexityStatistics.get(IssueSample.complexityValue(issue.getCustomFieldValue(complexityField)), null, null);
+    }
 
-                if (example.getResolutionDate() != null && example.getCreated() != null) {
-                    long durationMillis = example.getResolutionDate().getTime() - example.getCreated().getTime();
-                    long days = TimeUnit.MILLISECONDS.toDays(durationMillis);
-                    long hours = TimeUnit.MILLISECONDS.toHours(durationMillis - TimeUnit.DAYS.toMillis(days));
-                    promptBuilder.append("Фактическое время: ").append(days > 0 ? days + " дн. " : "").append(hours).append(" ч.\n");
-                }
+    /**
+     * Последние сохраненные прогнозы задач без обращения к модели и без поиска примеров:
+     * сначала память этого узла, остальные - одним запросом к истории. Задач без прогноза в результате нет.
+     * Входные данные могли с тех пор измениться - тогда задача уже стоит в очереди на пересчет.
+     */
+    public Map<Long, PredictionCache.CachedPrediction> getCachedPredictions(Collection<Long> issueIds) {
+        Map<Long, PredictionCache.CachedPrediction> found = predictionCache.getLatestInMemory(issueIds);
+        List<Long> missing = new ArrayList<>();
+        for (Long issueId : issueIds) {
+            if (!found.containsKey(issueId)) {
+                missing.add(issueId);
             }
         }
-
-        promptBuilder.append("\nТвой краткий прогноз времени выполнения:");
-        return promptBuilder.toString();
-    }
-
-    private String readStream(HttpURLConnection conn) throws Exception {
-        boolean isSuccess = conn.getResponseCode() < 400;
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
-                isSuccess ? conn.getInputStream() : conn.getErrorStream(), StandardCharsets.UTF_8))) {
-            StringBuilder sb = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) sb.append(line.trim());
-            return sb.toString();
+        if (!missing.isEmpty()) {
+            for (Map.Entry<Long, PredictionEntry> entry : historyStore.findLatestForIssues(missing).entrySet()) {
+                PredictionEntry history = entry.getValue();
+                // 0 - время прогноза неизвестно (перенесен из старого формата)
+                found.put(entry.getKey(), new PredictionCache.CachedPrediction(null, history.getPredictionText(), null,
+                        history.getCreatedAt() != null ? history.getCreatedAt() : 0L));
+            }
         }
+        return found;
     }
 
-    // Метод расчета среднего (оставлен без изменений)
-    public String getAverageTimeByComplexity(Issue currentIssue) {
-        if (currentIssue == null) return "N/A";
-        SearchService searchService = ComponentAccessor.getOSGiComponentInstanceOfType(SearchService.class);
-        ApplicationUser user = ComponentAccessor.getJiraAuthenticationContext().getLoggedInUser();
-        CustomField complexityField = ComponentAccessor.getCustomFieldManager().getCustomFieldObject(COMPLEXITY_FIELD_ID);
-
-        Object rawVal = currentIssue.getCustomFieldValue(complexityField);
-        if (rawVal == null) return "N/A (сложность не указана)";
-
-        String complexitySearchTerm = (rawVal instanceof Option) ? ((Option) rawVal).getValue() : rawVal.toString();
-        String jql = String.format("cf[%s] = \"%s\" AND resolutiondate IS NOT EMPTY",
-                COMPLEXITY_FIELD_ID.replace("customfield_", ""), complexitySearchTerm.replace("\"", "\\\""));
-
-        SearchService.ParseResult parseResult = searchService.parseQuery(user, jql);
-        if (parseResult.isValid()) {
-            try {
-                SearchResults results = searchService.search(user, parseResult.getQuery(), PagerFilter.getUnlimitedFilter());
-                long total = 0; int count = 0;
-                for (Issue resolvedIssue : results.getIssues()) {
-                    if (resolvedIssue.getCreated() != null && resolvedIssue.getResolutionDate() != null) {
-                        total += (resolvedIssue.getResolutionDate().getTime() - resolvedIssue.getCreated().getTime());
-                        count++;
-                    }
-                }
-                if (count > 0) {
-                    long avgMillis = total / count;
-                    long days = TimeUnit.MILLISECONDS.toDays(avgMillis);
-                    long hours = TimeUnit.MILLISECONDS.toHours(avgMillis - TimeUnit.DAYS.toMillis(days));
-                    return String.format("~%d дн. %d ч. (на основе %d задач)", days, hours, count);
-                }
-            } catch (Exception e) { log.error("Avg calculation error", e); }
-        }
-        return "Нет данных";
+    private static String formatDuration(long millis) {
+        long days = TimeUnit.MILLISECONDS.toDays(millis);
+        long hours = TimeUnit.MILLISECONDS.toHours(millis - TimeUnit.DAYS.toMillis(days));
+        return String.format("~%d дн. %d ч.", days, hours);
     }
-}
\ No newline at end of file
+}
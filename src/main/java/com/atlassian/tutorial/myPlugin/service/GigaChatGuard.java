@@ -0,0 +1,207 @@
+package com.atlassian.tutorial.myPlugin.service;
+
+import com.atlassian.tutorial.myPlugin.llm.LlmUnavailableException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Защита Jira от сбоев GigaChat. Каждый HTTP-запрос (токен и прогноз) проходит через:
+ * <ul>
+ *     <li>{@link CircuitBreaker} - при серии сбоев запросы сразу отклоняются;</li>
+ *     <li>{@link RateLimiter} - не больше квоты API в секунду, поток ждет разрешения недолго;</li>
+ *     <li>семафор - не больше {@value #MAX_IN_FLIGHT} одновременных запросов с узла;</li>
+ *     <li>повторы с экспоненциальной задержкой для таймаутов, 429 и 5xx, ограниченные бюджетом,
+ *     чтобы при массовом сбое повторы не умножали нагрузку.</li>
+ * </ul>
+ * Если запрос не разрешен, бросается {@link UnavailableException}, и сервис отдает запасной прогноз.
+ */
+public class GigaChatGuard {
+
+    private static final Logger log = LoggerFactory.getLogger(GigaChatGuard.class);
+
+    public static final double DEFAULT_REQUESTS_PER_SECOND = 2;
+
+    private static final int FAILURE_THRESHOLD = 5;
+    private static final long OPEN_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    // Дольше ждать разрешения лимита нет смысла: поток держит запрос пользователя
+    private static final long MAX_PERMIT_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(3);
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BASE_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(5);
+    // Повторов не больше 20% от запросов (плюс небольшой запас на старте)
+    private static final double RETRY_BUDGET_RATIO = 0.2;
+    private static final double RETRY_BUDGET_MAX = 10;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    // Одновременных запросов к GigaChat со всего узла (панели задач, пакетный прогноз, токен)
+    private static final int MAX_IN_FLIGHT = 4;
+    private static final long MAX_IN_FLIGHT_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker("GigaChat", FAILURE_THRESHOLD, OPEN_MILLIS);
+    private final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT, true);
+    private volatile double requestsPerSecond;
+    private volatile RateLimiter rateLimiter;
+    private double retryBudget = RETRY_BUDGET_MAX;
+
+    public GigaChatGuard() {
+        setRequestsPerSecond(DEFAULT_REQUESTS_PER_SECOND);
+    }
+
+    /**
+     * Квота API из настроек; лимитер пересоздается, только если она изменилась.
+     */
+    public synchronized void setRequestsPerSecond(double value) {
+        double rate = value > 0 ? value : DEFAULT_REQUESTS_PER_SECOND;
+        if (rateLimiter == null || rate != requestsPerSecond) {
+            requestsPerSecond = rate;
+            rateLimiter = new RateLimiter(rate, Math.max(1, (int) Math.ceil(rate * 2)));
+        }
+    }
+
+    /**
+     * false, пока предохранитель разомкнут: запрос к GigaChat будет сразу отклонен.
+     */
+    public boolean isAvailable() {
+        return circuitBreaker.isCallPermitted();
+    }
+
+    public CircuitBreaker.State getState() {
+        return circuitBreaker.getState();
+    }
+
+    /**
+     * Один HTTP-вызов GigaChat, который защитник может повторить.
+     */
+    public interface Call {
+        GigaChatHttpClient.HttpResult execute() throws IOException;
+    }
+
+    public GigaChatHttpClient.HttpResult post(GigaChatHttpClient client, String url, Map<String, String> headers, String body)
+            throws IOException, UnavailableException {
+        return execute(() -> client.post(url, headers, body));
+    }
+
+    public GigaChatHttpClient.HttpResult execute(Call call) throws IOException, UnavailableException {
+        depositRetryBudget();
+        for (int attempt = 1; ; attempt++) {
+            if (!circuitBreaker.allowRequest()) {
+                throw new UnavailableException("GigaChat временно недоступен");
+            }
+            acquirePermit();
+            acquireInFlightSlot();
+
+            GigaChatHttpClient.HttpResult result = null;
+            IOException failure = null;
+            try {
+                result = call.execute();
+            } catch (IOException e) {
+                failure = e;
+            } catch (RuntimeException e) {
+                circuitBreaker.release();
+                throw e;
+            } finally {
+                inFlight.release();
+            }
+            if (failure == null && !isRetriable(result.getStatus())) {
+                // 4xx кроме 429 - ошибка запроса, а не сбой сервиса
+                circuitBreaker.onSuccess();
+                return result;
+            }
+            circuitBreaker.onFailure();
+
+            long delay = backoffMillis(attempt, result);
+            // Оборванный поток не повторяем: его начало уже показано пользователю
+            if (attempt >= MAX_ATTEMPTS || delay > MAX_BACKOFF_MILLIS || failure instanceof GigaChatHttpClient.StreamBrokenException
+                    || !circuitBreaker.isCallPermitted() || !tryRetryBudget()) {
+                if (failure != null) {
+                    throw failure;
+                }
+                return result;
+            }
+            log.debug("GigaChat request failed ({}), retry {} in {} ms",
+                    failure != null ? failure.getMessage() : result.getStatus(), attempt, delay);
+            try {
+                TimeUnit.MILLISECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UnavailableException("Запрос к GigaChat прерван");
+            }
+        }
+    }
+
+    private void acquirePermit() throws UnavailableException {
+        boolean permitted;
+        try {
+            permitted = rateLimiter.tryAcquire(MAX_PERMIT_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            permitted = false;
+        }
+        if (!permitted) {
+            circuitBreaker.release();
+            throw new UnavailableException("Превышен лимит запросов к GigaChat");
+        }
+    }
+
+    private void acquireInFlightSlot() throws UnavailableException {
+        boolean acquired;
+        try {
+            acquired = inFlight.tryAcquire(MAX_IN_FLIGHT_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            circuitBreaker.release();
+            throw new UnavailableException("Слишком много одновременных запросов к GigaChat");
+        }
+    }
+
+    /**
+     * Сколько запросов к GigaChat выполняется прямо сейчас.
+     */
+    public int getInFlightCount() {
+        return MAX_IN_FLIGHT - inFlight.availablePermits();
+    }
+
+    private static boolean isRetriable(int status) {
+        return status == HTTP_TOO_MANY_REQUESTS || status >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+    }
+
+    // Retry-After сервера важнее своей оценки; иначе случайная задержка в верхней половине окна, чтобы повторы разных потоков не совпадали
+    private static long backoffMillis(int attempt, GigaChatHttpClient.HttpResult result) {
+        if (result != null && result.getRetryAfterSeconds() > 0) {
+            return TimeUnit.SECONDS.toMillis(result.getRetryAfterSeconds());
+        }
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << (attempt - 1));
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    private synchronized void depositRetryBudget() {
+        retryBudget = Math.min(RETRY_BUDGET_MAX, retryBudget + RETRY_BUDGET_RATIO);
+    }
+
+    private synchronized boolean tryRetryBudget() {
+        if (retryBudget < 1) {
+            return false;
+        }
+        retryBudget -= 1;
+        return true;
+    }
+
+    /**
+     * Запрос к GigaChat не отправлен: разомкнут предохранитель или исчерпан лимит.
+     */
+    public static class UnavailableException extends LlmUnavailableException {
+        public UnavailableException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.atlassian.tutorial.myPlugin.service;
+
+import javax.net.ssl.*;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Общий HTTP-транспорт для GigaChat.
+ * SSLContext создается один раз на клиента. Один и тот же SSLSocketFactory вместе с полностью
+ * вычитанным ответом позволяют JDK (KeepAliveCache у HttpsURLConnection) переиспользовать
+ * TLS-соединение между запросами вместо нового рукопожатия на каждый прогноз.
+ */
+public class GigaChatHttpClient {
+
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 5_000;
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 60_000;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Settings settings;
+    private final SSLSocketFactory sslSocketFactory;
+    private final HostnameVerifier hostnameVerifier;
+
+    public GigaChatHttpClient(Settings settings) throws Exception {
+        this.settings = settings;
+        if (settings.getTruststorePath() != null) {
+            this.sslSocketFactory = createTruststoreSocketFactory(settings.getTruststorePath(), settings.getTruststorePassword());
+            this.hostnameVerifier = HttpsURLConnection.getDefaultHostnameVerifier();
+        } else {
+            // Без truststore ведем себя как раньше: сертификаты Минцифры в стандартном JDK отсутствуют
+            this.sslSocketFactory = createInsecureSocketFactory();
+            this.hostnameVerifier = (hostname, session) -> true;
+        }
+    }
+
+    public Settings getSettings() {
+        return settings;
+    }
+
+    public HttpResult post(String url, Map<String, String> headers, String body) throws IOException {
+        HttpsURLConnection conn = send(url, headers, body);
+        int status = conn.getResponseCode();
+        return new HttpResult(status, readFully(status < HttpURLConnection.HTTP_BAD_REQUEST ? conn.getInputStream() : conn.getErrorStream()),
+                parseRetryAfter(conn.getHeaderField("Retry-After")));
+    }
+
+    /**
+     * Запрос с потоковым ответом (SSE): успешный ответ отдается построчно в lineHandler по мере получения,
+     * тело результата при этом пустое. Ответ с ошибкой читается целиком, как в {@link #post}.
+     * Если соединение оборвалось после первой строки, бросается {@link StreamBrokenException}.
+     */
+    public HttpResult postStreaming(String url, Map<String, String> headers, String body, Consumer<String> lineHandler) throws IOException {
+        HttpsURLConnection conn = send(url, headers, body);
+        int status = conn.getResponseCode();
+        if (status != HttpURLConnection.HTTP_OK) {
+            return new HttpResult(status, readFully(status < HttpURLConnection.HTTP_BAD_REQUEST ? conn.getInputStream() : conn.getErrorStream()),
+                    parseRetryAfter(conn.getHeaderField("Retry-After")));
+        }
+        boolean received = false;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                received = true;
+                lineHandler.accept(line);
+            }
+        } catch (IOException e) {
+            if (received) {
+                throw new StreamBrokenException(e);
+            }
+            throw e;
+        }
+        return new HttpResult(status, "", 0);
+    }
+
+    private HttpsURLConnection send(String url, Map<String, String> headers, String body) throws IOException {
+        HttpsURLConnection conn = (HttpsURLConnection) new URL(url).openConnection();
+        conn.setSSLSocketFactory(sslSocketFactory);
+        conn.setHostnameVerifier(hostnameVerifier);
+        conn.setConnectTimeout(settings.getConnectTimeoutMillis());
+        conn.setReadTimeout(settings.getReadTimeoutMillis());
+        conn.setRequestMethod("POST");
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            conn.setRequestProperty(header.getKey(), header.getValue());
+        }
+        conn.setDoOutput(true);
+
+        byte[] payload = body.getBytes(StandardCharsets.UTF_8);
+        conn.setFixedLengthStreamingMode(payload.length);
+        try (OutputStream os = conn.getOutputStream()) {
+            os.write(payload);
+        }
+        return conn;
+    }
+
+    // Retry-After бывает и датой; ее не разбираем, тогда задержку выберет GigaChatGuard
+    private static long parseRetryAfter(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Читает ответ до конца и закрывает поток (но не disconnect()), иначе соединение не вернется в пул.
+     */
+    private static String readFully(InputStream stream) throws IOException {
+        if (stream == null) {
+            return "";
+        }
+        try (InputStream in = stream) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static SSLSocketFactory createTruststoreSocketFactory(String path, String password) throws Exception {
+        String type = path.toLowerCase().endsWith(".p12") || path.toLowerCase().endsWith(".pfx") ? "PKCS12" : KeyStore.getDefaultType();
+        KeyStore trustStore = KeyStore.getInstance(type);
+        try (InputStream in = new FileInputStream(path)) {
+            trustStore.load(in, password != null ? password.toCharArray() : null);
+        }
+        TrustManagerFactory tmf = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        tmf.init(trustStore);
+        SSLContext sc = SSLContext.getInstance("TLS");
+        sc.init(null, tmf.getTrustManagers(), null);
+        return sc.getSocketFactory();
+    }
+
+    // --- СЕКЦИЯ SSL (ОБХОД ПРОВЕРОК) ---
+    private static SSLSocketFactory createInsecureSocketFactory() throws Exception {
+        TrustManager[] trustAllCerts = new TrustManager[]{
+                new X509TrustManager() {
+                    public X509Certificate[] getAcceptedIssuers() { return new X509Certificate[0]; }
+                    public void checkClientTrusted(X509Certificate[] certs, String authType) {}
+                    public void checkServerTrusted(X509Certificate[] certs, String authType) {}
+                }
+        };
+        SSLContext sc = SSLContext.getInstance("TLS");
+        sc.init(null, trustAllCerts, null);
+        return sc.getSocketFactory();
+    }
+
+    /**
+     * Потоковый ответ оборвался на середине: часть текста уже отдана, повтор запроса ее продублирует.
+     */
+    public static class StreamBrokenException extends IOException {
+        StreamBrokenException(IOException cause) {
+            super("Поток ответа GigaChat оборвался: " + cause.getMessage(), cause);
+        }
+    }
+
+    public static class HttpResult {
+        private final int status;
+        private final String body;
+        private final long retryAfterSeconds;
+
+        HttpResult(int status, String body, long retryAfterSeconds) {
+            this.status = status;
+            this.body = body;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        /**
+         * Пауза, которую сервер попросил выдержать перед повтором (429/503), или 0.
+         */
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+
+        public boolean isOk() {
+            return status == HttpURLConnection.HTTP_OK;
+        }
+    }
+
+    /**
+     * Настройки транспорта из PluginSettings. Клиент пересоздается, только когда они меняются.
+     */
+    public static class Settings {
+        private final int connectTimeoutMillis;
+        private final int readTimeoutMillis;
+        private final String truststorePath;
+        private final String truststorePassword;
+
+        public Settings(int connectTimeoutMillis, int readTimeoutMillis, String truststorePath, String truststorePassword) {
+            this.connectTimeoutMillis = connectTimeoutMillis > 0 ? connectTimeoutMillis : DEFAULT_CONNECT_TIMEOUT_MILLIS;
+            this.readTimeoutMillis = readTimeoutMillis > 0 ? readTimeoutMillis : DEFAULT_READ_TIMEOUT_MILLIS;
+            this.truststorePath = truststorePath != null && !truststorePath.trim().isEmpty() ? truststorePath.trim() : null;
+            this.truststorePassword = truststorePassword;
+        }
+
+        public int getConnectTimeoutMillis() {
+            return connectTimeoutMillis;
+        }
+
+        public int getReadTimeoutMillis() {
+            return readTimeoutMillis;
+        }
+
+        public String getTruststorePath() {
+            return truststorePath;
+        }
+
+        public String getTruststorePassword() {
+            return truststorePassword;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Settings)) return false;
+            Settings that = (Settings) o;
+            return connectTimeoutMillis == that.connectTimeoutMillis
+                    && readTimeoutMillis == that.readTimeoutMillis
+                    && Objects.equals(truststorePath, that.truststorePath)
+                    && Objects.equals(truststorePassword, that.truststorePassword);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(connectTimeoutMillis, readTimeoutMillis, truststorePath, truststorePassword);
+        }
+    }
+}
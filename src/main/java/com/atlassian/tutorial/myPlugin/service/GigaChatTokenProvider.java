@@ -0,0 +1,166 @@
+package com.atlassian.tutorial.myPlugin.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Держит OAuth-токен GigaChat, пока он действителен.
+ * Незадолго до истечения токен обновляется в фоне, а если он уже истек - обновление выполняет
+ * только один поток, остальные ждут его результата вместо параллельных запросов к серверу авторизации.
+ */
+public class GigaChatTokenProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(GigaChatTokenProvider.class);
+
+    // За сколько до истечения начинаем фоновое обновление
+    private static final long REFRESH_AHEAD_MILLIS = TimeUnit.MINUTES.toMillis(2);
+    // Токен, которому осталось жить меньше этого, уже не отдаем
+    private static final long EXPIRY_SAFETY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * Получение нового токена по ключу авторизации (один HTTPS-запрос к OAuth).
+     */
+    public interface TokenFetcher {
+        AccessToken fetch(String authKey) throws Exception;
+    }
+
+    private final TokenFetcher fetcher;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private final AtomicBoolean backgroundRefreshRunning = new AtomicBoolean();
+    private final ThreadPoolExecutor refreshExecutor;
+    private volatile CachedToken current;
+
+    public GigaChatTokenProvider(TokenFetcher fetcher) {
+        this.fetcher = fetcher;
+        this.refreshExecutor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "jirapredict-token-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.refreshExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    public String getToken(String authKey) throws Exception {
+        long now = System.currentTimeMillis();
+        CachedToken token = current;
+        if (isUsable(token, authKey, now)) {
+            if (token.expiresAt - now < REFRESH_AHEAD_MILLIS) {
+                refreshInBackground(authKey);
+            }
+            return token.value;
+        }
+
+        refreshLock.lock();
+        try {
+            // Пока ждали блокировку, токен мог обновить другой поток
+            token = current;
+            if (isUsable(token, authKey, System.currentTimeMillis())) {
+                return token.value;
+            }
+            return refresh(authKey).value;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Сбрасывает токен, например после смены ключа администратором или ответа 401.
+     */
+    public void invalidate() {
+        current = null;
+    }
+
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+        current = null;
+    }
+
+    private void refreshInBackground(final String authKey) {
+        if (!backgroundRefreshRunning.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                // Если токен уже обновляет поток запроса, фоновое обновление не нужно
+                if (refreshLock.tryLock()) {
+                    try {
+                        refresh(authKey);
+                    } catch (Exception e) {
+                        log.warn("Background GigaChat token refresh failed: {}", e.getMessage());
+                    } finally {
+                        refreshLock.unlock();
+                        backgroundRefreshRunning.set(false);
+                    }
+                } else {
+                    backgroundRefreshRunning.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            backgroundRefreshRunning.set(false);
+        }
+    }
+
+    private CachedToken refresh(String authKey) throws Exception {
+        AccessToken accessToken = fetcher.fetch(authKey);
+        CachedToken token = new CachedToken(accessToken.getValue(), accessToken.getExpiresAt(), authKey);
+        current = token;
+        log.debug("GigaChat token refreshed, expires at {}", token.expiresAt);
+        return token;
+    }
+
+    private static boolean isUsable(CachedToken token, String authKey, long now) {
+        return token != null && token.authKey.equals(authKey) && token.expiresAt - now > EXPIRY_SAFETY_MILLIS;
+    }
+
+    /**
+     * Токен и момент его истечения (epoch millis), как их вернул сервер авторизации.
+     */
+    public static class AccessToken {
+        // GigaChat выдает токены на 30 минут, используем это, если expires_at не пришел
+        private static final long DEFAULT_LIFETIME_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
+        private final String value;
+        private final long expiresAt;
+
+        public AccessToken(String value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * expires_at у GigaChat в миллисекундах, но на всякий случай понимаем и секунды.
+         */
+        public static AccessToken fromOAuthResponse(String value, long expiresAt) {
+            if (expiresAt <= 0) {
+                return new AccessToken(value, System.currentTimeMillis() + DEFAULT_LIFETIME_MILLIS);
+            }
+            return new AccessToken(value, expiresAt < 100_000_000_000L ? TimeUnit.SECONDS.toMillis(expiresAt) : expiresAt);
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+    }
+
+    private static class CachedToken {
+        private final String value;
+        private final long expiresAt;
+        private final String authKey;
+
+        CachedToken(String value, long expiresAt, String authKey) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.authKey = authKey;
+        }
+    }
+}
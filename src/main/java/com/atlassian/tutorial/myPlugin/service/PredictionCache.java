@@ -0,0 +1,191 @@
+package com.atlassian.tutorial.myPlugin.service;
+
+import com.atlassian.tutorial.myPlugin.cluster.ClusterCoordinator;
+import com.atlassian.tutorial.myPlugin.store.PredictionEntry;
+import com.atlassian.tutorial.myPlugin.store.PredictionHistoryStore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Кэш прогнозов по задаче: LRU в памяти перед историей прогнозов. Долговременный уровень - последняя запись
+ * задачи в {@link PredictionHistoryStore}: прогноз сохраняется туда вместе с отпечатком, отдельной копии нет.
+ * Запись действительна, пока совпадает отпечаток входных данных (см. {@link PredictionFingerprint}).
+ * История общая для узлов кластера, а LRU у каждого свой: при записи остальные узлы
+ * получают сообщение и забывают свою копию. Промпт хранится только в памяти.
+ */
+public class PredictionCache {
+
+    private static final Logger log = LoggerFactory.getLogger(PredictionCache.class);
+
+    private static final int DEFAULT_MEMORY_CAPACITY = 1000;
+    public static final String CLUSTER_CHANNEL = "jp.prediction";
+
+    private final PredictionHistoryStore historyStore;
+    private final Map<Long, CachedPrediction> memory;
+    private final ClusterCoordinator cluster;
+
+    public PredictionCache(PredictionHistoryStore historyStore) {
+        this(historyStore, DEFAULT_MEMORY_CAPACITY, null);
+    }
+
+    public PredictionCache(PredictionHistoryStore historyStore, int memoryCapacity) {
+        this(historyStore, memoryCapacity, null);
+    }
+
+    public PredictionCache(PredictionHistoryStore historyStore, ClusterCoordinator cluster) {
+        this(historyStore, DEFAULT_MEMORY_CAPACITY, cluster);
+    }
+
+    /**
+     * @param historyStore null - только память
+     * @param cluster      null - без кластера, копии на других узлах не сбрасываются
+     */
+    public PredictionCache(PredictionHistoryStore historyStore, final int memoryCapacity, ClusterCoordinator cluster) {
+        this.historyStore = historyStore;
+        this.memory = new LinkedHashMap<Long, CachedPrediction>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedPrediction> eldest) {
+                return size() > memoryCapacity;
+            }
+        };
+        this.cluster = cluster;
+        if (cluster != null) {
+            cluster.subscribe(CLUSTER_CHANNEL, message -> evictLocal(Long.valueOf(message)));
+        }
+    }
+
+    /**
+     * Возвращает прогноз, если он посчитан для тех же входных данных, иначе null.
+     * Устаревшая запись (другой отпечаток) остается: ее отдает {@link #getLatest}, пока модель недоступна,
+     * а заменит ее следующий посчитанный прогноз.
+     */
+    public CachedPrediction get(Long issueId, String fingerprint) {
+        CachedPrediction cached;
+        synchronized (memory) {
+            cached = memory.get(issueId);
+        }
+        if (cached != null && !fingerprint.equals(cached.getFingerprint())) {
+            // Другой узел мог уже записать свежий прогноз, а сообщение о нем еще не дошло
+            cached = null;
+        }
+        if (cached == null) {
+            cached = loadDurable(issueId);
+            if (cached != null) {
+                synchronized (memory) {
+                    memory.put(issueId, cached);
+                }
+            }
+        }
+        if (cached == null) {
+            return null;
+        }
+        if (!fingerprint.equals(cached.getFingerprint())) {
+            log.debug("Prediction for issue {} is stale, inputs have changed", issueId);
+            return null;
+        }
+        return cached;
+    }
+
+    /**
+     * Последний сохраненный прогноз задачи, даже если входные данные с тех пор изменились.
+     * Нужен как запасной ответ, пока GigaChat недоступен.
+     */
+    public CachedPrediction getLatest(Long issueId) {
+        CachedPrediction cached;
+        synchronized (memory) {
+            cached = memory.get(issueId);
+        }
+        return cached != null ? cached : loadDurable(issueId);
+    }
+
+    /**
+     * Прогнозы из памяти этого узла по переданным задачам, без чтения истории.
+     */
+    public Map<Long, CachedPrediction> getLatestInMemory(Collection<Long> issueIds) {
+        Map<Long, CachedPrediction> found = new HashMap<>();
+        synchronized (memory) {
+            for (Long issueId : issueIds) {
+                CachedPrediction cached = memory.get(issueId);
+                if (cached != null) {
+                    found.put(issueId, cached);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Запоминает прогноз, уже записанный в историю вместе с отпечатком.
+     */
+    public void put(Long issueId, String fingerprint, String prediction, String prompt) {
+        CachedPrediction cached = new CachedPrediction(fingerprint, prediction, prompt, System.currentTimeMillis());
+        synchronized (memory) {
+            memory.put(issueId, cached);
+        }
+        notifyCluster(issueId);
+    }
+
+    /**
+     * Забывает копию в памяти этого узла; запись в истории остается.
+     */
+    public void evictLocal(Long issueId) {
+        synchronized (memory) {
+            memory.remove(issueId);
+        }
+    }
+
+    private void notifyCluster(Long issueId) {
+        if (cluster != null) {
+            cluster.publish(CLUSTER_CHANNEL, String.valueOf(issueId));
+        }
+    }
+
+    private CachedPrediction loadDurable(Long issueId) {
+        if (historyStore == null) {
+            return null;
+        }
+        PredictionEntry latest = historyStore.findLatestForIssue(issueId);
+        if (latest == null) {
+            return null;
+        }
+        // 0 - время прогноза неизвестно (перенесен из старого формата)
+        return new CachedPrediction(latest.getFingerprint(), latest.getPredictionText(), null,
+                latest.getCreatedAt() != null ? latest.getCreatedAt() : 0L);
+    }
+
+    public static class CachedPrediction {
+        private final String fingerprint;
+        private final String prediction;
+        private final String prompt;
+        private final long createdAt;
+
+        CachedPrediction(String fingerprint, String prediction, String prompt, long createdAt) {
+            this.fingerprint = fingerprint;
+            this.prediction = prediction;
+            this.prompt = prompt;
+            this.createdAt = createdAt;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public String getPrediction() {
+            return prediction;
+        }
+
+        public String getPrompt() {
+            return prompt;
+        }
+
+        public long getCreatedAt() {
+            return createdAt;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.atlassian.tutorial.myPlugin.service;
+
+import com.atlassian.sal.api.pluginsettings.PluginSettings;
+import com.atlassian.tutorial.myPlugin.llm.LlmProviderRegistry;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Неизменяемый снимок настроек плагина. Читается из PluginSettings один раз при старте и после
+ * {@link PredictionConfigChangedEvent}, прогноз берет готовый снимок из памяти и в хранилище настроек не ходит.
+ * Незаданные и некорректные значения заменяются значениями по умолчанию.
+ */
+public final class PredictionConfig {
+
+    public static final PredictionConfig DEFAULT = new PredictionConfig(null, new GigaChatHttpClient.Settings(0, 0, null, null),
+            0, 0, DurationParser.DEFAULT, null, Collections.<String, String>emptyMap());
+
+    private final String authKey;
+    private final GigaChatHttpClient.Settings httpSettings;
+    private final double requestsPerSecond;
+    private final int promptTokenBudget;
+    private final DurationParser durationParser;
+    private final String defaultProviderId;
+    private final Map<String, String> projectProviders;
+
+    private PredictionConfig(String authKey, GigaChatHttpClient.Settings httpSettings, double requestsPerSecond,
+                             int promptTokenBudget, DurationParser durationParser, String defaultProviderId,
+                             Map<String, String> projectProviders) {
+        this.authKey = authKey;
+        this.httpSettings = httpSettings;
+        this.requestsPerSecond = requestsPerSecond;
+        this.promptTokenBudget = promptTokenBudget;
+        this.durationParser = durationParser;
+        this.defaultProviderId = defaultProviderId;
+        this.projectProviders = projectProviders;
+    }
+
+    public static PredictionConfig load(PluginSettings settings) {
+        String key = (String) settings.get(GeminiPredictionService.GEMINI_API_KEY_PLUGIN_SETTING);
+        Object defaultProvider = settings.get(LlmProviderRegistry.DEFAULT_PROVIDER_SETTING);
+        return new PredictionConfig(
+                key != null && !key.trim().isEmpty() ? key.trim() : null,
+                new GigaChatHttpClient.Settings(
+                        parseInt(settings.get(GeminiPredictionService.CONNECT_TIMEOUT_SETTING)),
+                        parseInt(settings.get(GeminiPredictionService.READ_TIMEOUT_SETTING)),
+                        (String) settings.get(GeminiPredictionService.TRUSTSTORE_PATH_SETTING),
+                        (String) settings.get(GeminiPredictionService.TRUSTSTORE_PASSWORD_SETTING)),
+                parseDouble(settings.get(GeminiPredictionService.REQUESTS_PER_SECOND_SETTING)),
+                parseInt(settings.get(GeminiPredictionService.PROMPT_TOKEN_BUDGET_SETTING)),
+                // Длина рабочего дня и недели нужна, чтобы перевести "2 дня" в часы
+                new DurationParser(parseDouble(settings.get(GeminiPredictionService.WORKDAY_HOURS_SETTING)),
+                        parseDouble(settings.get(GeminiPredictionService.WORKWEEK_DAYS_SETTING))),
+                defaultProvider != null ? defaultProvider.toString() : null,
+                Collections.unmodifiableMap(LlmProviderRegistry.parseProjectProviders(
+                        (String) settings.get(LlmProviderRegistry.PROJECT_PROVIDERS_SETTING))));
+    }
+
+    /**
+     * Ключ авторизации GigaChat или null, если не задан.
+     */
+    public String getAuthKey() {
+        return authKey;
+    }
+
+    public GigaChatHttpClient.Settings getHttpSettings() {
+        return httpSettings;
+    }
+
+    /**
+     * Лимит запросов к модели; 0 - значение по умолчанию.
+     */
+    public double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    /**
+     * Бюджет промпта в токенах; 0 - значение по умолчанию.
+     */
+    public int getPromptTokenBudget() {
+        return promptTokenBudget;
+    }
+
+    public DurationParser getDurationParser() {
+        return durationParser;
+    }
+
+    /**
+     * Провайдер по умолчанию из настроек или null, если не выбран.
+     */
+    public String getDefaultProviderId() {
+        return defaultProviderId;
+    }
+
+    /**
+     * Переопределения провайдера по ключу проекта (в верхнем регистре).
+     */
+    public Map<String, String> getProjectProviders() {
+        return projectProviders;
+    }
+
+    // Число из PluginSettings; 0, если не задано или не число (тогда берется значение по умолчанию)
+    private static double parseDouble(Object value) {
+        if (value == null) return 0;
+        try {
+            return Double.parseDouble(value.toString().trim().replace(',', '.'));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static int parseInt(Object value) {
+        if (value == null) return 0;
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
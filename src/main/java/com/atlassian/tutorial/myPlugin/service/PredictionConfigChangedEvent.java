@@ -0,0 +1,21 @@
+package com.atlassian.tutorial.myPlugin.service;
+
+/**
+ * Публикуется в EventPublisher после сохранения настроек на странице конфигурации.
+ * {@link GeminiPredictionService} в ответ перечитывает настройки и подменяет свой {@link PredictionConfig}.
+ */
+public class PredictionConfigChangedEvent {
+
+    private final String username;
+
+    public PredictionConfigChangedEvent(String username) {
+        this.username = username;
+    }
+
+    /**
+     * Кто сохранил настройки.
+     */
+    public String getUsername() {
+        return username;
+    }
+}
@@ -0,0 +1,249 @@
+package com.atlassian.tutorial.myPlugin.service;
+
+import com.atlassian.jira.component.ComponentAccessor;
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.permission.GlobalPermissionKey;
+import com.atlassian.jira.security.JiraAuthenticationContext;
+import com.atlassian.jira.user.ApplicationUser;
+
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Считает прогнозы AI в фоне, чтобы панель задачи не ждала GigaChat.
+ * Пул ограничен по потокам и по очереди: при переполнении задача сразу получает статус REJECTED.
+ */
+public class PredictionExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(PredictionExecutor.class);
+
+    private static final int POOL_SIZE = 2;
+    private static final int QUEUE_CAPACITY = 50;
+    // Сколько держим готовый результат, чтобы JS панели успел его забрать
+    private static final long RESULT_RETENTION_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final GeminiPredictionService geminiService;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentMap<Long, PredictionTask> tasks = new ConcurrentHashMap<>();
+
+    public PredictionExecutor(GeminiPredictionService geminiService) {
+        this.geminiService = geminiService;
+        this.executor = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), new PredictionThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Ставит задачу в очередь на прогноз, если по ней еще ничего не считается.
+     * Выполняющаяся задача переиспользуется, как и успешно завершенная в пределах {@link #RESULT_RETENTION_MILLIS},
+     * если задачу с тех пор не меняли: повторный просмотр не занимает пул. Иначе прогноз запрашивается заново,
+     * и при тех же входных данных сервис отдаст его из кэша по отпечатку.
+     */
+    public PredictionTask submit(Issue issue, ApplicationUser user) {
+        evictExpired();
+        Long issueId = issue.getId();
+        PredictionTask existing = tasks.get(issueId);
+        if (existing != null && (!existing.isDone() || isReusable(existing, issue))) {
+            return existing;
+        }
+
+        PredictionTask task = new PredictionTask(issue.getKey());
+        if (existing == null ? tasks.putIfAbsent(issueId, task) != null : !tasks.replace(issueId, existing, task)) {
+            // Параллельный запрос успел поставить свою задачу раньше нас
+            return tasks.get(issueId);
+        }
+
+        try {
+            executor.execute(() -> runPrediction(task, issue, user));
+        } catch (RejectedExecutionException e) {
+            log.warn("Prediction queue is full, issue {} rejected", issue.getKey());
+            task.reject();
+        }
+        return task;
+    }
+
+    public PredictionTask getTask(Long issueId) {
+        return tasks.get(issueId);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        tasks.clear();
+    }
+
+    private void runPrediction(PredictionTask task, Issue issue, ApplicationUser user) {
+        // Фоновый поток не знает пользователя запроса, а от него зависят права на JQL-поиск примеров
+        JiraAuthenticationContext authContext = ComponentAccessor.getJiraAuthenticationContext();
+        ApplicationUser previousUser = authContext.getLoggedInUser();
+        authContext.setLoggedInUser(user);
+        try {
+            task.complete(geminiService.getPredictionFromGemini(issue, task::appendPartial));
+        } catch (Exception e) {
+            log.error("Background prediction failed for {}", issue.getKey(), e);
+            task.fail(e);
+        } finally {
+            authContext.setLoggedInUser(previousUser);
+        }
+    }
+
+    private static boolean isReusable(PredictionTask task, Issue issue) {
+        return task.getStatus() == Status.DONE
+                && System.currentTimeMillis() - task.getFinishedAt() <= RESULT_RETENTION_MILLIS
+                && (issue.getUpdated() == null || issue.getUpdated().getTime() <= task.getFinishedAt());
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        tasks.values().removeIf(task -> task.isDone() && now - task.getFinishedAt() > RESULT_RETENTION_MILLIS);
+    }
+
+    public enum Status { PENDING, DONE, FAILED, REJECTED }
+
+    /**
+     * Состояние одного фонового прогноза. Результат - та же карта prompt/prediction, что отдает сервис.
+     * Пока ответ идет потоком, уже полученный текст доступен через {@link #awaitPartial}.
+     */
+    public static class PredictionTask {
+        private final String issueKey;
+        private final CompletableFuture<Map<String, String>> future = new CompletableFuture<>();
+        private final StringBuilder partial = new StringBuilder();
+        private volatile long finishedAt;
+
+        PredictionTask(String issueKey) {
+            this.issueKey = issueKey;
+        }
+
+        synchronized void appendPartial(String delta) {
+            partial.append(delta);
+            notifyAll();
+        }
+
+        void complete(Map<String, String> result) {
+            finishedAt = System.currentTimeMillis();
+            future.complete(result);
+            wakeUp();
+        }
+
+        void fail(Throwable e) {
+            finishedAt = System.currentTimeMillis();
+            future.completeExceptionally(e);
+            wakeUp();
+        }
+
+        private synchronized void wakeUp() {
+            notifyAll();
+        }
+
+        /**
+         * Ждет, пока текста станет больше knownLength символов или задача завершится,
+         * и возвращает весь полученный на этот момент текст.
+         */
+        public synchronized String awaitPartial(int knownLength, long timeoutMillis) {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            long left = timeoutMillis;
+            while (partial.length() <= knownLength && !future.isDone() && left > 0) {
+                try {
+                    wait(left);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                left = deadline - System.currentTimeMillis();
+            }
+            return partial.toString();
+        }
+
+        void reject() {
+            fail(new RejectedExecutionException("Очередь прогнозов переполнена"));
+        }
+
+        /**
+         * Ждет результат не дольше указанного времени (для long-poll).
+         */
+        public Status await(long timeout, TimeUnit unit) {
+            if (timeout > 0 && !future.isDone()) {
+                try {
+                    future.get(timeout, unit);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException | TimeoutException ignored) {
+                    // статус ниже скажет, чем все закончилось
+                }
+            }
+            return getStatus();
+        }
+
+        public boolean isDone() {
+            return future.isDone();
+        }
+
+        public String getIssueKey() {
+            return issueKey;
+        }
+
+        public Status getStatus() {
+            if (!future.isDone()) {
+                return Status.PENDING;
+            }
+            if (!future.isCompletedExceptionally()) {
+                return Status.DONE;
+            }
+            try {
+                future.getNow(null);
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RejectedExecutionException) {
+                    return Status.REJECTED;
+                }
+            }
+            return Status.FAILED;
+        }
+
+        public long getFinishedAt() {
+            return finishedAt;
+        }
+
+        public Map<String, String> getResult() {
+            return getStatus() == Status.DONE ? future.getNow(null) : null;
+        }
+
+        /**
+         * Состояние для JS панели: статус и, если есть, прогноз или текст ошибки.
+         * Промпт видят только администраторы Jira: примеры в нем ищутся без учета прав смотрящего,
+         * и промпт из кэша общий для всех пользователей.
+         */
+        public JSONObject toJson(ApplicationUser viewer) {
+            Status status = getStatus();
+            JSONObject json = new JSONObject();
+            json.put("issueKey", issueKey);
+            json.put("status", status.name());
+            Map<String, String> result = getResult();
+            if (result != null) {
+                json.put("prediction", result.get("prediction"));
+                if (viewer != null && ComponentAccessor.getGlobalPermissionManager().hasPermission(GlobalPermissionKey.ADMINISTER, viewer)) {
+                    json.put("prompt", result.get("prompt"));
+                }
+            } else if (status == Status.REJECTED) {
+                json.put("prediction", "Ошибка: сервис прогнозов перегружен, попробуйте позже.");
+            } else if (status == Status.FAILED) {
+                json.put("prediction", "Ошибка: не удалось получить прогноз.");
+            }
+            return json;
+        }
+    }
+
+    private static class PredictionThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "jirapredict-prediction-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
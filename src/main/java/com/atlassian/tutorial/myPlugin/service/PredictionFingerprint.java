@@ -0,0 +1,84 @@
+package com.atlassian.tutorial.myPlugin.service;
+
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.fields.CustomField;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+
+/**
+ * Отпечаток входных данных промпта: заголовок, описание, тип, приоритет, сложность задачи и набор примеров.
+ * Если отпечаток не изменился, то и промпт для GigaChat будет тем же, и прогноз можно брать из кэша.
+ */
+public final class PredictionFingerprint {
+
+    private static final char FIELD_SEPARATOR = '\u001F';
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private PredictionFingerprint() {
+    }
+
+    public static String of(Issue issue, List<Issue> exampleIssues, CustomField complexityField) {
+        MessageDigest digest = newDigest();
+        update(digest, issue.getSummary());
+        update(digest, issue.getDescription());
+        update(digest, issue.getIssueType() != null ? issue.getIssueType().getId() : null);
+        update(digest, issue.getPriority() != null ? issue.getPriority().getId() : null);
+        update(digest, complexityOf(issue, complexityField));
+
+        if (exampleIssues != null) {
+            for (Issue example : exampleIssues) {
+                // Для примера в промпт идут заголовок, сложность и фактическое время
+                update(digest, String.valueOf(example.getId()));
+                update(digest, example.getSummary());
+                update(digest, complexityOf(example, complexityField));
+                update(digest, example.getCreated() != null ? String.valueOf(example.getCreated().getTime()) : null);
+                update(digest, example.getResolutionDate() != null ? String.valueOf(example.getResolutionDate().getTime()) : null);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * SHA-256 произвольного текста, например промпта для истории прогнозов.
+     */
+    public static String hash(String text) {
+        MessageDigest digest = newDigest();
+        update(digest, text);
+        return toHex(digest.digest());
+    }
+
+    private static String complexityOf(Issue issue, CustomField complexityField) {
+        if (complexityField == null) {
+            return null;
+        }
+        Object value = issue.getCustomFieldValue(complexityField);
+        return value != null ? value.toString() : null;
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        digest.update((byte) FIELD_SEPARATOR);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+}
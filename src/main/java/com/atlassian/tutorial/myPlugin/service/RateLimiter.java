@@ -0,0 +1,71 @@
+package com.atlassian.tutorial.myPlugin.service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket: не больше permitsPerSecond запросов в секунду в среднем и не больше burst подряд.
+ */
+public class RateLimiter {
+
+    private final double permitsPerSecond;
+    private final double burst;
+    private double availablePermits;
+    private long lastRefillNanos;
+
+    public RateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.availablePermits = burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Ждет разрешения. Возвращает false, если за timeout разрешение не появилось.
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                refill();
+                if (availablePermits >= 1) {
+                    availablePermits -= 1;
+                    return true;
+                }
+                waitNanos = (long) ((1 - availablePermits) / permitsPerSecond * TimeUnit.SECONDS.toNanos(1));
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || waitNanos > remaining) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.max(waitNanos, TimeUnit.MILLISECONDS.toNanos(1)));
+        }
+    }
+
+    public void acquire() throws InterruptedException {
+        while (!tryAcquire(1, TimeUnit.MINUTES)) {
+            // очень низкий лимит - просто ждем дальше
+        }
+    }
+
+    /**
+     * Забирает разрешение, только если оно есть прямо сейчас.
+     */
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (availablePermits >= 1) {
+            availablePermits -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        availablePermits = Math.min(burst, availablePermits + (now - lastRefillNanos) * permitsPerSecond / TimeUnit.SECONDS.toNanos(1));
+        lastRefillNanos = now;
+    }
+}
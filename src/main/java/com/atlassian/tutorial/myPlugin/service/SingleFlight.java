@@ -0,0 +1,57 @@
+package com.atlassian.tutorial.myPlugin.service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Объединение одинаковых параллельных вычислений: первый вызов с ключом считает, остальные,
+ * пришедшие до его окончания, ждут и получают тот же результат (или то же исключение).
+ * Результат не кэшируется - после завершения следующий вызов считает заново.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public V execute(K key, Callable<V> computation) throws Exception {
+        CompletableFuture<V> own = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, own);
+        if (existing != null) {
+            return await(existing);
+        }
+        try {
+            V value = computation.call();
+            own.complete(value);
+            return value;
+        } catch (Exception | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    /**
+     * Сколько вычислений выполняется прямо сейчас.
+     */
+    public int size() {
+        return inFlight.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+}
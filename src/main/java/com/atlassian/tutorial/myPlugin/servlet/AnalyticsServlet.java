@@ -1,97 +1,115 @@
-
-
+package com.atlassian.tutorial.myPlugin.servlet;
 
 import com.atlassian.jira.component.ComponentAccessor;
-import com.atlassian.jira.issue.Issue;
-import com.atlassian.jira.issue.IssueManager;
-import com.atlassian.sal.api.pluginsettings.PluginSettings;
-import com.atlassian.sal.api.pluginsettings.PluginSettingsFactory;
+import com.atlassian.jira.issue.issuetype.IssueType;
 import com.atlassian.templaterenderer.TemplateRenderer;
-import com.atlassian.tutorial.myPlugin.service.GeminiPredictionService;
+import com.atlassian.tutorial.myPlugin.stats.AccuracyMetrics;
+import com.atlassian.tutorial.myPlugin.stats.ComplexityStatistics;
+import com.atlassian.tutorial.myPlugin.stats.DurationStats;
+import com.atlassian.tutorial.myPlugin.stats.ErrorStats;
 
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class AnalyticsServlet extends HttpServlet {
+    // Сколько решенных задач показывать на графике за одну страницу
+    private static final int CHART_PAGE_SIZE = 50;
+    private static final double MILLIS_IN_HOUR = 1000 * 60 * 60;
+
     private final TemplateRenderer renderer;
-    private final PluginSettingsFactory pluginSettingsFactory;
+    private final ComplexityStatistics complexityStatistics;
+    private final AccuracyMetrics accuracyMetrics;
 
-    public AnalyticsServlet() {
+    public AnalyticsServlet(ComplexityStatistics complexityStatistics, AccuracyMetrics accuracyMetrics) {
         this.renderer = ComponentAccessor.getOSGiComponentInstanceOfType(TemplateRenderer.class);
-        this.pluginSettingsFactory = ComponentAccessor.getOSGiComponentInstanceOfType(PluginSettingsFactory.class);
+        this.complexityStatistics = complexityStatistics;
+        this.accuracyMetrics = accuracyMetrics;
     }
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
-        PluginSettings settings = pluginSettingsFactory.createGlobalSettings();
-        String history = (String) settings.get(GeminiPredictionService.PREDICTION_HISTORY_SETTING);
-
-        List<Map<String, Object>> chartData = new ArrayList<>();
-        IssueManager issueManager = ComponentAccessor.getIssueManager();
-
-        if (history != null && !history.isEmpty()) {
-            String[] entries = history.split(";");
-            // Берем последние 10-15 прогнозов для графика
-            int start = Math.max(0, entries.length - 15);
-            for (int i = start; i < entries.length; i++) {
-                String[] parts = entries[i].split(":", 2);
-                if (parts.length < 2) continue;
-
-                String issueKey = parts[0];
-                String predictedText = parts[1];
-
-                Issue issue = issueManager.getIssueObject(issueKey);
-                if (issue != null && issue.getResolutionDate() != null) {
-                    // Считаем реальное время в часах
-                    long diff = issue.getResolutionDate().getTime() - issue.getCreated().getTime();
-                    double actualHours = (double) diff / (1000 * 60 * 60);
-
-                    // Парсим прогноз из текста в число
-                    double predictedHours = parseHoursFromText(predictedText);
-
-                    Map<String, Object> dataPoint = new HashMap<>();
-                    dataPoint.put("key", issueKey);
-                    dataPoint.put("actual", Math.round(actualHours * 10.0) / 10.0); // Округление
-                    dataPoint.put("predicted", predictedHours);
-                    chartData.add(dataPoint);
-                }
-            }
-        }
-
+        // Пары "прогноз - факт" страница подгружает сама через REST, с фильтрами и постранично
         Map<String, Object> context = new HashMap<>();
-        context.put("chartData", chartData);
+        context.put("accuracyUrl", req.getContextPath() + "/rest/jirapredict/1.0/accuracy");
+        context.put("pageSize", CHART_PAGE_SIZE);
+        context.put("complexityStats", buildComplexityStats());
+
+        // Точность модели и оценки по среднему: итог и разбивка по выбранному измерению
+        AccuracyMetrics.Dimension dimension = parseDimension(req.getParameter("by"));
+        context.put("accuracyDimension", dimension.name());
+        context.put("baselineModel", AccuracyMetrics.BASELINE_MODEL);
+        context.put("accuracyTotals", buildAccuracyRows(AccuracyMetrics.Dimension.ALL));
+        context.put("accuracyRows", buildAccuracyRows(dimension));
         resp.setContentType("text/html;charset=utf-8");
         renderer.render("templates/analytics-page.vm", context, resp.getWriter());
     }
 
-    /**
-     * Пытается извлечь число часов из ответов типа "3 часа", "1-2 дня", "около 5ч"
-     */
-    private double parseHoursFromText(String text) {
-        try {
-            text = text.toLowerCase();
-            Pattern pattern = Pattern.compile("(\\d+(?:[.,]\\d+)?)");
-            Matcher matcher = pattern.matcher(text);
+    // Среднее и перцентили времени решения по каждому значению сложности, в часах
+    private List<Map<String, Object>> buildComplexityStats() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Map.Entry<String, DurationStats> entry : complexityStatistics.snapshotByComplexity().entrySet()) {
+            DurationStats stats = entry.getValue();
+            Map<String, Object> row = new HashMap<>();
+            row.put("complexity", entry.getKey());
+            row.put("count", stats.getCount());
+            row.put("mean", toHours(stats.getAverageMillis()));
+            row.put("p50", toHours(stats.getPercentileMillis(0.5)));
+            row.put("p80", toHours(stats.getPercentileMillis(0.8)));
+            row.put("p95", toHours(stats.getPercentileMillis(0.95)));
+            rows.add(row);
+        }
+        return rows;
+    }
 
-            if (matcher.find()) {
-                double value = Double.parseDouble(matcher.group(1).replace(",", "."));
+    private List<Map<String, Object>> buildAccuracyRows(AccuracyMetrics.Dimension dimension) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Map.Entry<String, Map<String, ErrorStats>> byValue : accuracyMetrics.breakdown(dimension).entrySet()) {
+            for (Map.Entry<String, ErrorStats> byModel : byValue.getValue().entrySet()) {
+                ErrorStats stats = byModel.getValue();
+                Map<String, Object> row = new HashMap<>();
+                row.put("value", displayValue(dimension, byValue.getKey()));
+                row.put("model", byModel.getKey());
+                row.put("count", stats.getCount());
+                row.put("mae", round(stats.getMeanAbsoluteError()));
+                double mape = stats.getMeanAbsolutePercentError();
+                row.put("mape", mape >= 0 ? String.valueOf(Math.round(mape)) : "-");
+                row.put("medianError", round(stats.getMedianAbsoluteError()));
+                row.put("bias", round(stats.getBias()));
+                row.put("overestimated", Math.round(stats.getOverestimatedShare() * 100));
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
 
-                if (text.contains("ден") || text.contains("day")) {
-                    return value * 8; // Считаем рабочий день как 8 часов
-                }
-                if (text.contains("нед") || text.contains("week")) {
-                    return value * 40; // Рабочая неделя
+    private static AccuracyMetrics.Dimension parseDimension(String value) {
+        if (value != null) {
+            for (AccuracyMetrics.Dimension dimension : AccuracyMetrics.Dimension.values()) {
+                if (dimension.name().equalsIgnoreCase(value) && dimension != AccuracyMetrics.Dimension.ALL) {
+                    return dimension;
                 }
-                return value; // По умолчанию часы
             }
-        } catch (Exception e) {
-            return 0;
         }
-        return 0;
+        return AccuracyMetrics.Dimension.PROJECT;
+    }
+
+    // Тип задачи хранится по id, на странице показываем название
+    private static String displayValue(AccuracyMetrics.Dimension dimension, String value) {
+        if (dimension == AccuracyMetrics.Dimension.ISSUE_TYPE) {
+            IssueType issueType = ComponentAccessor.getConstantsManager().getIssueType(value);
+            return issueType != null ? issueType.getName() : value;
+        }
+        return value;
+    }
+
+    private static double round(double hours) {
+        return Math.round(hours * 10.0) / 10.0;
+    }
+
+    private static double toHours(long millis) {
+        return Math.round(millis / MILLIS_IN_HOUR * 10.0) / 10.0;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,100 @@
+package com.atlassian.tutorial.myPlugin.servlet;
+
+import com.atlassian.jira.component.ComponentAccessor;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.sal.api.auth.LoginUriProvider;
+import com.atlassian.sal.api.user.UserManager;
+import com.atlassian.templaterenderer.TemplateRenderer;
+import com.atlassian.tutorial.myPlugin.batch.BatchJobState;
+import com.atlassian.tutorial.myPlugin.batch.BatchPredictionJob;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Страница пакетного прогноза: запуск по JQL, остановка и прогресс текущего запуска.
+ */
+public class BatchPredictionServlet extends HttpServlet {
+    private static final Logger log = LoggerFactory.getLogger(BatchPredictionServlet.class);
+
+    private final UserManager userManager;
+    private final LoginUriProvider loginUriProvider;
+    private final TemplateRenderer renderer;
+    private final BatchPredictionJob batchJob;
+
+    public BatchPredictionServlet(BatchPredictionJob batchJob) {
+        this.userManager = ComponentAccessor.getOSGiComponentInstanceOfType(UserManager.class);
+        this.loginUriProvider = ComponentAccessor.getOSGiComponentInstanceOfType(LoginUriProvider.class);
+        this.renderer = ComponentAccessor.getOSGiComponentInstanceOfType(TemplateRenderer.class);
+        this.batchJob = batchJob;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (!isAdmin(req)) {
+            redirectToLogin(req, resp);
+            return;
+        }
+
+        Map<String, Object> context = new HashMap<>();
+        BatchJobState state = batchJob.getCurrent();
+        context.put("state", state);
+        context.put("running", state != null && state.getStatus() == BatchJobState.Status.RUNNING);
+        context.put("error", req.getParameter("error"));
+        context.put("action", req.getContextPath() + "/plugins/servlet/prediction-batch");
+
+        resp.setContentType("text/html;charset=utf-8");
+        renderer.render("templates/admin/batch-prediction-page.vm", context, resp.getWriter());
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (!isAdmin(req)) {
+            redirectToLogin(req, resp);
+            return;
+        }
+
+        String redirect = req.getContextPath() + "/plugins/servlet/prediction-batch";
+        if ("cancel".equals(req.getParameter("operation"))) {
+            batchJob.cancel();
+        } else {
+            String jql = req.getParameter("jql");
+            if (jql == null || jql.trim().isEmpty()) {
+                resp.sendRedirect(redirect + "?error=" + URLEncoder.encode("Укажите JQL", "UTF-8"));
+                return;
+            }
+            // Поиск выполняется от имени администратора, прогнозы считаются с его правами
+            ApplicationUser user = ComponentAccessor.getJiraAuthenticationContext().getLoggedInUser();
+            try {
+                BatchJobState state = batchJob.submit(jql.trim(), user);
+                log.info("Batch prediction for {} issues started by {}", state.getTotal(), user.getUsername());
+            } catch (Exception e) {
+                resp.sendRedirect(redirect + "?error=" + URLEncoder.encode(String.valueOf(e.getMessage()), "UTF-8"));
+                return;
+            }
+        }
+        resp.sendRedirect(redirect);
+    }
+
+    private boolean isAdmin(HttpServletRequest req) {
+        String username = userManager.getRemoteUsername(req);
+        return username != null && userManager.isSystemAdmin(username);
+    }
+
+    private void redirectToLogin(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        StringBuffer builder = request.getRequestURL();
+        if (request.getQueryString() != null) {
+            builder.append("?").append(request.getQueryString());
+        }
+        response.sendRedirect(loginUriProvider.getLoginUri(URI.create(builder.toString())).toASCIIString());
+    }
+}
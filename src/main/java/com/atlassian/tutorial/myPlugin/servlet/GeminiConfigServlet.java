@@ -1,12 +1,21 @@
 package com.atlassian.tutorial.myPlugin.servlet;
 
+import com.atlassian.event.api.EventPublisher;
 import com.atlassian.jira.component.ComponentAccessor;
 import com.atlassian.sal.api.auth.LoginUriProvider;
 import com.atlassian.sal.api.pluginsettings.PluginSettings;
 import com.atlassian.sal.api.pluginsettings.PluginSettingsFactory;
 import com.atlassian.sal.api.user.UserManager;
 import com.atlassian.templaterenderer.TemplateRenderer;
+import com.atlassian.tutorial.myPlugin.llm.GigaChatProvider;
+import com.atlassian.tutorial.myPlugin.llm.LlmProviderRegistry;
+import com.atlassian.tutorial.myPlugin.llm.LocalRegressionProvider;
+import com.atlassian.tutorial.myPlugin.prompt.PromptBuilder;
+import com.atlassian.tutorial.myPlugin.service.DurationParser;
 import com.atlassian.tutorial.myPlugin.service.GeminiPredictionService; // Для доступа к ключу настройки
+import com.atlassian.tutorial.myPlugin.service.GigaChatGuard;
+import com.atlassian.tutorial.myPlugin.service.GigaChatHttpClient;
+import com.atlassian.tutorial.myPlugin.service.PredictionConfigChangedEvent;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,24 +32,18 @@ import java.util.Map;
 public class GeminiConfigServlet extends HttpServlet {
     private static final Logger log = LoggerFactory.getLogger(GeminiConfigServlet.class);
 
-    // Используем ComponentAccessor для получения зависимостей, так как сервлет не управляется Spring Scanner напрямую так же, как @Named компоненты
     private final UserManager userManager;
     private final LoginUriProvider loginUriProvider;
     private final TemplateRenderer renderer;
     private final PluginSettingsFactory pluginSettingsFactory;
+    private final EventPublisher eventPublisher;
 
-    public GeminiConfigServlet() {
-        // Получаем зависимости через ComponentAccessor
-        // Это общепринятый способ для сервлетов в плагинах Atlassian, если они не регистрируются как Spring-бины
+    public GeminiConfigServlet(PluginSettingsFactory pluginSettingsFactory, EventPublisher eventPublisher) {
         this.userManager = ComponentAccessor.getOSGiComponentInstanceOfType(UserManager.class);
         this.loginUriProvider = ComponentAccessor.getOSGiComponentInstanceOfType(LoginUriProvider.class);
         this.renderer = ComponentAccessor.getOSGiComponentInstanceOfType(TemplateRenderer.class);
-        this.pluginSettingsFactory = ComponentAccessor.getOSGiComponentInstanceOfType(PluginSettingsFactory.class);
-
-        if (userManager == null) log.error("UserManager is null in GeminiConfigServlet constructor!");
-        if (loginUriProvider == null) log.error("LoginUriProvider is null in GeminiConfigServlet constructor!");
-        if (renderer == null) log.error("TemplateRenderer is null in GeminiConfigServlet constructor!");
-        if (pluginSettingsFactory == null) log.error("PluginSettingsFactory is null in GeminiConfigServlet constructor!");
+        this.pluginSettingsFactory = pluginSettingsFactory;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -56,6 +59,15 @@ public class GeminiConfigServlet extends HttpServlet {
         PluginSettings settings = pluginSettingsFactory.createGlobalSettings();
         String currentApiKey = (String) settings.get(GeminiPredictionService.GEMINI_API_KEY_PLUGIN_SETTING);
         context.put("apiKey", currentApiKey != null ? currentApiKey : "");
+        context.put("connectTimeoutMillis", valueOrDefault(settings.get(GeminiPredictionService.CONNECT_TIMEOUT_SETTING), GigaChatHttpClient.DEFAULT_CONNECT_TIMEOUT_MILLIS));
+        context.put("readTimeoutMillis", valueOrDefault(settings.get(GeminiPredictionService.READ_TIMEOUT_SETTING), GigaChatHttpClient.DEFAULT_READ_TIMEOUT_MILLIS));
+        context.put("truststorePath", valueOrDefault(settings.get(GeminiPredictionService.TRUSTSTORE_PATH_SETTING), ""));
+        context.put("requestsPerSecond", valueOrDefault(settings.get(GeminiPredictionService.REQUESTS_PER_SECOND_SETTING), formatDecimal(GigaChatGuard.DEFAULT_REQUESTS_PER_SECOND)));
+        context.put("promptTokenBudget", valueOrDefault(settings.get(GeminiPredictionService.PROMPT_TOKEN_BUDGET_SETTING), PromptBuilder.DEFAULT_TOKEN_BUDGET));
+        context.put("workdayHours", valueOrDefault(settings.get(GeminiPredictionService.WORKDAY_HOURS_SETTING), formatDecimal(DurationParser.DEFAULT_WORKDAY_HOURS)));
+        context.put("workweekDays", valueOrDefault(settings.get(GeminiPredictionService.WORKWEEK_DAYS_SETTING), formatDecimal(DurationParser.DEFAULT_WORKWEEK_DAYS)));
+        context.put("llmProvider", valueOrDefault(settings.get(LlmProviderRegistry.DEFAULT_PROVIDER_SETTING), GigaChatProvider.ID));
+        context.put("llmProjectProviders", valueOrDefault(settings.get(LlmProviderRegistry.PROJECT_PROVIDERS_SETTING), ""));
         context.put("action", req.getContextPath() + "/plugins/servlet/gemini-config"); // URL для POST запроса
 
         resp.setContentType("text/html;charset=utf-8");
@@ -81,25 +93,74 @@ public class GeminiConfigServlet extends HttpServlet {
         if (newApiKey != null) {
             settings.put(GeminiPredictionService.GEMINI_API_KEY_PLUGIN_SETTING, newApiKey.trim());
             log.info("Gemini API Key updated by user: {}", username);
-
-            // Опционально: уведомить GeminiPredictionService об обновлении ключа, если он кэширует
-            // Можно сделать через событие или прямой вызов, если сервис доступен.
-            // Для простоты пока оставим так - сервис будет перечитывать ключ при следующем вызове.
-            GeminiPredictionService geminiService = ComponentAccessor.getOSGiComponentInstanceOfType(GeminiPredictionService.class);
-            if(geminiService != null) {
-                geminiService.refreshApiKey(); // Добавим метод для обновления
-            }
-
         } else {
             settings.remove(GeminiPredictionService.GEMINI_API_KEY_PLUGIN_SETTING);
             log.info("Gemini API Key removed by user: {}", username);
         }
 
+        // Настройки HTTP-транспорта: таймауты и truststore вместо доверия всем сертификатам
+        saveOptional(settings, GeminiPredictionService.CONNECT_TIMEOUT_SETTING, positiveNumber(req.getParameter("connectTimeoutMillis")));
+        saveOptional(settings, GeminiPredictionService.READ_TIMEOUT_SETTING, positiveNumber(req.getParameter("readTimeoutMillis")));
+        saveOptional(settings, GeminiPredictionService.TRUSTSTORE_PATH_SETTING, req.getParameter("truststorePath"));
+        saveOptional(settings, GeminiPredictionService.REQUESTS_PER_SECOND_SETTING, positiveDecimal(req.getParameter("requestsPerSecond")));
+        saveOptional(settings, GeminiPredictionService.PROMPT_TOKEN_BUDGET_SETTING, positiveNumber(req.getParameter("promptTokenBudget")));
+        saveOptional(settings, GeminiPredictionService.WORKDAY_HOURS_SETTING, positiveDecimal(req.getParameter("workdayHours")));
+        saveOptional(settings, GeminiPredictionService.WORKWEEK_DAYS_SETTING, positiveDecimal(req.getParameter("workweekDays")));
+        saveOptional(settings, LlmProviderRegistry.DEFAULT_PROVIDER_SETTING, providerId(req.getParameter("llmProvider")));
+        saveOptional(settings, LlmProviderRegistry.PROJECT_PROVIDERS_SETTING, req.getParameter("llmProjectProviders"));
+        String truststorePassword = req.getParameter("truststorePassword");
+        if (truststorePassword != null && !truststorePassword.isEmpty()) {
+            // Пустое поле пароля означает "не менять"
+            settings.put(GeminiPredictionService.TRUSTSTORE_PASSWORD_SETTING, truststorePassword);
+        }
+        // Сервис держит настройки в памяти и перечитает их по событию
+        eventPublisher.publish(new PredictionConfigChangedEvent(username));
+
         // Перенаправляем обратно на страницу конфигурации с сообщением об успехе (или используем velocity для этого)
         // Для простоты пока просто перенаправляем
         resp.sendRedirect(req.getContextPath() + "/plugins/servlet/gemini-config?saved=true");
     }
 
+    private static void saveOptional(PluginSettings settings, String key, String value) {
+        if (value != null && !value.trim().isEmpty()) {
+            settings.put(key, value.trim());
+        } else {
+            settings.remove(key);
+        }
+    }
+
+    private static String positiveNumber(String value) {
+        if (value == null) return null;
+        try {
+            return Integer.parseInt(value.trim()) > 0 ? value.trim() : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Рабочий день бывает и дробным, например 7.5 часа
+    private static String positiveDecimal(String value) {
+        if (value == null) return null;
+        try {
+            String normalized = value.trim().replace(',', '.');
+            return Double.parseDouble(normalized) > 0 ? normalized : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String providerId(String value) {
+        return GigaChatProvider.ID.equals(value) || LocalRegressionProvider.ID.equals(value) ? value : null;
+    }
+
+    private static String formatDecimal(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+    }
+
+    private static Object valueOrDefault(Object value, Object defaultValue) {
+        return value != null ? value : defaultValue;
+    }
+
     private void redirectToLogin(HttpServletRequest request, HttpServletResponse response) throws IOException {
         response.sendRedirect(loginUriProvider.getLoginUri(getUri(request)).toASCIIString());
     }
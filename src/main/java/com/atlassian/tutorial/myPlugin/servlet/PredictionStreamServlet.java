@@ -0,0 +1,105 @@
+package com.atlassian.tutorial.myPlugin.servlet;
+
+import com.atlassian.jira.component.ComponentAccessor;
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.permission.ProjectPermissions;
+import com.atlassian.jira.user.ApplicationUser;
+import com.atlassian.tutorial.myPlugin.service.PredictionExecutor;
+
+import org.json.JSONObject;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Прогноз AI для панели задачи в виде Server-Sent Events: текст модели отдается по мере генерации.
+ * GET /plugins/servlet/prediction-stream?issueKey=ABC-1
+ * События: "delta" с {"text": кусок}, в конце "done" с тем же JSON, что отдает PredictionResource.
+ * Модель обычно отвечает JSON, который показывается только после разбора: тогда поток сразу закрывается
+ * событием "poll", и JS дожидается итога через long-poll, не показывая сырые куски JSON.
+ * Тем же событием поток закрывается, если прогноз не готов за {@link #MAX_STREAM_MILLIS}.
+ */
+public class PredictionStreamServlet extends HttpServlet {
+
+    // Раз в столько шлем комментарий, чтобы прокси не закрыл молчащее соединение
+    private static final long PING_MILLIS = TimeUnit.SECONDS.toMillis(15);
+    // Дольше поток Tomcat не держим (как и long-poll PredictionResource), JS перейдет на long-poll
+    private static final long MAX_STREAM_MILLIS = TimeUnit.SECONDS.toMillis(20);
+
+    private final PredictionExecutor predictionExecutor;
+
+    public PredictionStreamServlet(PredictionExecutor predictionExecutor) {
+        this.predictionExecutor = predictionExecutor;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        ApplicationUser user = ComponentAccessor.getJiraAuthenticationContext().getLoggedInUser();
+        if (user == null) {
+            resp.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+        String issueKey = req.getParameter("issueKey");
+        Issue issue = issueKey != null ? ComponentAccessor.getIssueManager().getIssueObject(issueKey) : null;
+        if (issue == null || !ComponentAccessor.getPermissionManager().hasPermission(ProjectPermissions.BROWSE_PROJECTS, issue, user)) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        PredictionExecutor.PredictionTask task = predictionExecutor.getTask(issue.getId());
+        if (task == null) {
+            task = predictionExecutor.submit(issue, user);
+        }
+
+        resp.setContentType("text/event-stream;charset=utf-8");
+        resp.setHeader("Cache-Control", "no-cache");
+        // Иначе nginx копит ответ в буфере и события приходят разом
+        resp.setHeader("X-Accel-Buffering", "no");
+        PrintWriter out = resp.getWriter();
+
+        long deadline = System.currentTimeMillis() + MAX_STREAM_MILLIS;
+        // seen - сколько текста уже получено, sent - сколько отдано клиенту (пробелы в начале не отдаем)
+        int seen = 0;
+        int sent = 0;
+        while (!task.isDone() && System.currentTimeMillis() < deadline) {
+            String text = task.awaitPartial(seen, PING_MILLIS);
+            if (task.isDone()) {
+                break;
+            }
+            String shown = text.trim();
+            if (shown.startsWith("{") || shown.startsWith("`")) {
+                // JSON (в том числе в блоке кода) пользователю показываем только разобранным
+                break;
+            }
+            if (text.length() > seen) {
+                if (!shown.isEmpty()) {
+                    send(out, "delta", new JSONObject().put("text", text.substring(sent)).toString());
+                    sent = text.length();
+                }
+                seen = text.length();
+            } else {
+                out.write(": ping\n\n");
+                out.flush();
+            }
+            if (out.checkError()) {
+                // Клиент ушел; сам прогноз досчитается и попадет в кэш
+                return;
+            }
+        }
+        if (task.isDone()) {
+            send(out, "done", task.toJson(user).toString());
+        } else {
+            send(out, "poll", "{}");
+        }
+    }
+
+    private static void send(PrintWriter out, String event, String data) {
+        out.write("event: " + event + "\n");
+        out.write("data: " + data + "\n\n");
+        out.flush();
+    }
+}
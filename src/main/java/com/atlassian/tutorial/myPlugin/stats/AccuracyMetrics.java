@@ -0,0 +1,153 @@
+package com.atlassian.tutorial.myPlugin.stats;
+
+import com.atlassian.tutorial.myPlugin.store.AccuracyEntry;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Точность прогнозов по решенным задачам: {@link ErrorStats} в разрезе модели и одного измерения
+ * (все задачи, проект, тип, сложность). Вместе с моделью оценивается и {@link #BASELINE_MODEL} - оценка
+ * по среднему для той же сложности, чтобы было видно, выигрывает ли LLM у простого среднего.
+ * Обновляется по мере решения задач; ежедневный пересчет ({@link #rebuild}) оставляет только окно
+ * последних месяцев и работает так же, как у {@link ComplexityStatistics}.
+ */
+public class AccuracyMetrics {
+
+    public static final String BASELINE_MODEL = "Среднее по сложности";
+
+    public enum Dimension { ALL, PROJECT, ISSUE_TYPE, COMPLEXITY }
+
+    private static final char KEY_SEPARATOR = '\u001F';
+    private static final String ALL_VALUE = "";
+
+    private volatile State state = new State();
+    private final RebuildLog rebuildLog = new RebuildLog();
+
+    /**
+     * Учитывает пару "прогноз - факт", заменяя прежний вклад задачи.
+     */
+    public synchronized void record(final AccuracyEntry entry) {
+        state.record(entry);
+        rebuildLog.add(() -> state.record(entry));
+    }
+
+    public synchronized void remove(final Long issueId) {
+        state.remove(issueId);
+        rebuildLog.add(() -> state.remove(issueId));
+    }
+
+    public void rebuild(Iterable<AccuracyEntry> entries) {
+        synchronized (this) {
+            rebuildLog.start();
+        }
+        State fresh = new State();
+        try {
+            for (AccuracyEntry entry : entries) {
+                fresh.record(entry);
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                rebuildLog.abort();
+            }
+            throw e;
+        }
+        synchronized (this) {
+            state = fresh;
+            rebuildLog.replay();
+        }
+    }
+
+    /**
+     * Ошибки модели по значению измерения (для {@link Dimension#ALL} значение не нужно), или null, если данных нет.
+     */
+    public ErrorStats get(String model, Dimension dimension, String value) {
+        return state.aggregates.get(key(model, dimension, dimension == Dimension.ALL ? ALL_VALUE : value));
+    }
+
+    /**
+     * Разбивка по измерению: значение -> (модель -> ошибки), отсортировано по значению и модели.
+     */
+    public Map<String, Map<String, ErrorStats>> breakdown(Dimension dimension) {
+        String prefix = KEY_SEPARATOR + dimension.name() + KEY_SEPARATOR;
+        Map<String, Map<String, ErrorStats>> result = new TreeMap<>();
+        for (Map.Entry<String, ErrorStats> entry : state.aggregates.entrySet()) {
+            String key = entry.getKey();
+            int prefixStart = key.indexOf(prefix);
+            if (prefixStart < 0) {
+                continue;
+            }
+            String model = key.substring(0, prefixStart);
+            String value = key.substring(prefixStart + prefix.length());
+            result.computeIfAbsent(value, k -> new TreeMap<>()).put(model, entry.getValue());
+        }
+        return result;
+    }
+
+    public int getSampleCount() {
+        return state.contributions.size();
+    }
+
+    private static String key(String model, Dimension dimension, String value) {
+        return model + KEY_SEPARATOR + dimension.name() + KEY_SEPARATOR + (value != null ? value : ALL_VALUE);
+    }
+
+    private static class State {
+        private final ConcurrentMap<String, ErrorStats> aggregates = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Long, AccuracyEntry> contributions = new ConcurrentHashMap<>();
+
+        void record(AccuracyEntry entry) {
+            AccuracyEntry previous = contributions.put(entry.getIssueId(), entry);
+            if (previous != null) {
+                apply(previous, false);
+            }
+            apply(entry, true);
+        }
+
+        void remove(Long issueId) {
+            AccuracyEntry previous = contributions.remove(issueId);
+            if (previous != null) {
+                apply(previous, false);
+            }
+        }
+
+        private void apply(AccuracyEntry entry, boolean add) {
+            if (entry.getPredictedHours() != null) {
+                applyModel(entry.getModel(), entry, entry.getPredictedHours(), add);
+            }
+            if (entry.getBaselineHours() != null) {
+                applyModel(BASELINE_MODEL, entry, entry.getBaselineHours(), add);
+            }
+        }
+
+        private void applyModel(String model, AccuracyEntry entry, double predictedHours, boolean add) {
+            String modelName = model != null ? model : "";
+            update(key(modelName, Dimension.ALL, ALL_VALUE), predictedHours, entry.getActualHours(), add);
+            if (entry.getProjectKey() != null) {
+                update(key(modelName, Dimension.PROJECT, entry.getProjectKey()), predictedHours, entry.getActualHours(), add);
+            }
+            if (entry.getIssueTypeId() != null) {
+                update(key(modelName, Dimension.ISSUE_TYPE, entry.getIssueTypeId()), predictedHours, entry.getActualHours(), add);
+            }
+            if (entry.getComplexity() != null) {
+                update(key(modelName, Dimension.COMPLEXITY, entry.getComplexity()), predictedHours, entry.getActualHours(), add);
+            }
+        }
+
+        private void update(String key, double predictedHours, double actualHours, boolean add) {
+            if (add) {
+                aggregates.computeIfAbsent(key, k -> new ErrorStats()).add(predictedHours, actualHours);
+            } else {
+                ErrorStats stats = aggregates.get(key);
+                if (stats != null) {
+                    stats.remove(predictedHours, actualHours);
+                    if (stats.isEmpty()) {
+                        aggregates.remove(key, stats);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.atlassian.tutorial.myPlugin.stats;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Статистика времени решения задач по значению сложности, а также по сложности + проекту
+ * и сложности + проекту + типу. Обновляется по событиям задач, чтение - O(1) без JQL.
+ * Полный пересчет ({@link #rebuild}) собирает новое состояние в стороне и подменяет текущее,
+ * события, пришедшие во время пересчета, накатываются поверх.
+ */
+public class ComplexityStatistics {
+
+    private static final char KEY_SEPARATOR = '\u001F';
+
+    private volatile State state = new State();
+    private volatile boolean ready;
+    private final RebuildLog rebuildLog = new RebuildLog();
+
+    /**
+     * Учитывает решенную задачу, заменяя ее прежний вклад (если был).
+     */
+    public synchronized void record(final IssueSample sample) {
+        state.record(sample);
+        rebuildLog.add(() -> state.record(sample));
+    }
+
+    /**
+     * Убирает вклад задачи: ее переоткрыли, удалили или сняли сложность.
+     */
+    public synchronized void remove(final Long issueId) {
+        state.remove(issueId);
+        rebuildLog.add(() -> state.remove(issueId));
+    }
+
+    /**
+     * Пересчитывает статистику с нуля по всем решенным задачам (фоновая задача).
+     */
+    public void rebuild(Iterable<IssueSample> samples) {
+        synchronized (this) {
+            rebuildLog.start();
+        }
+        State fresh = new State();
+        try {
+            for (IssueSample sample : samples) {
+                fresh.record(sample);
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                rebuildLog.abort();
+            }
+            throw e;
+        }
+        synchronized (this) {
+            State previous = state;
+            state = fresh;
+            rebuildLog.replay();
+            ready = true;
+            previous.clear();
+        }
+    }
+
+    /**
+     * Статистика по сложности; projectKey и issueTypeId сужают выборку, null - без ограничения.
+     */
+    public DurationStats get(String complexity, String projectKey, String issueTypeId) {
+        if (complexity == null) {
+            return null;
+        }
+        return state.aggregates.get(key(complexity, projectKey, issueTypeId));
+    }
+
+    /**
+     * Статистика по каждому значению сложности без разбивки по проектам, для страницы аналитики.
+     */
+    public Map<String, DurationStats> snapshotByComplexity() {
+        Map<String, DurationStats> result = new TreeMap<>();
+        for (Map.Entry<String, DurationStats> entry : state.aggregates.entrySet()) {
+            if (entry.getKey().indexOf(KEY_SEPARATOR) < 0) {
+                result.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getSampleCount() {
+        return state.contributions.size();
+    }
+
+    static String key(String complexity, String projectKey, String issueTypeId) {
+        StringBuilder key = new StringBuilder(complexity);
+        if (projectKey != null) {
+            key.append(KEY_SEPARATOR).append(projectKey);
+            if (issueTypeId != null) {
+                key.append(KEY_SEPARATOR).append(issueTypeId);
+            }
+        }
+        return key.toString();
+    }
+
+    private static class State {
+        private final ConcurrentMap<String, DurationStats> aggregates = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Long, IssueSample> contributions = new ConcurrentHashMap<>();
+
+        void record(IssueSample sample) {
+            IssueSample previous = contributions.put(sample.getIssueId(), sample);
+            if (previous != null) {
+                apply(previous, false);
+            }
+            apply(sample, true);
+        }
+
+        void remove(Long issueId) {
+            IssueSample previous = contributions.remove(issueId);
+            if (previous != null) {
+                apply(previous, false);
+            }
+        }
+
+        void clear() {
+            aggregates.clear();
+            contributions.clear();
+        }
+
+        private void apply(IssueSample sample, boolean add) {
+            String complexity = sample.getComplexity();
+            update(key(complexity, null, null), sample.getDurationMillis(), add);
+            if (sample.getProjectKey() != null) {
+                update(key(complexity, sample.getProjectKey(), null), sample.getDurationMillis(), add);
+                if (sample.getIssueTypeId() != null) {
+                    update(key(complexity, sample.getProjectKey(), sample.getIssueTypeId()), sample.getDurationMillis(), add);
+                }
+            }
+        }
+
+        private void update(String key, long durationMillis, boolean add) {
+            if (add) {
+                aggregates.computeIfAbsent(key, k -> new DurationStats()).add(durationMillis);
+            } else {
+                DurationStats stats = aggregates.get(key);
+                if (stats != null) {
+                    stats.remove(durationMillis);
+                    if (stats.isEmpty()) {
+                        aggregates.remove(key, stats);
+                    }
+                }
+            }
+        }
+    }
+}
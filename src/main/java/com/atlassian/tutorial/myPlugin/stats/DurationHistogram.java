@@ -0,0 +1,90 @@
+package com.atlassian.tutorial.myPlugin.stats;
+
+/**
+ * Логарифмическая гистограмма длительностей с относительной точностью ~2% (в духе HDR/DDSketch).
+ * Корзины фиксированы, поэтому гистограммы складываются и вычитаются покорзинно: их можно сливать
+ * между проектами/узлами и убирать вклад переоткрытой задачи, чего не умеет t-digest.
+ * Диапазон - от минуты до ~10 лет, значения за краями прижимаются к крайним корзинам.
+ */
+public class DurationHistogram {
+
+    static final double RELATIVE_ACCURACY = 0.02;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final long MIN_VALUE_MILLIS = 60_000L;
+    private static final long MAX_VALUE_MILLIS = 10L * 365 * 24 * 60 * 60 * 1000;
+    private static final int MIN_INDEX = index(MIN_VALUE_MILLIS);
+    static final int BUCKET_COUNT = index(MAX_VALUE_MILLIS) - MIN_INDEX + 1;
+
+    // Выделяется при первом значении: большинство агрегатов по проекту/типу маленькие
+    private int[] counts;
+    private long totalCount;
+
+    public void add(long valueMillis) {
+        if (counts == null) {
+            counts = new int[BUCKET_COUNT];
+        }
+        counts[bucket(valueMillis)]++;
+        totalCount++;
+    }
+
+    public void remove(long valueMillis) {
+        if (counts == null) {
+            return;
+        }
+        int bucket = bucket(valueMillis);
+        if (counts[bucket] > 0) {
+            counts[bucket]--;
+            totalCount--;
+        }
+    }
+
+    public void merge(DurationHistogram other) {
+        if (other.counts == null) {
+            return;
+        }
+        if (counts == null) {
+            counts = new int[BUCKET_COUNT];
+        }
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Значение, в пределах которого укладывается доля quantile (0..1) задач, или -1 для пустой гистограммы.
+     */
+    public long getValueAtQuantile(double quantile) {
+        if (totalCount <= 0) {
+            return -1;
+        }
+        long rank = (long) Math.ceil(Math.max(0, Math.min(1, quantile)) * totalCount);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return representative(i + MIN_INDEX);
+            }
+        }
+        return representative(BUCKET_COUNT - 1 + MIN_INDEX);
+    }
+
+    private static int bucket(long valueMillis) {
+        long clamped = Math.max(MIN_VALUE_MILLIS, Math.min(MAX_VALUE_MILLIS, valueMillis));
+        return index(clamped) - MIN_INDEX;
+    }
+
+    private static int index(long valueMillis) {
+        return (int) Math.ceil(Math.log(valueMillis) / LOG_GAMMA);
+    }
+
+    // Середина корзины (gamma^(i-1), gamma^i] с ошибкой не больше RELATIVE_ACCURACY
+    private static long representative(int index) {
+        return Math.round(2 * Math.pow(GAMMA, index) / (GAMMA + 1));
+    }
+}
@@ -0,0 +1,54 @@
+package com.atlassian.tutorial.myPlugin.stats;
+
+/**
+ * Накопительный агрегат длительностей: поддерживает и добавление, и вычитание,
+ * чтобы переоткрытая или измененная задача убирала свой прежний вклад.
+ * Кроме среднего хранит гистограмму для перцентилей (p50/p80/p95).
+ */
+public class DurationStats {
+    private long count;
+    private long totalMillis;
+    private final DurationHistogram histogram = new DurationHistogram();
+
+    synchronized void add(long durationMillis) {
+        count++;
+        totalMillis += durationMillis;
+        histogram.add(durationMillis);
+    }
+
+    synchronized void remove(long durationMillis) {
+        count--;
+        totalMillis -= durationMillis;
+        histogram.remove(durationMillis);
+    }
+
+    /**
+     * Добавляет чужой агрегат, например чтобы свести статистику по нескольким типам задач.
+     */
+    public synchronized void merge(DurationStats other) {
+        synchronized (other) {
+            count += other.count;
+            totalMillis += other.totalMillis;
+            histogram.merge(other.histogram);
+        }
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getAverageMillis() {
+        return count > 0 ? totalMillis / count : 0;
+    }
+
+    /**
+     * Время, за которое решается доля quantile задач (например 0.8 - 80%), или -1, если данных нет.
+     */
+    public synchronized long getPercentileMillis(double quantile) {
+        return histogram.getValueAtQuantile(quantile);
+    }
+
+    synchronized boolean isEmpty() {
+        return count <= 0;
+    }
+}
@@ -0,0 +1,95 @@
+package com.atlassian.tutorial.myPlugin.stats;
+
+/**
+ * Накопительные ошибки прогноза по набору решенных задач: MAE, MAPE, медиана абсолютной ошибки и смещение.
+ * Как и {@link DurationStats}, поддерживает вычитание, чтобы переоткрытая задача убирала свой вклад.
+ * Ошибка = прогноз - факт, поэтому положительное смещение означает переоценку.
+ */
+public class ErrorStats {
+    private static final double MILLIS_IN_HOUR = 1000 * 60 * 60;
+
+    private long count;
+    private double sumAbsError;
+    private double sumError;
+    // MAPE считается только по задачам с ненулевым фактическим временем
+    private long percentCount;
+    private double sumAbsPercentError;
+    private long overestimated;
+    private long underestimated;
+    private final DurationHistogram absErrors = new DurationHistogram();
+
+    synchronized void add(double predictedHours, double actualHours) {
+        apply(predictedHours, actualHours, 1);
+    }
+
+    synchronized void remove(double predictedHours, double actualHours) {
+        apply(predictedHours, actualHours, -1);
+    }
+
+    private void apply(double predictedHours, double actualHours, int sign) {
+        double error = predictedHours - actualHours;
+        count += sign;
+        sumError += sign * error;
+        sumAbsError += sign * Math.abs(error);
+        if (actualHours > 0) {
+            percentCount += sign;
+            sumAbsPercentError += sign * Math.abs(error) / actualHours;
+        }
+        if (error > 0) {
+            overestimated += sign;
+        } else if (error < 0) {
+            underestimated += sign;
+        }
+        long absErrorMillis = Math.round(Math.abs(error) * MILLIS_IN_HOUR);
+        if (sign > 0) {
+            absErrors.add(absErrorMillis);
+        } else {
+            absErrors.remove(absErrorMillis);
+        }
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Средняя абсолютная ошибка, часы.
+     */
+    public synchronized double getMeanAbsoluteError() {
+        return count > 0 ? sumAbsError / count : 0;
+    }
+
+    /**
+     * Средняя абсолютная ошибка в процентах от факта, или -1, если считать не по чему.
+     */
+    public synchronized double getMeanAbsolutePercentError() {
+        return percentCount > 0 ? 100 * sumAbsPercentError / percentCount : -1;
+    }
+
+    /**
+     * Медиана абсолютной ошибки, часы (с точностью гистограммы ~2%, ошибки меньше минуты считаются минутой).
+     */
+    public synchronized double getMedianAbsoluteError() {
+        long millis = absErrors.getValueAtQuantile(0.5);
+        return millis >= 0 ? millis / MILLIS_IN_HOUR : 0;
+    }
+
+    /**
+     * Среднее смещение (прогноз - факт), часы: больше нуля - модель переоценивает.
+     */
+    public synchronized double getBias() {
+        return count > 0 ? sumError / count : 0;
+    }
+
+    /**
+     * Доля переоцененных задач, 0..1.
+     */
+    public synchronized double getOverestimatedShare() {
+        long decided = overestimated + underestimated;
+        return decided > 0 ? (double) overestimated / decided : 0;
+    }
+
+    synchronized boolean isEmpty() {
+        return count <= 0;
+    }
+}
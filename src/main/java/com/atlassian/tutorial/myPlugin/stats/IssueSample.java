@@ -0,0 +1,71 @@
+package com.atlassian.tutorial.myPlugin.stats;
+
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.customfields.option.Option;
+import com.atlassian.jira.issue.fields.CustomField;
+
+/**
+ * Вклад одной решенной задачи в статистику: значение сложности, проект, тип и время от создания до решения.
+ */
+public final class IssueSample {
+    private final Long issueId;
+    private final String complexity;
+    private final String projectKey;
+    private final String issueTypeId;
+    private final long durationMillis;
+
+    public IssueSample(Long issueId, String complexity, String projectKey, String issueTypeId, long durationMillis) {
+        this.issueId = issueId;
+        this.complexity = complexity;
+        this.projectKey = projectKey;
+        this.issueTypeId = issueTypeId;
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * Сэмпл по задаче или null, если задача не решена или сложность не указана.
+     */
+    public static IssueSample of(Issue issue, CustomField complexityField) {
+        if (issue == null || complexityField == null || issue.getCreated() == null || issue.getResolutionDate() == null) {
+            return null;
+        }
+        String complexity = complexityValue(issue.getCustomFieldValue(complexityField));
+        if (complexity == null) {
+            return null;
+        }
+        return new IssueSample(issue.getId(), complexity,
+                issue.getProjectObject() != null ? issue.getProjectObject().getKey() : null,
+                issue.getIssueType() != null ? issue.getIssueType().getId() : null,
+                issue.getResolutionDate().getTime() - issue.getCreated().getTime());
+    }
+
+    /**
+     * Значение сложности так же, как его ищет JQL в getAverageTimeByComplexity: для опций - текст опции.
+     */
+    public static String complexityValue(Object rawValue) {
+        if (rawValue == null) {
+            return null;
+        }
+        return rawValue instanceof Option ? ((Option) rawValue).getValue() : rawValue.toString();
+    }
+
+    public Long getIssueId() {
+        return issueId;
+    }
+
+    public String getComplexity() {
+        return complexity;
+    }
+
+    public String getProjectKey() {
+        return projectKey;
+    }
+
+    public String getIssueTypeId() {
+        return issueTypeId;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+}
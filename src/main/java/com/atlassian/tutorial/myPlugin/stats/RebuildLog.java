@@ -0,0 +1,44 @@
+package com.atlassian.tutorial.myPlugin.stats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * События, пришедшие во время полного пересчета: пересчет собирает новое состояние в стороне,
+ * а эти события после подмены накатываются поверх. Сам не синхронизирован - вызывается под блокировкой владельца.
+ */
+public final class RebuildLog {
+
+    // null, когда пересчета нет
+    private List<Runnable> events;
+
+    public void start() {
+        events = new ArrayList<>();
+    }
+
+    /**
+     * Запоминает событие, если сейчас идет пересчет.
+     */
+    public void add(Runnable event) {
+        if (events != null) {
+            events.add(event);
+        }
+    }
+
+    /**
+     * Пересчет не удался: текущее состояние остается, события уже в нем.
+     */
+    public void abort() {
+        events = null;
+    }
+
+    /**
+     * Накатывает накопленные события на новое состояние и завершает пересчет.
+     */
+    public void replay() {
+        for (Runnable event : events) {
+            event.run();
+        }
+        events = null;
+    }
+}
@@ -0,0 +1,156 @@
+package com.atlassian.tutorial.myPlugin.stats;
+
+import com.atlassian.jira.bc.issue.search.SearchService;
+import com.atlassian.jira.component.ComponentAccessor;
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.fields.CustomField;
+import com.atlassian.jira.issue.search.SearchResults;
+import com.atlassian.jira.web.bean.PagerFilter;
+import com.atlassian.tutorial.myPlugin.cluster.ClusterCoordinator;
+import com.atlassian.tutorial.myPlugin.llm.LocalRegressionProvider;
+import com.atlassian.tutorial.myPlugin.retrieval.ExampleDocument;
+import com.atlassian.tutorial.myPlugin.retrieval.ExampleIndex;
+import com.atlassian.tutorial.myPlugin.service.GeminiPredictionService;
+import com.atlassian.tutorial.myPlugin.store.AccuracyEntry;
+import com.atlassian.tutorial.myPlugin.store.PredictionAccuracyStore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Фоновый полный пересчет {@link ComplexityStatistics}, {@link ExampleIndex} и {@link AccuracyMetrics}
+ * и обучение локальной модели прогноза: при старте плагина и затем раз в сутки.
+ * Между пересчетами их поддерживают события задач, пересчет страхует от пропущенных событий.
+ * Задачи читаются страницами, а не одним PagerFilter.getUnlimitedFilter().
+ * Агрегаты в памяти у каждого узла кластера свои, поэтому пересчет идет на каждом узле;
+ * общую таблицу точности заполняет только один.
+ */
+public class StatisticsRebuildJob {
+
+    private static final Logger log = LoggerFactory.getLogger(StatisticsRebuildJob.class);
+
+    private static final long INITIAL_DELAY_SECONDS = 30;
+    private static final long REBUILD_PERIOD_HOURS = 24;
+    private static final int PAGE_SIZE = 500;
+    // Метрики точности считаем по скользящему окну: старые прогнозы делались другими промптами и моделями
+    private static final long ACCURACY_WINDOW_DAYS = 180;
+
+    private final ComplexityStatistics statistics;
+    private final ExampleIndex exampleIndex;
+    private final PredictionAccuracyStore accuracyStore;
+    private final AccuracyMetrics accuracyMetrics;
+    private final LocalRegressionProvider localModel;
+    private final ClusterCoordinator cluster;
+    private final ScheduledExecutorService scheduler;
+
+    public StatisticsRebuildJob(ComplexityStatistics statistics, ExampleIndex exampleIndex, PredictionAccuracyStore accuracyStore,
+                                AccuracyMetrics accuracyMetrics, LocalRegressionProvider localModel, ClusterCoordinator cluster) {
+        this.statistics = statistics;
+        this.exampleIndex = exampleIndex;
+        this.accuracyStore = accuracyStore;
+        this.accuracyMetrics = accuracyMetrics;
+        this.localModel = localModel;
+        this.cluster = cluster;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "jirapredict-statistics-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::rebuildSafely, INITIAL_DELAY_SECONDS,
+                TimeUnit.HOURS.toSeconds(REBUILD_PERIOD_HOURS), TimeUnit.SECONDS);
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void rebuildSafely() {
+        try {
+            long started = System.currentTimeMillis();
+            List<IssueSample> samples = new ArrayList<>();
+            List<ExampleDocument> documents = new ArrayList<>();
+            loadResolvedIssues(samples, documents);
+            statistics.rebuild(samples);
+            exampleIndex.rebuild(documents);
+            log.info("Complexity statistics rebuilt from {} issues, example index from {} issues in {} ms",
+                    samples.size(), documents.size(), System.currentTimeMillis() - started);
+            // Те же сэмплы - обучающая выборка локальной модели
+            localModel.train(samples);
+        } catch (Exception e) {
+            // Следующая попытка будет по расписанию, а до нее работают инкрементальные обновления
+            log.error("Complexity statistics rebuild failed", e);
+        }
+        try {
+            // Таблица точности ведется по событиям; при первом запуске заполняем ее по накопленной истории.
+            // Узлы стартуют одновременно: без блокировки каждый увидел бы пустую таблицу и заполнил ее заново
+            Lock lock = cluster.getLock("accuracy.backfill");
+            lock.lock();
+            try {
+                accuracyStore.backfillIfEmpty(ComponentAccessor.getCustomFieldManager().getCustomFieldObject(GeminiPredictionService.COMPLEXITY_FIELD_ID));
+            } finally {
+                lock.unlock();
+            }
+            accuracyMetrics.rebuild(loadAccuracyWindow());
+            log.info("Accuracy metrics rebuilt from {} resolved predictions", accuracyMetrics.getSampleCount());
+        } catch (Exception e) {
+            log.error("Prediction accuracy rebuild failed", e);
+        }
+    }
+
+    private List<AccuracyEntry> loadAccuracyWindow() {
+        long from = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(ACCURACY_WINDOW_DAYS);
+        List<AccuracyEntry> entries = new ArrayList<>();
+        for (int offset = 0; ; offset += PAGE_SIZE) {
+            List<AccuracyEntry> page = accuracyStore.find(null, null, from, null, offset, PAGE_SIZE);
+            entries.addAll(page);
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+        }
+        return entries;
+    }
+
+    // Один проход по решенным задачам: в статистику идут задачи со сложностью, в индекс примеров - все
+    private void loadResolvedIssues(List<IssueSample> samples, List<ExampleDocument> documents) throws Exception {
+        CustomField complexityField = ComponentAccessor.getCustomFieldManager().getCustomFieldObject(GeminiPredictionService.COMPLEXITY_FIELD_ID);
+        if (complexityField == null) {
+            log.warn("Complexity field {} not found, statistics will stay empty", GeminiPredictionService.COMPLEXITY_FIELD_ID);
+        }
+
+        SearchService searchService = ComponentAccessor.getOSGiComponentInstanceOfType(SearchService.class);
+        String jql = "resolutiondate IS NOT EMPTY ORDER BY key ASC";
+        SearchService.ParseResult parseResult = searchService.parseQuery(null, jql);
+        if (!parseResult.isValid()) {
+            throw new IllegalStateException("Invalid statistics JQL: " + jql);
+        }
+
+        // Статистика общая для всех, поэтому читаем без учета прав конкретного пользователя
+        for (int start = 0; ; start += PAGE_SIZE) {
+            SearchResults results = searchService.searchOverrideSecurity(null, parseResult.getQuery(), new PagerFilter<>(start, PAGE_SIZE));
+            List<Issue> page = results.getIssues();
+            for (Issue issue : page) {
+                IssueSample sample = IssueSample.of(issue, complexityField);
+                if (sample != null) {
+                    samples.add(sample);
+                }
+                ExampleDocument document = ExampleDocument.of(issue, complexityField);
+                if (document != null) {
+                    documents.add(document);
+                }
+            }
+            if (page.size() < PAGE_SIZE) {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.atlassian.tutorial.myPlugin.store;
+
+/**
+ * Неизменяемая пара "прогноз - факт" по решенной задаче.
+ */
+public class AccuracyEntry {
+    private final Long issueId;
+    private final String issueKey;
+    private final String projectKey;
+    private final String complexity;
+    private final String issueTypeId;
+    private final long resolvedAt;
+    private final Long predictedAt;
+    private final double actualHours;
+    private final Double predictedHours;
+    private final String model;
+    private final Double baselineHours;
+
+    public AccuracyEntry(Long issueId, String issueKey, String projectKey, String complexity, String issueTypeId,
+                         long resolvedAt, Long predictedAt, double actualHours, Double predictedHours, String model,
+                         Double baselineHours) {
+        this.issueId = issueId;
+        this.issueKey = issueKey;
+        this.projectKey = projectKey;
+        this.complexity = complexity;
+        this.issueTypeId = issueTypeId;
+        this.resolvedAt = resolvedAt;
+        this.predictedAt = predictedAt;
+        this.actualHours = actualHours;
+        this.predictedHours = predictedHours;
+        this.model = model;
+        this.baselineHours = baselineHours;
+    }
+
+    static AccuracyEntry from(PredictionAccuracyRecord record) {
+        return new AccuracyEntry(record.getIssueId(), record.getIssueKey(), record.getProjectKey(), record.getComplexity(),
+                record.getIssueTypeId(), record.getResolvedAt(), record.getPredictedAt(),
+                record.getActualHours() != null ? record.getActualHours() : 0.0, record.getPredictedHours(), record.getModel(),
+                record.getBaselineHours());
+    }
+
+    public Long getIssueId() {
+        return issueId;
+    }
+
+    public String getIssueKey() {
+        return issueKey;
+    }
+
+    public String getProjectKey() {
+        return projectKey;
+    }
+
+    public String getComplexity() {
+        return complexity;
+    }
+
+    public String getIssueTypeId() {
+        return issueTypeId;
+    }
+
+    public long getResolvedAt() {
+        return resolvedAt;
+    }
+
+    /**
+     * Время прогноза или null, если оно неизвестно (прогноз перенесен из старого формата).
+     */
+    public Long getPredictedAt() {
+        return predictedAt;
+    }
+
+    public double getActualHours() {
+        return actualHours;
+    }
+
+    /**
+     * Прогноз в часах или null, если текст модели не удалось перевести в часы.
+     */
+    public Double getPredictedHours() {
+        return predictedHours;
+    }
+
+    public Double getErrorHours() {
+        return predictedHours != null ? predictedHours - actualHours : null;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public Double getBaselineHours() {
+        return baselineHours;
+    }
+}
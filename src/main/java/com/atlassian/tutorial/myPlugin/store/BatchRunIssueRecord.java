@@ -0,0 +1,31 @@
+package com.atlassian.tutorial.myPlugin.store;
+
+import net.java.ao.Entity;
+import net.java.ao.Preload;
+import net.java.ao.schema.Indexed;
+import net.java.ao.schema.NotNull;
+import net.java.ao.schema.Table;
+
+/**
+ * Задача из списка пакетного прогноза (таблица AO_..._BATCH_RUN_ISSUE). Порядок фиксируется при старте,
+ * поэтому порция выбирается по номеру задачи в списке.
+ */
+@Preload
+@Table("BATCH_RUN_ISSUE")
+public interface BatchRunIssueRecord extends Entity {
+
+    @NotNull
+    @Indexed
+    Integer getRunId();
+    void setRunId(Integer runId);
+
+    // Номер задачи в списке запуска, с нуля
+    @NotNull
+    @Indexed
+    Integer getIssueIndex();
+    void setIssueIndex(Integer issueIndex);
+
+    @NotNull
+    Long getIssueId();
+    void setIssueId(Long issueId);
+}
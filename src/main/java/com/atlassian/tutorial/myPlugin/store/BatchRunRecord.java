@@ -0,0 +1,57 @@
+package com.atlassian.tutorial.myPlugin.store;
+
+import net.java.ao.Entity;
+import net.java.ao.Preload;
+import net.java.ao.schema.NotNull;
+import net.java.ao.schema.StringLength;
+import net.java.ao.schema.Table;
+
+/**
+ * Запуск пакетного прогноза (таблица AO_..._BATCH_RUN). После каждой порции обновляются только счетчики,
+ * список задач запуска лежит отдельно в {@link BatchRunIssueRecord} и пишется один раз при старте.
+ */
+@Preload
+@Table("BATCH_RUN")
+public interface BatchRunRecord extends Entity {
+
+    @StringLength(StringLength.UNLIMITED)
+    String getJql();
+    void setJql(String jql);
+
+    String getUserKey();
+    void setUserKey(String userKey);
+
+    @NotNull
+    Long getStartedAt();
+    void setStartedAt(Long startedAt);
+
+    @NotNull
+    String getStatus();
+    void setStatus(String status);
+
+    @NotNull
+    Integer getTotal();
+    void setTotal(Integer total);
+
+    // Сколько задач из списка уже обработано
+    @NotNull
+    Integer getProcessed();
+    void setProcessed(Integer processed);
+
+    Integer getSucceeded();
+    void setSucceeded(Integer succeeded);
+
+    // Задачи, удаленные или решенные, пока шел пакет
+    Integer getSkipped();
+    void setSkipped(Integer skipped);
+
+    Integer getFailed();
+    void setFailed(Integer failed);
+
+    Long getFinishedAt();
+    void setFinishedAt(Long finishedAt);
+
+    @StringLength(StringLength.UNLIMITED)
+    String getMessage();
+    void setMessage(String message);
+}
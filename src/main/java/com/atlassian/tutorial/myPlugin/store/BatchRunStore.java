@@ -0,0 +1,97 @@
+package com.atlassian.tutorial.myPlugin.store;
+
+import com.atlassian.activeobjects.external.ActiveObjects;
+import com.atlassian.tutorial.myPlugin.batch.BatchJobState;
+
+import net.java.ao.DBParam;
+import net.java.ao.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Запуски пакетного прогноза в Active Objects: незавершенный запуск продолжается после рестарта Jira.
+ * Хранится только последний запуск; список задач пишется один раз, после порции обновляется одна строка со счетчиками.
+ */
+public class BatchRunStore {
+
+    private final ActiveObjects ao;
+
+    public BatchRunStore(ActiveObjects ao) {
+        this.ao = ao;
+    }
+
+    /**
+     * Заводит новый запуск вместо предыдущего.
+     */
+    public BatchJobState create(final String jql, final String userKey, final long startedAt, final List<Long> issueIds) {
+        return ao.executeInTransaction(() -> {
+            ao.deleteWithSQL(BatchRunIssueRecord.class, "ID > ?", 0);
+            ao.deleteWithSQL(BatchRunRecord.class, "ID > ?", 0);
+            BatchRunRecord run = ao.create(BatchRunRecord.class,
+                    new DBParam("JQL", jql),
+                    new DBParam("USER_KEY", userKey),
+                    new DBParam("STARTED_AT", startedAt),
+                    new DBParam("STATUS", BatchJobState.Status.RUNNING.name()),
+                    new DBParam("TOTAL", issueIds.size()),
+                    new DBParam("PROCESSED", 0));
+            for (int i = 0; i < issueIds.size(); i++) {
+                ao.create(BatchRunIssueRecord.class,
+                        new DBParam("RUN_ID", run.getID()),
+                        new DBParam("ISSUE_INDEX", i),
+                        new DBParam("ISSUE_ID", issueIds.get(i)));
+            }
+            return toState(run);
+        });
+    }
+
+    public BatchJobState findLatest() {
+        BatchRunRecord[] runs = ao.find(BatchRunRecord.class, Query.select().order("ID DESC").limit(1));
+        return runs.length > 0 ? toState(runs[0]) : null;
+    }
+
+    /**
+     * Задачи запуска с номерами from (включительно) - to (не включительно), в порядке списка.
+     */
+    public List<Long> findIssueIds(int runId, int from, int to) {
+        BatchRunIssueRecord[] records = ao.find(BatchRunIssueRecord.class, Query.select()
+                .where("RUN_ID = ? AND ISSUE_INDEX >= ? AND ISSUE_INDEX < ?", runId, from, to)
+                .order("ISSUE_INDEX ASC"));
+        List<Long> issueIds = new ArrayList<>(records.length);
+        for (BatchRunIssueRecord record : records) {
+            issueIds.add(record.getIssueId());
+        }
+        return issueIds;
+    }
+
+    /**
+     * Сохраняет прогресс запуска; если запуск уже заменен новым, ничего не делает.
+     */
+    public void save(BatchJobState state) {
+        BatchRunRecord run = ao.get(BatchRunRecord.class, state.getId());
+        if (run == null) {
+            return;
+        }
+        synchronized (state) {
+            run.setStatus(state.getStatus().name());
+            run.setProcessed(state.getCursor());
+            run.setSucceeded(state.getSucceeded());
+            run.setSkipped(state.getSkipped());
+            run.setFailed(state.getFailed());
+            run.setFinishedAt(state.getFinishedAt() > 0 ? state.getFinishedAt() : null);
+            run.setMessage(state.getMessage());
+        }
+        run.save();
+    }
+
+    private static BatchJobState toState(BatchRunRecord run) {
+        return new BatchJobState(run.getID(), run.getJql(), run.getUserKey(), run.getStartedAt(), run.getTotal(),
+                BatchJobState.Status.valueOf(run.getStatus()), run.getProcessed(), orZero(run.getSucceeded()),
+                orZero(run.getSkipped()), orZero(run.getFailed()),
+                run.getFinishedAt() != null ? run.getFinishedAt() : 0L, run.getMessage());
+    }
+
+    private static int orZero(Integer value) {
+        return value != null ? value : 0;
+    }
+}
@@ -0,0 +1,95 @@
+package com.atlassian.tutorial.myPlugin.store;
+
+import com.atlassian.jira.component.ComponentAccessor;
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.IssueManager;
+import com.atlassian.sal.api.pluginsettings.PluginSettings;
+import com.atlassian.sal.api.pluginsettings.PluginSettingsFactory;
+import com.atlassian.tutorial.myPlugin.service.DurationParser;
+import com.atlassian.tutorial.myPlugin.service.GeminiPredictionService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Перенос истории из старого формата "ISSUE-1:прогноз;ISSUE-2:прогноз;" в {@link PredictionHistoryStore}.
+ * Старая строка не удаляется насовсем, а сохраняется под ключом с суффиксом .legacy.
+ */
+public class LegacyHistoryMigration {
+
+    public static final String MIGRATED_FLAG_SETTING = GeminiPredictionService.PREDICTION_HISTORY_SETTING + ".migrated";
+    public static final String LEGACY_BACKUP_SETTING = GeminiPredictionService.PREDICTION_HISTORY_SETTING + ".legacy";
+    // В старом формате модель не сохранялась, а других моделей тогда не было
+    private static final String LEGACY_MODEL = "GigaChat";
+
+    private final PluginSettingsFactory pluginSettingsFactory;
+
+    public LegacyHistoryMigration(PluginSettingsFactory pluginSettingsFactory) {
+        this.pluginSettingsFactory = pluginSettingsFactory;
+    }
+
+    /**
+     * Записи, которые еще предстоит перенести. Пустой список, если миграция уже была или переносить нечего.
+     */
+    public List<PredictionEntry> loadPendingEntries() {
+        PluginSettings settings = pluginSettingsFactory.createGlobalSettings();
+        if (settings.get(MIGRATED_FLAG_SETTING) != null) {
+            return Collections.emptyList();
+        }
+        String history = (String) settings.get(GeminiPredictionService.PREDICTION_HISTORY_SETTING);
+        List<String[]> pairs = parse(history);
+        if (pairs.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        IssueManager issueManager = ComponentAccessor.getIssueManager();
+        // Времени прогноза в старом формате нет: пишем NULL, а не момент миграции. Порядок записей
+        // сохраняется порядком вставки (история упорядочена по ID)
+        List<PredictionEntry> entries = new ArrayList<>(pairs.size());
+        for (int i = 0; i < pairs.size(); i++) {
+            String issueKey = pairs.get(i)[0];
+            String predictionText = pairs.get(i)[1];
+            Issue issue = issueManager.getIssueObject(issueKey);
+            if (issue == null) {
+                continue; // задача удалена или перенесена
+            }
+            entries.add(new PredictionEntry(issue.getId(), issue.getKey(), issue.getProjectObject().getKey(), null,
+                    predictionText, DurationParser.parseHours(predictionText), LEGACY_MODEL, null, null));
+        }
+        return entries;
+    }
+
+    public void markMigrated(int count) {
+        PluginSettings settings = pluginSettingsFactory.createGlobalSettings();
+        Object history = settings.get(GeminiPredictionService.PREDICTION_HISTORY_SETTING);
+        if (history != null) {
+            settings.put(LEGACY_BACKUP_SETTING, history);
+            settings.remove(GeminiPredictionService.PREDICTION_HISTORY_SETTING);
+        }
+        settings.put(MIGRATED_FLAG_SETTING, count + "@" + System.currentTimeMillis());
+    }
+
+    /**
+     * Разбирает старую строку истории на пары [ключ задачи, текст прогноза].
+     */
+    public static List<String[]> parse(String history) {
+        if (history == null || history.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String[]> pairs = new ArrayList<>();
+        int start = 0;
+        while (start < history.length()) {
+            int end = history.indexOf(';', start);
+            if (end < 0) {
+                end = history.length();
+            }
+            int colon = history.indexOf(':', start);
+            if (colon > start && colon < end) {
+                pairs.add(new String[]{history.substring(start, colon), history.substring(colon + 1, end)});
+            }
+            start = end + 1;
+        }
+        return pairs;
+    }
+}
@@ -0,0 +1,40 @@
+package com.atlassian.tutorial.myPlugin.store;
+
+import net.java.ao.Entity;
+import net.java.ao.Preload;
+import net.java.ao.schema.Indexed;
+import net.java.ao.schema.NotNull;
+import net.java.ao.schema.Table;
+
+/**
+ * Задача в очереди предварительного прогноза (таблица AO_..._PENDING_PREDICTION). Одна запись на задачу:
+ * повторные события только сдвигают время запуска.
+ */
+@Preload
+@Table("PENDING_PREDICTION")
+public interface PendingPredictionRecord extends Entity {
+
+    @NotNull
+    @Indexed
+    Long getIssueId();
+    void setIssueId(Long issueId);
+
+    // Когда задача попала в очередь; от него отсчитывается предельная задержка
+    @NotNull
+    Long getQueuedAt();
+    void setQueuedAt(Long queuedAt);
+
+    // Растет с каждым событием по задаче: взятая в работу запись убирается, только если новых событий не было
+    @NotNull
+    Integer getVersion();
+    void setVersion(Integer version);
+
+    // Раньше этого времени прогноз не считаем, epoch millis
+    @NotNull
+    @Indexed
+    Long getDueAt();
+    void setDueAt(Long dueAt);
+
+    Integer getAttempts();
+    void setAttempts(Integer attempts);
+}
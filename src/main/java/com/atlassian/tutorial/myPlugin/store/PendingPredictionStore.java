@@ -0,0 +1,169 @@
+package com.atlassian.tutorial.myPlugin.store;
+
+import com.atlassian.activeobjects.external.ActiveObjects;
+
+import net.java.ao.DBParam;
+import net.java.ao.Query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Очередь задач на предварительный прогноз в Active Objects: переживает рестарт Jira.
+ * Очередь с задержкой (debounce): каждое событие откладывает запуск на debounceMillis, но не дальше
+ * maxDelayMillis от первого события, поэтому серия правок дает один пересчет, а постоянно правящаяся задача не ждет вечно.
+ */
+public class PendingPredictionStore {
+
+    private static final int MAX_IN_CLAUSE = 500;
+
+    private final ActiveObjects ao;
+
+    public PendingPredictionStore(ActiveObjects ao) {
+        this.ao = ao;
+    }
+
+    public void schedule(final Long issueId, final long now, final long debounceMillis, final long maxDelayMillis) {
+        ao.executeInTransaction(() -> {
+            PendingPredictionRecord[] existing = ao.find(PendingPredictionRecord.class, Query.select().where("ISSUE_ID = ?", issueId));
+            if (existing.length == 0) {
+                ao.create(PendingPredictionRecord.class,
+                        new DBParam("ISSUE_ID", issueId),
+                        new DBParam("QUEUED_AT", now),
+                        new DBParam("VERSION", 0),
+                        new DBParam("DUE_AT", now + debounceMillis),
+                        new DBParam("ATTEMPTS", 0));
+                return null;
+            }
+            PendingPredictionRecord record = existing[0];
+            reschedule(record, now, debounceMillis, maxDelayMillis);
+            record.save();
+            // Дубликаты могли появиться при одновременных событиях по одной задаче
+            for (int i = 1; i < existing.length; i++) {
+                ao.delete(existing[i]);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Задачи, время которых подошло, в порядке очереди, по одной записи на задачу.
+     */
+    public List<Pending> findDue(long now, int limit) {
+        PendingPredictionRecord[] records = ao.find(PendingPredictionRecord.class, Query.select()
+                .where("DUE_AT <= ?", now)
+                .order("DUE_AT ASC")
+                .limit(limit));
+        return firstPerIssue(records);
+    }
+
+    /**
+     * Убирает задачу из очереди, если после взятия в работу по ней не было новых событий.
+     */
+    public void complete(Pending pending) {
+        ao.deleteWithSQL(PendingPredictionRecord.class, "ISSUE_ID = ? AND VERSION = ?", pending.getIssueId(), pending.getVersion());
+    }
+
+    /**
+     * Откладывает неудавшийся прогноз до retryAt (если новых событий не было).
+     */
+    public void retry(final Pending pending, final long retryAt) {
+        ao.executeInTransaction(() -> {
+            for (PendingPredictionRecord record : ao.find(PendingPredictionRecord.class,
+                    Query.select().where("ISSUE_ID = ? AND VERSION = ?", pending.getIssueId(), pending.getVersion()))) {
+                applyRetry(record, pending, retryAt);
+                record.save();
+            }
+            return null;
+        });
+    }
+
+    public Set<Long> findQueued(Collection<Long> issueIds) {
+        Set<Long> queued = new HashSet<>();
+        List<Long> ids = new ArrayList<>(issueIds);
+        // Oracle не принимает в IN больше 1000 значений
+        for (int from = 0; from < ids.size(); from += MAX_IN_CLAUSE) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IN_CLAUSE));
+            StringBuilder where = new StringBuilder("ISSUE_ID IN (");
+            for (int i = 0; i < chunk.size(); i++) {
+                where.append(i == 0 ? "?" : ", ?");
+            }
+            where.append(')');
+            for (PendingPredictionRecord record : ao.find(PendingPredictionRecord.class, Query.select().where(where.toString(), chunk.toArray()))) {
+                queued.add(record.getIssueId());
+            }
+        }
+        return queued;
+    }
+
+    public void remove(Long issueId) {
+        ao.deleteWithSQL(PendingPredictionRecord.class, "ISSUE_ID = ?", issueId);
+    }
+
+    public int count() {
+        return ao.count(PendingPredictionRecord.class);
+    }
+
+    /**
+     * Новое событие по задаче, уже стоящей в очереди: сдвигает запуск на debounceMillis, но не дальше maxDelayMillis от постановки.
+     */
+    public static void reschedule(PendingPredictionRecord record, long now, long debounceMillis, long maxDelayMillis) {
+        record.setDueAt(Math.max(now, Math.min(now + debounceMillis, record.getQueuedAt() + maxDelayMillis)));
+        record.setVersion(record.getVersion() + 1);
+        record.setAttempts(0);
+    }
+
+    /**
+     * Повтор считается новой постановкой в очередь: иначе предельная задержка от первого события уже истекла
+     * и каждое следующее событие запускало бы прогноз сразу.
+     */
+    public static void applyRetry(PendingPredictionRecord record, Pending pending, long retryAt) {
+        record.setQueuedAt(retryAt);
+        record.setDueAt(retryAt);
+        record.setAttempts(pending.getAttempts() + 1);
+    }
+
+    /**
+     * По одной записи на задачу, в порядке выборки.
+     */
+    public static List<Pending> firstPerIssue(PendingPredictionRecord[] records) {
+        Map<Long, Pending> byIssue = new LinkedHashMap<>();
+        for (PendingPredictionRecord record : records) {
+            byIssue.putIfAbsent(record.getIssueId(), new Pending(record.getIssueId(), record.getVersion(),
+                    record.getAttempts() != null ? record.getAttempts() : 0));
+        }
+        return new ArrayList<>(byIssue.values());
+    }
+
+    /**
+     * Задача из очереди на момент выборки.
+     */
+    public static final class Pending {
+        private final Long issueId;
+        private final int version;
+        private final int attempts;
+
+        public Pending(Long issueId, int version, int attempts) {
+            this.issueId = issueId;
+            this.version = version;
+            this.attempts = attempts;
+        }
+
+        public Long getIssueId() {
+            return issueId;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+    }
+}
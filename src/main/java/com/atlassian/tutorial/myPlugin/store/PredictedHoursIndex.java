@@ -0,0 +1,195 @@
+package com.atlassian.tutorial.myPlugin.store;
+
+import com.atlassian.jira.component.ComponentAccessor;
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.index.IssueIndexingService;
+import com.atlassian.tutorial.myPlugin.cluster.ClusterCoordinator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Часы последнего прогноза по каждой задаче в памяти, для поля "Predicted hours".
+ * Jira при переиндексации спрашивает значение поля у каждой задачи: здесь это поиск в карте,
+ * без запросов к базе и к модели. Карта один раз заполняется из истории прогнозов в фоне после старта,
+ * дальше обновляется при каждом новом прогнозе, и только изменившиеся задачи переиндексируются.
+ * Пока история не загружена, поле пустое: get() в базу не ходит, а неудачная загрузка повторяется с паузой.
+ * Остальные узлы кластера узнают о новом прогнозе сообщением и перечитывают его из истории.
+ */
+public class PredictedHoursIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(PredictedHoursIndex.class);
+
+    public static final String CLUSTER_CHANNEL = "jp.hours";
+    private static final int LOAD_PAGE_SIZE = 1000;
+    // Последний прогноз задачи не разобрался в часы: в ConcurrentHashMap нельзя положить null
+    private static final Double NO_HOURS = Double.NaN;
+    // Пауза перед повтором неудачной загрузки, удваивается до максимума
+    private static final long LOAD_RETRY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final long MAX_LOAD_RETRY_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    // Сколько задач, спрошенных до загрузки, помним для переиндексации; больше - нужна полная переиндексация
+    private static final int MAX_ASKED_BEFORE_LOAD = 10_000;
+
+    private final PredictionHistoryStore historyStore;
+    private final ClusterCoordinator cluster;
+    private final Map<Long, Double> hoursByIssue = new ConcurrentHashMap<>();
+    // Задачи, ждущие переиндексации; правки подряд по одной задаче дают одну переиндексацию
+    private final Set<Long> reindexQueue = new LinkedHashSet<>();
+    // Задачи, проиндексированные с пустым полем до загрузки истории
+    private final Set<Long> askedBeforeLoad = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService worker;
+    private volatile boolean loaded;
+
+    public PredictedHoursIndex(PredictionHistoryStore historyStore, ClusterCoordinator cluster) {
+        this.historyStore = historyStore;
+        this.cluster = cluster;
+        this.worker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "jirapredict-hours");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        cluster.subscribe(CLUSTER_CHANNEL, message -> reload(Long.valueOf(message)));
+        worker.execute(() -> loadOrRetry(LOAD_RETRY_MILLIS));
+    }
+
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * Часы последнего прогноза задачи или null, если прогноза нет или он не разобрался.
+     */
+    public Double get(Long issueId) {
+        if (!loaded && askedBeforeLoad.size() < MAX_ASKED_BEFORE_LOAD) {
+            askedBeforeLoad.add(issueId);
+        }
+        Double hours = hoursByIssue.get(issueId);
+        return hours != null && !hours.isNaN() ? hours : null;
+    }
+
+    /**
+     * Новый прогноз задачи уже записан в историю; переиндексирует задачу, если часы изменились.
+     */
+    public void record(Issue issue, Double hours) {
+        Double previous = hoursByIssue.put(issue.getId(), hours != null ? hours : NO_HOURS);
+        cluster.publish(CLUSTER_CHANNEL, String.valueOf(issue.getId()));
+        if (!Objects.equals(previous, hours != null ? hours : NO_HOURS)) {
+            scheduleReindex(issue.getId());
+        }
+    }
+
+    // Прогноз посчитали на другом узле: переиндексацию он сделал сам, Jira разнесет ее по узлам
+    private void reload(Long issueId) {
+        PredictionEntry latest = historyStore.findLatestForIssue(issueId);
+        if (latest == null) {
+            hoursByIssue.remove(issueId);
+        } else {
+            hoursByIssue.put(issueId, latest.getPredictedHours() != null ? latest.getPredictedHours() : NO_HOURS);
+        }
+    }
+
+    /**
+     * Загружает последние прогнозы из истории; вызывается из start() в фоновом потоке.
+     *
+     * @return true, если история загружена (сейчас или раньше)
+     */
+    public boolean load() {
+        synchronized (hoursByIssue) {
+            if (loaded) {
+                return true;
+            }
+            try {
+                // История идет от новых к старым: первая запись по задаче и есть последний прогноз,
+                // а прогнозы, пришедшие во время загрузки, уже лежат в карте и не перетираются
+                for (int offset = 0; ; offset += LOAD_PAGE_SIZE) {
+                    List<PredictionEntry> page = historyStore.find(null, null, null, offset, LOAD_PAGE_SIZE);
+                    for (PredictionEntry entry : page) {
+                        hoursByIssue.putIfAbsent(entry.getIssueId(), entry.getPredictedHours() != null ? entry.getPredictedHours() : NO_HOURS);
+                    }
+                    if (page.size() < LOAD_PAGE_SIZE) {
+                        break;
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.warn("Cannot load predicted hours yet: {}", e.getMessage());
+                return false;
+            }
+            loaded = true;
+            log.info("Loaded predicted hours for {} issues", hoursByIssue.size());
+        }
+        reindexAskedBeforeLoad();
+        return true;
+    }
+
+    // AO может быть еще недоступен при старте плагина: повторяем с растущей паузой, а не на каждом get()
+    private void loadOrRetry(long retryMillis) {
+        if (!load()) {
+            worker.schedule(() -> loadOrRetry(Math.min(retryMillis * 2, MAX_LOAD_RETRY_MILLIS)), retryMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Задачи, которые Jira успела проиндексировать с пустым полем, а прогноз у них есть
+    private void reindexAskedBeforeLoad() {
+        if (askedBeforeLoad.size() >= MAX_ASKED_BEFORE_LOAD) {
+            log.warn("Predicted hours were requested for many issues before loading, run a full reindex to fill the field");
+        }
+        for (Long issueId : askedBeforeLoad) {
+            Double hours = hoursByIssue.get(issueId);
+            if (hours != null && !hours.isNaN()) {
+                scheduleReindex(issueId);
+            }
+        }
+        askedBeforeLoad.clear();
+    }
+
+    private void scheduleReindex(Long issueId) {
+        synchronized (reindexQueue) {
+            if (!reindexQueue.add(issueId) || reindexQueue.size() > 1) {
+                // Поток уже запущен и заберет задачу вместе с остальными
+                return;
+            }
+        }
+        worker.execute(this::reindexQueued);
+    }
+
+    private void reindexQueued() {
+        List<Long> issueIds;
+        synchronized (reindexQueue) {
+            issueIds = new ArrayList<>(reindexQueue);
+            reindexQueue.clear();
+        }
+        List<Issue> issues = new ArrayList<>(issueIds.size());
+        for (Long issueId : issueIds) {
+            Issue issue = ComponentAccessor.getIssueManager().getIssueObject(issueId);
+            if (issue != null) {
+                issues.add(issue);
+            }
+        }
+        if (issues.isEmpty()) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            ComponentAccessor.getComponent(IssueIndexingService.class).reIndexIssueObjects(issues);
+            log.debug("Reindexed {} issues with new predictions in {} ms", issues.size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (Exception e) {
+            // Значение поля уже новое, в поиске оно появится при следующей переиндексации задачи
+            log.error("Failed to reindex {} issues after new predictions", issues.size(), e);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.atlassian.tutorial.myPlugin.store;
+
+import net.java.ao.Entity;
+import net.java.ao.Preload;
+import net.java.ao.schema.Indexed;
+import net.java.ao.schema.NotNull;
+import net.java.ao.schema.Table;
+
+/**
+ * Пара "прогноз - факт" по решенной задаче (таблица AO_..._PRED_ACCURACY).
+ * Заполняется при решении задачи, чтобы аналитика не считала ее на каждый запрос. Одна запись на задачу.
+ */
+@Preload
+@Table("PRED_ACCURACY")
+public interface PredictionAccuracyRecord extends Entity {
+
+    @NotNull
+    @Indexed
+    Long getIssueId();
+    void setIssueId(Long issueId);
+
+    @NotNull
+    String getIssueKey();
+    void setIssueKey(String issueKey);
+
+    @Indexed
+    String getProjectKey();
+    void setProjectKey(String projectKey);
+
+    @Indexed
+    String getComplexity();
+    void setComplexity(String complexity);
+
+    String getIssueTypeId();
+    void setIssueTypeId(String issueTypeId);
+
+    // Время решения задачи, epoch millis
+    @NotNull
+    @Indexed
+    Long getResolvedAt();
+    void setResolvedAt(Long resolvedAt);
+
+    // Время последнего прогноза до решения, epoch millis
+    Long getPredictedAt();
+    void setPredictedAt(Long predictedAt);
+
+    Double getActualHours();
+    void setActualHours(Double actualHours);
+
+    Double getPredictedHours();
+    void setPredictedHours(Double predictedHours);
+
+    // Прогноз минус факт, в часах; null, если прогноз не разобрался в часы
+    Double getErrorHours();
+    void setErrorHours(Double errorHours);
+
+    String getModel();
+    void setModel(String model);
+
+    // Оценка по среднему для той же сложности на момент прогноза - с ней сравниваем модель
+    Double getBaselineHours();
+    void setBaselineHours(Double baselineHours);
+}
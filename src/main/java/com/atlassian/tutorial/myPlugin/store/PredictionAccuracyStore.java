@@ -0,0 +1,195 @@
+package com.atlassian.tutorial.myPlugin.store;
+
+import com.atlassian.activeobjects.external.ActiveObjects;
+import com.atlassian.jira.component.ComponentAccessor;
+import com.atlassian.jira.issue.Issue;
+import com.atlassian.jira.issue.fields.CustomField;
+import com.atlassian.tutorial.myPlugin.stats.IssueSample;
+
+import net.java.ao.DBParam;
+import net.java.ao.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Материализованные пары "прогноз - факт" для аналитики. Запись появляется, когда задача решается,
+ * и удаляется, если ее переоткрыли. Страница аналитики читает отсюда страницами, без загрузки задач и разбора текста.
+ */
+public class PredictionAccuracyStore {
+
+    private static final Logger log = LoggerFactory.getLogger(PredictionAccuracyStore.class);
+
+    private static final double MILLIS_IN_HOUR = 1000 * 60 * 60;
+    private static final int BACKFILL_PAGE_SIZE = 500;
+
+    private final ActiveObjects ao;
+    private final PredictionHistoryStore historyStore;
+
+    public PredictionAccuracyStore(ActiveObjects ao, PredictionHistoryStore historyStore) {
+        this.ao = ao;
+        this.historyStore = historyStore;
+    }
+
+    /**
+     * Пересчитывает запись задачи по ее текущему состоянию: решена и есть прогноз - сохраняем, иначе удаляем.
+     *
+     * @return сохраненная пара или null, если записи у задачи теперь нет
+     */
+    public AccuracyEntry update(final Issue issue, final CustomField complexityField) {
+        final AccuracyEntry entry = issue.getResolutionDate() != null ? toEntry(issue, complexityField) : null;
+        ao.executeInTransaction(() -> {
+            PredictionAccuracyRecord[] existing = ao.find(PredictionAccuracyRecord.class, Query.select().where("ISSUE_ID = ?", issue.getId()));
+            if (entry == null) {
+                ao.delete(existing);
+            } else if (existing.length > 0) {
+                copy(entry, existing[0]);
+                existing[0].save();
+            } else {
+                insert(entry);
+            }
+            return null;
+        });
+        return entry;
+    }
+
+    /**
+     * Пара по задаче или null, если задача не решена или прогноза у нее не было.
+     */
+    public AccuracyEntry get(Long issueId) {
+        PredictionAccuracyRecord[] records = ao.find(PredictionAccuracyRecord.class, Query.select().where("ISSUE_ID = ?", issueId));
+        return records.length > 0 ? AccuracyEntry.from(records[0]) : null;
+    }
+
+    public void remove(Long issueId) {
+        ao.deleteWithSQL(PredictionAccuracyRecord.class, "ISSUE_ID = ?", issueId);
+    }
+
+    /**
+     * Пары по решенным задачам, недавно решенные первыми. Все фильтры необязательны.
+     */
+    public List<AccuracyEntry> find(String projectKey, String complexity, Long fromMillis, Long toMillis, int offset, int limit) {
+        List<Object> params = new ArrayList<>();
+        String where = where(projectKey, complexity, fromMillis, toMillis, params);
+        PredictionAccuracyRecord[] records = ao.find(PredictionAccuracyRecord.class, Query.select()
+                .where(where, params.toArray())
+                .order("RESOLVED_AT DESC")
+                .offset(offset)
+                .limit(limit));
+        List<AccuracyEntry> entries = new ArrayList<>(records.length);
+        for (PredictionAccuracyRecord record : records) {
+            entries.add(AccuracyEntry.from(record));
+        }
+        return entries;
+    }
+
+    public int count(String projectKey, String complexity, Long fromMillis, Long toMillis) {
+        List<Object> params = new ArrayList<>();
+        String where = where(projectKey, complexity, fromMillis, toMillis, params);
+        return ao.count(PredictionAccuracyRecord.class, Query.select().where(where, params.toArray()));
+    }
+
+    /**
+     * Заполняет таблицу по уже накопленной истории прогнозов, если она пустая (первый запуск после обновления).
+     * История читается страницами, каждая задача загружается один раз.
+     */
+    public void backfillIfEmpty(CustomField complexityField) {
+        if (ao.count(PredictionAccuracyRecord.class) > 0) {
+            return;
+        }
+        Set<Long> seen = new HashSet<>();
+        int filled = 0;
+        for (int offset = 0; ; offset += BACKFILL_PAGE_SIZE) {
+            List<PredictionEntry> page = historyStore.find(null, null, null, offset, BACKFILL_PAGE_SIZE);
+            for (PredictionEntry prediction : page) {
+                if (!seen.add(prediction.getIssueId())) {
+                    continue;
+                }
+                Issue issue = ComponentAccessor.getIssueManager().getIssueObject(prediction.getIssueId());
+                if (issue != null && issue.getResolutionDate() != null) {
+                    update(issue, complexityField);
+                    filled++;
+                }
+            }
+            if (page.size() < BACKFILL_PAGE_SIZE) {
+                break;
+            }
+        }
+        if (filled > 0) {
+            log.info("Prediction accuracy table backfilled with {} resolved issues", filled);
+        }
+    }
+
+    // Последний прогноз, сделанный до решения задачи; прогнозы после решения точность не характеризуют
+    private AccuracyEntry toEntry(Issue issue, CustomField complexityField) {
+        long resolvedAt = issue.getResolutionDate().getTime();
+        for (PredictionEntry prediction : historyStore.findByIssue(issue.getId())) {
+            // У перенесенных из PluginSettings записей нет ни хеша промпта, ни времени прогноза
+            if (prediction.getCreatedAt() == null || prediction.getCreatedAt() <= resolvedAt) {
+                Double predictedHours = prediction.getPredictedHours() != null && prediction.getPredictedHours() > 0
+                        ? prediction.getPredictedHours() : null;
+                return new AccuracyEntry(issue.getId(), issue.getKey(),
+                        issue.getProjectObject() != null ? issue.getProjectObject().getKey() : prediction.getProjectKey(),
+                        complexityField != null ? IssueSample.complexityValue(issue.getCustomFieldValue(complexityField)) : null,
+                        issue.getIssueType() != null ? issue.getIssueType().getId() : null,
+                        resolvedAt, prediction.getCreatedAt(),
+                        round((resolvedAt - issue.getCreated().getTime()) / MILLIS_IN_HOUR),
+                        predictedHours, prediction.getModel(), prediction.getBaselineHours());
+            }
+        }
+        return null;
+    }
+
+    private static String where(String projectKey, String complexity, Long fromMillis, Long toMillis, List<Object> params) {
+        StringBuilder where = new StringBuilder("RESOLVED_AT >= ? AND RESOLVED_AT <= ?");
+        params.add(fromMillis != null ? fromMillis : 0L);
+        params.add(toMillis != null ? toMillis : Long.MAX_VALUE);
+        if (projectKey != null && !projectKey.isEmpty()) {
+            where.append(" AND PROJECT_KEY = ?");
+            params.add(projectKey);
+        }
+        if (complexity != null && !complexity.isEmpty()) {
+            where.append(" AND COMPLEXITY = ?");
+            params.add(complexity);
+        }
+        return where.toString();
+    }
+
+    private void insert(AccuracyEntry entry) {
+        ao.create(PredictionAccuracyRecord.class,
+                new DBParam("ISSUE_ID", entry.getIssueId()),
+                new DBParam("ISSUE_KEY", entry.getIssueKey()),
+                new DBParam("PROJECT_KEY", entry.getProjectKey()),
+                new DBParam("COMPLEXITY", entry.getComplexity()),
+                new DBParam("ISSUE_TYPE_ID", entry.getIssueTypeId()),
+                new DBParam("RESOLVED_AT", entry.getResolvedAt()),
+                new DBParam("PREDICTED_AT", entry.getPredictedAt()),
+                new DBParam("ACTUAL_HOURS", entry.getActualHours()),
+                new DBParam("PREDICTED_HOURS", entry.getPredictedHours()),
+                new DBParam("ERROR_HOURS", entry.getErrorHours()),
+                new DBParam("MODEL", entry.getModel()),
+                new DBParam("BASELINE_HOURS", entry.getBaselineHours()));
+    }
+
+    private static void copy(AccuracyEntry entry, PredictionAccuracyRecord record) {
+        record.setIssueKey(entry.getIssueKey());
+        record.setProjectKey(entry.getProjectKey());
+        record.setComplexity(entry.getComplexity());
+        record.setIssueTypeId(entry.getIssueTypeId());
+        record.setResolvedAt(entry.getResolvedAt());
+        record.setPredictedAt(entry.getPredictedAt());
+        record.setActualHours(entry.getActualHours());
+        record.setPredictedHours(entry.getPredictedHours());
+        record.setErrorHours(entry.getErrorHours());
+        record.setModel(entry.getModel());
+        record.setBaselineHours(entry.getBaselineHours());
+    }
+
+    private static double round(double hours) {
+        return Math.round(hours * 10.0) / 10.0;
+    }
+}
@@ -0,0 +1,94 @@
+package com.atlassian.tutorial.myPlugin.store;
+
+/**
+ * Неизменяемая запись истории прогнозов, в таком виде ее видят сервис и сервлеты (без AO-сущностей).
+ */
+public class PredictionEntry {
+
+    private final Long issueId;
+    private final String issueKey;
+    private final String projectKey;
+    private final Long createdAt;
+    private final String predictionText;
+    private final Double predictedHours;
+    private final String model;
+    private final String promptHash;
+    private final Double baselineHours;
+    private final String fingerprint;
+
+    public PredictionEntry(Long issueId, String issueKey, String projectKey, Long createdAt,
+                           String predictionText, Double predictedHours, String model, String promptHash,
+                           Double baselineHours) {
+        this(issueId, issueKey, projectKey, createdAt, predictionText, predictedHours, model, promptHash, baselineHours, null);
+    }
+
+    public PredictionEntry(Long issueId, String issueKey, String projectKey, Long createdAt,
+                           String predictionText, Double predictedHours, String model, String promptHash,
+                           Double baselineHours, String fingerprint) {
+        this.issueId = issueId;
+        this.issueKey = issueKey;
+        this.projectKey = projectKey;
+        this.createdAt = createdAt;
+        this.predictionText = predictionText;
+        this.predictedHours = predictedHours;
+        this.model = model;
+        this.promptHash = promptHash;
+        this.baselineHours = baselineHours;
+        this.fingerprint = fingerprint;
+    }
+
+    static PredictionEntry from(PredictionRecord record) {
+        return new PredictionEntry(record.getIssueId(), record.getIssueKey(), record.getProjectKey(), record.getCreatedAt(),
+                record.getPredictionText(), record.getPredictedHours(), record.getModel(), record.getPromptHash(),
+                record.getBaselineHours(), record.getFingerprint());
+    }
+
+    public Long getIssueId() {
+        return issueId;
+    }
+
+    public String getIssueKey() {
+        return issueKey;
+    }
+
+    public String getProjectKey() {
+        return projectKey;
+    }
+
+    /**
+     * Время прогноза или null для записей из старого формата, где времени не было.
+     */
+    public Long getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getPredictionText() {
+        return predictionText;
+    }
+
+    public Double getPredictedHours() {
+        return predictedHours;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public String getPromptHash() {
+        return promptHash;
+    }
+
+    /**
+     * Оценка по среднему времени для той же сложности на момент прогноза, в часах; null, если ее не было.
+     */
+    public Double getBaselineHours() {
+        return baselineHours;
+    }
+
+    /**
+     * Отпечаток входных данных прогноза или null (локальная модель, старые записи).
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+}
@@ -0,0 +1,182 @@
+package com.atlassian.tutorial.myPlugin.store;
+
+import com.atlassian.activeobjects.external.ActiveObjects;
+import com.atlassian.tutorial.myPlugin.cluster.ClusterCoordinator;
+
+import net.java.ao.DBParam;
+import net.java.ao.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * История прогнозов в таблице Active Objects вместо одной строки в PluginSettings.
+ * Добавление - один INSERT без чтения всей истории, выборки идут по индексам задачи, проекта и даты.
+ * Новые записи - с большим ID: по нему история и упорядочивается, потому что у перенесенных из старого формата
+ * записей время NULL, а место NULL в ORDER BY у разных баз разное.
+ */
+public class PredictionHistoryStore {
+
+    private static final Logger log = LoggerFactory.getLogger(PredictionHistoryStore.class);
+
+    // Oracle не принимает в IN больше 1000 значений
+    private static final int MAX_IN_CLAUSE = 500;
+
+    private static final String MIGRATION_LOCK = "history.migration";
+    private static final String NEWEST_FIRST = "ID DESC";
+
+    private final ActiveObjects ao;
+    private final LegacyHistoryMigration legacyMigration;
+    private final ClusterCoordinator cluster;
+    private final AtomicBoolean migrationChecked = new AtomicBoolean();
+
+    public PredictionHistoryStore(ActiveObjects ao, LegacyHistoryMigration legacyMigration, ClusterCoordinator cluster) {
+        this.ao = ao;
+        this.legacyMigration = legacyMigration;
+        this.cluster = cluster;
+    }
+
+    public void append(final PredictionEntry entry) {
+        ensureMigrated();
+        ao.executeInTransaction(() -> insert(entry));
+    }
+
+    public List<PredictionEntry> findByIssue(Long issueId) {
+        ensureMigrated();
+        return toEntries(ao.find(PredictionRecord.class, Query.select()
+                .where("ISSUE_ID = ?", issueId)
+                .order(NEWEST_FIRST)));
+    }
+
+    public PredictionEntry findLatestForIssue(Long issueId) {
+        ensureMigrated();
+        PredictionRecord[] records = ao.find(PredictionRecord.class, Query.select()
+                .where("ISSUE_ID = ?", issueId)
+                .order(NEWEST_FIRST)
+                .limit(1));
+        return records.length > 0 ? PredictionEntry.from(records[0]) : null;
+    }
+
+    /**
+     * Последний прогноз по каждой из задач одним запросом (по IN-списку на каждые {@value #MAX_IN_CLAUSE} задач).
+     * Задачи без прогнозов в результат не попадают.
+     */
+    public Map<Long, PredictionEntry> findLatestForIssues(Collection<Long> issueIds) {
+        ensureMigrated();
+        Map<Long, PredictionEntry> latest = new HashMap<>();
+        List<Long> ids = new ArrayList<>(issueIds);
+        for (int from = 0; from < ids.size(); from += MAX_IN_CLAUSE) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IN_CLAUSE));
+            StringBuilder where = new StringBuilder("ISSUE_ID IN (");
+            for (int i = 0; i < chunk.size(); i++) {
+                where.append(i == 0 ? "?" : ", ?");
+            }
+            where.append(')');
+            // Новые сначала: первая запись по задаче и есть последний прогноз
+            for (PredictionRecord record : ao.find(PredictionRecord.class, Query.select()
+                    .where(where.toString(), chunk.toArray())
+                    .order(NEWEST_FIRST))) {
+                latest.putIfAbsent(record.getIssueId(), PredictionEntry.from(record));
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Последние прогнозы, новые сначала. projectKey и границы дат необязательны.
+     * С любой из границ записи без времени (перенесенные из старого формата) не возвращаются.
+     */
+    public List<PredictionEntry> find(String projectKey, Long fromMillis, Long toMillis, int offset, int limit) {
+        ensureMigrated();
+        List<String> conditions = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        if (fromMillis != null || toMillis != null) {
+            conditions.add("CREATED_AT >= ? AND CREATED_AT <= ?");
+            params.add(fromMillis != null ? fromMillis : 0L);
+            params.add(toMillis != null ? toMillis : Long.MAX_VALUE);
+        }
+        if (projectKey != null && !projectKey.isEmpty()) {
+            conditions.add("PROJECT_KEY = ?");
+            params.add(projectKey);
+        }
+        Query query = Query.select();
+        if (!conditions.isEmpty()) {
+            query = query.where(String.join(" AND ", conditions), params.toArray());
+        }
+        return toEntries(ao.find(PredictionRecord.class, query
+                .order(NEWEST_FIRST)
+                .offset(offset)
+                .limit(limit)));
+    }
+
+    public List<PredictionEntry> findRecent(int limit) {
+        return find(null, null, null, 0, limit);
+    }
+
+    /**
+     * Один раз переносит старую строку PREDICTION_HISTORY_SETTING в таблицу.
+     * Вызывается лениво при первом обращении: AO недоступен, пока плагин не включен полностью.
+     * Узлы кластера стартуют одновременно, поэтому перенос идет под общей блокировкой,
+     * а флаг миграции в общих PluginSettings перепроверяется уже под ней.
+     */
+    public void ensureMigrated() {
+        if (migrationChecked.get()) {
+            return;
+        }
+        synchronized (migrationChecked) {
+            if (migrationChecked.get()) {
+                return;
+            }
+            Lock lock = cluster.getLock(MIGRATION_LOCK);
+            lock.lock();
+            try {
+                final List<PredictionEntry> legacyEntries = legacyMigration.loadPendingEntries();
+                if (!legacyEntries.isEmpty()) {
+                    ao.executeInTransaction(() -> {
+                        for (PredictionEntry entry : legacyEntries) {
+                            insert(entry);
+                        }
+                        return null;
+                    });
+                    legacyMigration.markMigrated(legacyEntries.size());
+                    log.info("Migrated {} legacy prediction history entries", legacyEntries.size());
+                }
+                migrationChecked.set(true);
+            } catch (RuntimeException e) {
+                // Старая строка остается на месте, попробуем снова при следующем обращении
+                log.error("Legacy prediction history migration failed", e);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private PredictionRecord insert(PredictionEntry entry) {
+        return ao.create(PredictionRecord.class,
+                new DBParam("ISSUE_ID", entry.getIssueId()),
+                new DBParam("ISSUE_KEY", entry.getIssueKey()),
+                new DBParam("PROJECT_KEY", entry.getProjectKey()),
+                new DBParam("CREATED_AT", entry.getCreatedAt()),
+                new DBParam("PREDICTION_TEXT", entry.getPredictionText()),
+                new DBParam("PREDICTED_HOURS", entry.getPredictedHours()),
+                new DBParam("MODEL", entry.getModel()),
+                new DBParam("PROMPT_HASH", entry.getPromptHash()),
+                new DBParam("BASELINE_HOURS", entry.getBaselineHours()),
+                new DBParam("FINGERPRINT", entry.getFingerprint()));
+    }
+
+    private static List<PredictionEntry> toEntries(PredictionRecord[] records) {
+        List<PredictionEntry> entries = new ArrayList<>(records.length);
+        for (PredictionRecord record : records) {
+            entries.add(PredictionEntry.from(record));
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,56 @@
+package com.atlassian.tutorial.myPlugin.store;
+
+import net.java.ao.Entity;
+import net.java.ao.Preload;
+import net.java.ao.schema.Indexed;
+import net.java.ao.schema.NotNull;
+import net.java.ao.schema.StringLength;
+import net.java.ao.schema.Table;
+
+/**
+ * Строка истории прогнозов (таблица AO_..._PREDICTION). Одна запись - один ответ модели по задаче.
+ */
+@Preload
+@Table("PREDICTION")
+public interface PredictionRecord extends Entity {
+
+    @NotNull
+    @Indexed
+    Long getIssueId();
+    void setIssueId(Long issueId);
+
+    @NotNull
+    @Indexed
+    String getIssueKey();
+    void setIssueKey(String issueKey);
+
+    @Indexed
+    String getProjectKey();
+    void setProjectKey(String projectKey);
+
+    // Время прогноза, epoch millis; null у перенесенных из старого формата, где времени не было
+    @Indexed
+    Long getCreatedAt();
+    void setCreatedAt(Long createdAt);
+
+    @StringLength(StringLength.UNLIMITED)
+    String getPredictionText();
+    void setPredictionText(String predictionText);
+
+    Double getPredictedHours();
+    void setPredictedHours(Double predictedHours);
+
+    String getModel();
+    void setModel(String model);
+
+    String getPromptHash();
+    void setPromptHash(String promptHash);
+
+    // Отпечаток входных данных (PredictionFingerprint): по нему последний прогноз служит кэшем
+    String getFingerprint();
+    void setFingerprint(String fingerprint);
+
+    // Что на момент прогноза давала оценка по среднему для той же сложности, в часах
+    Double getBaselineHours();
+    void setBaselineHours(Double baselineHours);
+}
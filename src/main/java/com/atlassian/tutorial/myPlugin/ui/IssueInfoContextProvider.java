@@ -8,6 +8,7 @@ import com.atlassian.jira.plugin.webfragment.contextproviders.AbstractJiraContex
 import com.atlassian.jira.plugin.webfragment.model.JiraHelper;
 import com.atlassian.jira.user.ApplicationUser;
 import com.atlassian.tutorial.myPlugin.service.GeminiPredictionService;
+import com.atlassian.tutorial.myPlugin.service.PredictionExecutor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,10 +19,14 @@ import java.util.Map;
 public class IssueInfoContextProvider extends AbstractJiraContextProvider {
 
     private static final Logger log = LoggerFactory.getLogger(IssueInfoContextProvider.class);
-    private GeminiPredictionService geminiService;
+    private static final String WEB_RESOURCE_KEY = "com.atlassian.tutorial.myPlugin:myPlugin-resources";
 
-    public IssueInfoContextProvider() {
-        this.geminiService = new GeminiPredictionService();
+    private final GeminiPredictionService geminiService;
+    private final PredictionExecutor predictionExecutor;
+
+    public IssueInfoContextProvider(GeminiPredictionService geminiService, PredictionExecutor predictionExecutor) {
+        this.geminiService = geminiService;
+        this.predictionExecutor = predictionExecutor;
     }
 
     @Override
@@ -47,20 +52,18 @@ public class IssueInfoContextProvider extends AbstractJiraContextProvider {
             }
 
             if (this.geminiService != null) {
-                // Получаем прогноз от Gemini
-                Map<String, String> geminiResult = this.geminiService.getPredictionFromGemini(currentIssue);
-                contextMap.put("geminiPrompt", geminiResult.get("prompt"));
-                contextMap.put("geminiPrediction", geminiResult.get("prediction"));
-                log.debug("ContextProvider: Gemini prediction: {}", geminiResult.get("prediction"));
+                // Прогноз AI считается в фоне, панель сразу рисует заглушку, а JS забирает результат через REST
+                PredictionExecutor.PredictionTask task = this.predictionExecutor.submit(currentIssue, user);
+                contextMap.put("geminiStatus", task.getStatus().name());
+                ComponentAccessor.getWebResourceManager().requireResource(WEB_RESOURCE_KEY);
 
                 // Получаем прогноз на основе среднего
                 String averageTimePrediction = this.geminiService.getAverageTimeByComplexity(currentIssue);
                 contextMap.put("averageTimePrediction", averageTimePrediction);
+                contextMap.put("percentilePrediction", this.geminiService.getPercentilesByComplexity(currentIssue));
                 log.debug("ContextProvider: Average time prediction: {}", averageTimePrediction);
 
             } else {
-                contextMap.put("geminiPrediction", "Ошибка: Сервис Gemini не инициализирован.");
-                contextMap.put("geminiPrompt", "N/A");
                 contextMap.put("averageTimePrediction", "Ошибка: Сервис не инициализирован.");
                 log.error("ContextProvider: GeminiPredictionService instance is null!");
             }
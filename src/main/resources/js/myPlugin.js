@@ -0,0 +1,95 @@
+// Подгрузка прогноза AI в панель задачи (см. templates/issue-info-panel.vm, PredictionStreamServlet и PredictionResource)
+(function ($) {
+    var WAIT_SECONDS = 15;
+    var MAX_ATTEMPTS = 20;
+
+    function predictionUrl(issueKey) {
+        return AJS.contextPath() + "/rest/jirapredict/1.0/prediction/" + encodeURIComponent(issueKey);
+    }
+
+    function streamUrl(issueKey) {
+        return AJS.contextPath() + "/plugins/servlet/prediction-stream?issueKey=" + encodeURIComponent(issueKey);
+    }
+
+    function showResult($panel, data) {
+        var prediction = data.prediction || "Prediction from AI not available.";
+        $panel.find(".jirapredict-ai-prediction").text(prediction);
+        if (prediction.indexOf("Ошибка") === 0) {
+            $panel.find(".jirapredict-ai-hint").show();
+        }
+        if (data.prompt) {
+            var $prompt = $panel.find(".jirapredict-ai-prompt");
+            $prompt.find("pre").text(data.prompt);
+            $prompt.show();
+        }
+    }
+
+    function poll($panel, attempt) {
+        var issueKey = $panel.data("issue-key");
+        $.ajax({
+            url: predictionUrl(issueKey),
+            data: {wait: WAIT_SECONDS},
+            dataType: "json",
+            cache: false
+        }).done(function (data) {
+            if (data.status === "PENDING" && attempt < MAX_ATTEMPTS) {
+                poll($panel, attempt + 1);
+            } else if (data.status === "PENDING") {
+                showResult($panel, {prediction: "Ошибка: прогноз считается слишком долго, обновите страницу позже."});
+            } else {
+                showResult($panel, data);
+            }
+        }).fail(function (xhr) {
+            showResult($panel, {prediction: "Ошибка: не удалось загрузить прогноз (HTTP " + xhr.status + ")."});
+        });
+    }
+
+    // Текст показывается по мере генерации; если поток недоступен или оборвался - обычный long-poll
+    function stream($panel) {
+        var source = new EventSource(streamUrl($panel.data("issue-key")));
+        var $prediction = $panel.find(".jirapredict-ai-prediction");
+        var received = "";
+        source.addEventListener("delta", function (e) {
+            received += JSON.parse(e.data).text;
+            $prediction.text(received);
+        });
+        // Ответ модели - JSON или он считается долго: итог придет через long-poll
+        source.addEventListener("poll", function () {
+            source.close();
+            poll($panel, 0);
+        });
+        source.addEventListener("done", function (e) {
+            source.close();
+            showResult($panel, JSON.parse(e.data));
+        });
+        source.onerror = function () {
+            source.close();
+            poll($panel, 0);
+        };
+    }
+
+    function init(context) {
+        $(context || document).find(".jirapredict-ai").each(function () {
+            var $panel = $(this);
+            // Панель может перерисовываться несколько раз, опрашиваем только новые
+            if (!$panel.data("jirapredict-started")) {
+                $panel.data("jirapredict-started", true);
+                if (window.EventSource) {
+                    stream($panel);
+                } else {
+                    poll($panel, 0);
+                }
+            }
+        });
+    }
+
+    $(function () {
+        init();
+    });
+
+    if (typeof JIRA !== "undefined" && JIRA.Events && JIRA.Events.NEW_CONTENT_ADDED) {
+        JIRA.bind(JIRA.Events.NEW_CONTENT_ADDED, function (e, $context) {
+            init($context);
+        });
+    }
+})(AJS.$);
@@ -0,0 +1,129 @@
+package ut.com.atlassian.tutorial.myPlugin.cluster;
+
+import com.atlassian.event.api.EventPublisher;
+import com.atlassian.tutorial.myPlugin.cluster.ClusterCoordinator;
+import com.atlassian.tutorial.myPlugin.llm.LlmProviderRegistry;
+import com.atlassian.tutorial.myPlugin.llm.LocalRegressionProvider;
+import com.atlassian.tutorial.myPlugin.metrics.PredictionMetrics;
+import com.atlassian.tutorial.myPlugin.prompt.PromptFragmentCache;
+import com.atlassian.tutorial.myPlugin.retrieval.ExampleIndex;
+import com.atlassian.tutorial.myPlugin.service.GeminiPredictionService;
+import com.atlassian.tutorial.myPlugin.service.PredictionCache;
+import com.atlassian.tutorial.myPlugin.service.PredictionConfigChangedEvent;
+import com.atlassian.tutorial.myPlugin.stats.ComplexityStatistics;
+import org.junit.Before;
+import org.junit.Test;
+import ut.com.atlassian.tutorial.myPlugin.service.InMemoryPluginSettings;
+import ut.com.atlassian.tutorial.myPlugin.store.InMemoryHistoryStore;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ClusterCoordinationTest
+{
+    private InMemoryPluginSettings settings;
+    private InMemoryCluster cluster;
+    private InMemoryHistoryStore history;
+
+    @Before
+    public void setUp()
+    {
+        // PluginSettings в Data Center лежат в общей базе: одно хранилище на все узлы
+        settings = new InMemoryPluginSettings();
+        cluster = new InMemoryCluster();
+        history = new InMemoryHistoryStore();
+    }
+
+    @Test
+    public void testNodeSeesPredictionWrittenByAnotherNode()
+    {
+        PredictionCache nodeA = new PredictionCache(history, cluster.node("a"));
+        PredictionCache nodeB = new PredictionCache(history, cluster.node("b"));
+        save(nodeA, 7L, "v1", "1 день");
+        assertEquals("1 день", nodeB.get(7L, "v1").getPrediction());
+
+        save(nodeA, 7L, "v2", "3 дня");
+
+        PredictionCache.CachedPrediction cached = nodeB.get(7L, "v2");
+        assertNotNull(cached);
+        assertEquals("3 дня", cached.getPrediction());
+    }
+
+    @Test
+    public void testStaleMemoryCopyIsRefreshedFromHistory()
+    {
+        PredictionCache nodeA = new PredictionCache(history, cluster.node("a"));
+        // Узел без подписки: сообщение о новом прогнозе до него не дошло
+        PredictionCache nodeB = new PredictionCache(history);
+        save(nodeA, 7L, "v1", "1 день");
+        nodeB.get(7L, "v1");
+
+        save(nodeA, 7L, "v2", "3 дня");
+
+        assertEquals("3 дня", nodeB.get(7L, "v2").getPrediction());
+    }
+
+    // Прогноз пишется в общую историю, затем в кэш узла, который его посчитал
+    private void save(PredictionCache node, Long issueId, String fingerprint, String prediction)
+    {
+        history.append(issueId, fingerprint, prediction);
+        node.put(issueId, fingerprint, prediction, "p");
+    }
+
+    @Test
+    public void testLockIsSharedBetweenNodes() throws Exception
+    {
+        ClusterCoordinator nodeA = cluster.node("a");
+        ClusterCoordinator nodeB = cluster.node("b");
+        Lock lock = nodeA.getLock("prediction.7");
+        lock.lock();
+        try
+        {
+            final AtomicBoolean acquired = new AtomicBoolean(true);
+            Thread other = new Thread(() -> acquired.set(nodeB.getLock("prediction.7").tryLock()));
+            other.start();
+            other.join();
+            assertFalse(acquired.get());
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    @Test
+    public void testSettingsSavedOnOneNodeAreReloadedOnOthers()
+    {
+        GeminiPredictionService nodeA = service(cluster.node("a"));
+        GeminiPredictionService nodeB = service(cluster.node("b"));
+        assertNull(nodeB.getConfig().getAuthKey());
+
+        // Сервлет настроек сохранил ключ на узле A и опубликовал локальное событие
+        settings.put(GeminiPredictionService.GEMINI_API_KEY_PLUGIN_SETTING, "new-key");
+        nodeA.onConfigChanged(new PredictionConfigChangedEvent("admin"));
+
+        assertEquals("new-key", nodeA.getConfig().getAuthKey());
+        assertEquals("new-key", nodeB.getConfig().getAuthKey());
+    }
+
+    private GeminiPredictionService service(ClusterCoordinator node)
+    {
+        EventPublisher eventPublisher = new EventPublisher()
+        {
+            public void publish(Object event) { }
+            public void register(Object listener) { }
+            public void unregister(Object listener) { }
+            public void unregisterAll() { }
+        };
+        GeminiPredictionService service = new GeminiPredictionService(null, new ComplexityStatistics(), new ExampleIndex(),
+                new PredictionMetrics(), new PromptFragmentCache(), new LlmProviderRegistry(new LocalRegressionProvider()),
+                settings.factory(), eventPublisher, node, null);
+        service.afterPropertiesSet();
+        return service;
+    }
+}
@@ -0,0 +1,67 @@
+package ut.com.atlassian.tutorial.myPlugin.cluster;
+
+import com.atlassian.tutorial.myPlugin.cluster.ClusterCoordinator;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Кластер из нескольких узлов в одном процессе: блокировки общие по имени,
+ * сообщения синхронно доставляются слушателям остальных узлов.
+ */
+public class InMemoryCluster
+{
+    private final Map<String, Lock> locks = new ConcurrentHashMap<>();
+    private final List<Node> nodes = new CopyOnWriteArrayList<>();
+
+    public ClusterCoordinator node(String nodeId)
+    {
+        Node node = new Node(nodeId);
+        nodes.add(node);
+        return node;
+    }
+
+    private class Node implements ClusterCoordinator
+    {
+        private final String nodeId;
+        private final Map<String, List<MessageListener>> listeners = new ConcurrentHashMap<>();
+
+        Node(String nodeId)
+        {
+            this.nodeId = nodeId;
+        }
+
+        public String getNodeId()
+        {
+            return nodeId;
+        }
+
+        public Lock getLock(String name)
+        {
+            return locks.computeIfAbsent(name, key -> new ReentrantLock());
+        }
+
+        public void publish(String channel, String message)
+        {
+            for (Node node : nodes)
+            {
+                if (node != this)
+                {
+                    for (MessageListener listener : node.listeners.getOrDefault(channel, new CopyOnWriteArrayList<>()))
+                    {
+                        listener.onMessage(message);
+                    }
+                }
+            }
+        }
+
+        public void subscribe(String channel, MessageListener listener)
+        {
+            listeners.computeIfAbsent(channel, key -> new CopyOnWriteArrayList<>()).add(listener);
+        }
+    }
+}
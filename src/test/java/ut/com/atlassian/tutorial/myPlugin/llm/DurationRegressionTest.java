@@ -0,0 +1,90 @@
+package ut.com.atlassian.tutorial.myPlugin.llm;
+
+import com.atlassian.tutorial.myPlugin.llm.DurationRegression;
+import com.atlassian.tutorial.myPlugin.stats.IssueSample;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DurationRegressionTest
+{
+    private long nextId = 1;
+
+    private IssueSample sample(String complexity, String projectKey, String issueTypeId, double hours)
+    {
+        return new IssueSample(nextId++, complexity, projectKey, issueTypeId, (long) (hours * TimeUnit.HOURS.toMillis(1)));
+    }
+
+    @Test
+    public void testTooFewSamplesGiveNoModel()
+    {
+        List<IssueSample> samples = new ArrayList<>();
+        for (int i = 0; i < DurationRegression.MIN_TRAINING_SAMPLES - 1; i++)
+        {
+            samples.add(sample("3", "ABC", "1", 10));
+        }
+
+        assertNull(DurationRegression.train(samples));
+    }
+
+    @Test
+    public void testHarderIssuesTakeLonger()
+    {
+        List<IssueSample> samples = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+        {
+            samples.add(sample("1", "ABC", "1", 2 + i % 3));
+            samples.add(sample("5", "ABC", "1", 20 + i % 5));
+            samples.add(sample("9", "ABC", "1", 100 + i % 7));
+        }
+
+        DurationRegression model = DurationRegression.train(samples);
+
+        assertNotNull(model);
+        double easy = model.predict("1", "ABC", "1").getMedianHours();
+        double medium = model.predict("5", "ABC", "1").getMedianHours();
+        double hard = model.predict("9", "ABC", "1").getMedianHours();
+        assertTrue(easy < medium && medium < hard);
+        assertEquals(21, medium, 5);
+    }
+
+    @Test
+    public void testProjectShiftsEstimateAndRangeContainsMedian()
+    {
+        List<IssueSample> samples = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+        {
+            samples.add(sample("3", "FAST", "1", 4 + i % 2));
+            samples.add(sample("3", "SLOW", "1", 40 + i % 4));
+        }
+
+        DurationRegression model = DurationRegression.train(samples);
+        DurationRegression.Estimate fast = model.predict("3", "FAST", "1");
+        DurationRegression.Estimate slow = model.predict("3", "SLOW", "1");
+
+        assertTrue(slow.getMedianHours() > 4 * fast.getMedianHours());
+        assertTrue(fast.getLowHours() <= fast.getMedianHours() && fast.getMedianHours() <= fast.getHighHours());
+    }
+
+    @Test
+    public void testUnknownValuesStillGetEstimate()
+    {
+        List<IssueSample> samples = new ArrayList<>();
+        for (int i = 0; i < 40; i++)
+        {
+            samples.add(sample(String.valueOf(1 + i % 5), "ABC", "1", 8 + i % 5 * 4));
+        }
+
+        DurationRegression model = DurationRegression.train(samples);
+        DurationRegression.Estimate estimate = model.predict(null, "NEW", null);
+
+        assertTrue(estimate.getMedianHours() > 8 && estimate.getMedianHours() < 24);
+    }
+}
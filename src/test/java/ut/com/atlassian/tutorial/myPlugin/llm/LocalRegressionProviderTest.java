@@ -0,0 +1,51 @@
+package ut.com.atlassian.tutorial.myPlugin.llm;
+
+import com.atlassian.tutorial.myPlugin.llm.DurationRegression;
+import com.atlassian.tutorial.myPlugin.llm.LocalRegressionProvider;
+import com.atlassian.tutorial.myPlugin.service.DurationParser;
+import com.atlassian.tutorial.myPlugin.stats.IssueSample;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class LocalRegressionProviderTest
+{
+    private List<IssueSample> samples(double hours)
+    {
+        List<IssueSample> samples = new ArrayList<>();
+        for (int i = 0; i < 30; i++)
+        {
+            samples.add(new IssueSample(i + 1L, "5", "ABC", "1", (long) ((hours + i % 5) * TimeUnit.HOURS.toMillis(1))));
+        }
+        return samples;
+    }
+
+    @Test
+    public void testAnswerParsesBackToSameHours()
+    {
+        // Трое суток: в днях при 8-часовом рабочем дне разобралось бы втрое меньше
+        DurationRegression.Estimate estimate = DurationRegression.train(samples(72)).predict("5", "ABC", "1");
+
+        DurationParser.Result parsed = DurationParser.DEFAULT.parse(LocalRegressionProvider.answer(estimate));
+
+        assertEquals(estimate.getLowHours(), parsed.getMinHours(), 0.5);
+        assertEquals(estimate.getHighHours(), parsed.getMaxHours(), 0.5);
+        assertEquals(74, parsed.getHours(), 10);
+    }
+
+    @Test
+    public void testBatchPromptGetsNoPrediction() throws Exception
+    {
+        LocalRegressionProvider provider = new LocalRegressionProvider();
+        provider.train(samples(10));
+
+        String text = provider.complete(null, "пакетный промпт", null).getText();
+
+        assertNull(DurationParser.DEFAULT.parse(text));
+    }
+}
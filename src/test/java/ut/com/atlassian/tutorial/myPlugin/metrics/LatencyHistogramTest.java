@@ -0,0 +1,55 @@
+package ut.com.atlassian.tutorial.myPlugin.metrics;
+
+import com.atlassian.tutorial.myPlugin.metrics.LatencyHistogram;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+
+public class LatencyHistogramTest
+{
+    private final AtomicLong now = new AtomicLong(0L);
+    private final LatencyHistogram histogram = new LatencyHistogram(5, 60_000L, now::get);
+
+    @Test
+    public void testPercentilesWithinRelativeAccuracy()
+    {
+        for (int millis = 1; millis <= 1000; millis++)
+        {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(1000, snapshot.getWindowCount());
+        assertEquals(500, snapshot.getPercentileMillis(0.5), 500 * 0.04);
+        assertEquals(950, snapshot.getPercentileMillis(0.95), 950 * 0.04);
+        assertEquals(990, snapshot.getPercentileMillis(0.99), 990 * 0.04);
+        assertEquals(500.5, snapshot.getMeanMillis(), 0.01);
+    }
+
+    @Test
+    public void testOldSlotsLeaveTheWindow()
+    {
+        histogram.record(TimeUnit.SECONDS.toNanos(10));
+        now.addAndGet(TimeUnit.MINUTES.toMillis(3));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(20));
+
+        assertEquals(2, histogram.snapshot().getWindowCount());
+
+        now.addAndGet(TimeUnit.MINUTES.toMillis(3));
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(1, snapshot.getWindowCount());
+        assertEquals(20, snapshot.getPercentileMillis(0.99), 20 * 0.04);
+        assertEquals(2, snapshot.getTotalCount());
+    }
+
+    @Test
+    public void testEmptyWindow()
+    {
+        assertEquals(0, histogram.snapshot().getPercentileMillis(0.5), 0);
+    }
+}
@@ -0,0 +1,53 @@
+package ut.com.atlassian.tutorial.myPlugin.prompt;
+
+import com.atlassian.tutorial.myPlugin.prompt.HtmlText;
+import com.atlassian.tutorial.myPlugin.prompt.TokenEstimator;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HtmlTextTest
+{
+    @Test
+    public void testStripsTagsLikeRegex()
+    {
+        String html = "  <p>Исправить <b>ошибку</b> в отчете</p>\n";
+
+        assertEquals(html.replaceAll("<[^>]*>", "").trim(), HtmlText.strip(html, 1000));
+    }
+
+    @Test
+    public void testUnclosedBracketIsKept()
+    {
+        assertEquals("a < b", HtmlText.strip("a < b", 1000));
+    }
+
+    @Test
+    public void testStopsAtLimit()
+    {
+        StringBuilder html = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+        {
+            html.append("<i>слово</i> ");
+        }
+
+        String text = HtmlText.strip(html.toString(), 500);
+
+        assertEquals(500, text.length());
+        assertTrue(text.startsWith("слово слово"));
+    }
+
+    @Test
+    public void testTokenEstimateAndTruncate()
+    {
+        assertEquals(2, TokenEstimator.estimate("привет"));
+        assertEquals(3, TokenEstimator.estimate("hello world"));
+
+        String truncated = TokenEstimator.truncate("раз два три четыре", 3);
+
+        assertEquals("раз два три", truncated);
+        assertTrue(TokenEstimator.estimate(truncated) <= 3);
+        assertEquals("раз", TokenEstimator.truncate("раз", 5));
+    }
+}
@@ -0,0 +1,85 @@
+package ut.com.atlassian.tutorial.myPlugin.retrieval;
+
+import com.atlassian.tutorial.myPlugin.retrieval.ExampleDocument;
+import com.atlassian.tutorial.myPlugin.retrieval.ExampleIndex;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ExampleIndexTest
+{
+    private ExampleIndex index;
+
+    @Before
+    public void setUp()
+    {
+        index = new ExampleIndex();
+        index.rebuild(Arrays.asList(
+                document(1L, "ABC", "3", 100L, "Ошибка авторизации через LDAP"),
+                document(2L, "ABC", "5", 200L, "Добавить экспорт отчета в Excel"),
+                document(3L, "ABC", "3", 300L, "Ошибки при авторизации пользователей"),
+                document(4L, "XYZ", "3", 400L, "Ошибка авторизации в мобильном клиенте")));
+    }
+
+    @Test
+    public void testMostSimilarIssueFirst()
+    {
+        List<Long> similar = index.findSimilar(document(null, "ABC", "5", 0L, "Экспорт отчета в PDF"), Collections.<Long>emptyList(), 1);
+
+        assertEquals(Collections.singletonList(2L), similar);
+    }
+
+    @Test
+    public void testSearchStaysWithinProject()
+    {
+        List<Long> similar = index.findSimilar(document(null, "ABC", "3", 0L, "Ошибка авторизации"), Collections.<Long>emptyList(), 5);
+
+        assertEquals(3, similar.size());
+        assertFalse(similar.contains(4L));
+        assertTrue(similar.indexOf(1L) < similar.indexOf(2L));
+        assertTrue(similar.indexOf(3L) < similar.indexOf(2L));
+    }
+
+    @Test
+    public void testFillsWithRecentWhenNothingMatches()
+    {
+        List<Long> similar = index.findSimilar(document(null, "ABC", null, 0L, "Миграция базы данных"), Collections.<Long>emptyList(), 2);
+
+        assertEquals(Arrays.asList(3L, 2L), similar);
+    }
+
+    @Test
+    public void testExcludedAndRemovedIssuesAreSkipped()
+    {
+        index.remove(1L);
+        List<Long> similar = index.findSimilar(document(null, "ABC", "3", 0L, "Ошибка авторизации"), Collections.singletonList(3L), 5);
+
+        assertEquals(Collections.singletonList(2L), similar);
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void testRecordReplacesPreviousVersion()
+    {
+        index.record(document(2L, "ABC", "5", 50L, "Отказ сервиса уведомлений"));
+
+        assertEquals(Collections.singletonList(2L),
+                index.findSimilar(document(null, "ABC", null, 0L, "Отказ уведомлений"), Collections.<Long>emptyList(), 1));
+        // Старый текст задачи из индекса ушел: без совпадений по тексту добиваем свежими, а она теперь самая старая
+        assertEquals(Arrays.asList(3L, 1L),
+                index.findSimilar(document(null, "ABC", null, 0L, "Экспорт в Excel"), Collections.<Long>emptyList(), 2));
+        assertEquals(4, index.size());
+    }
+
+    private static ExampleDocument document(Long issueId, String projectKey, String complexity, long resolvedAt, String text)
+    {
+        return new ExampleDocument(issueId, projectKey, "10001", complexity, resolvedAt, text);
+    }
+}
@@ -0,0 +1,26 @@
+package ut.com.atlassian.tutorial.myPlugin.retrieval;
+
+import com.atlassian.tutorial.myPlugin.retrieval.Tokenizer;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class TokenizerTest
+{
+    @Test
+    public void testWordFormsCollapseToOneTerm()
+    {
+        assertEquals(Collections.nCopies(3, "ошибк"), Tokenizer.tokenize("ошибка ошибки ошибку"));
+        assertEquals(Collections.nCopies(3, "отчет"), Tokenizer.tokenize("отчет отчета отчёты"));
+        assertEquals(Collections.nCopies(3, "баг"), Tokenizer.tokenize("баг бага баги"));
+    }
+
+    @Test
+    public void testMarkupStopWordsAndShortWordsAreDropped()
+    {
+        assertEquals(Arrays.asList("падае", "экспо", "pdf", "отчет"), Tokenizer.tokenize("<p>Падает экспорт в PDF для отчета</p>"));
+    }
+}
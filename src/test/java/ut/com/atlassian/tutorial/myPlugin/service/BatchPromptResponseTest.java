@@ -0,0 +1,53 @@
+package ut.com.atlassian.tutorial.myPlugin.service;
+
+import com.atlassian.tutorial.myPlugin.service.BatchPromptResponse;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BatchPromptResponseTest
+{
+    @Test
+    public void testParsesPlainJson()
+    {
+        Map<String, String> predictions = BatchPromptResponse.parse("{\"ABC-1\": \"2-3 дня\", \"ABC-2\": \"около 4 часов\"}",
+                Arrays.asList("ABC-1", "ABC-2"));
+
+        assertEquals(2, predictions.size());
+        assertEquals("2-3 дня", predictions.get("ABC-1"));
+        assertEquals("около 4 часов", predictions.get("ABC-2"));
+    }
+
+    @Test
+    public void testParsesJsonInsideCodeFence()
+    {
+        Map<String, String> predictions = BatchPromptResponse.parse("Вот прогнозы:\n```json\n{\"ABC-1\": \"1 неделя\"}\n```",
+                Arrays.asList("ABC-1"));
+
+        assertEquals("1 неделя", predictions.get("ABC-1"));
+    }
+
+    @Test
+    public void testMissingAndUnknownKeysAreSkipped()
+    {
+        Map<String, String> predictions = BatchPromptResponse.parse("{\"ABC-1\": \"2 дня\", \"XYZ-9\": \"3 дня\", \"ABC-3\": \"\"}",
+                Arrays.asList("ABC-1", "ABC-2", "ABC-3"));
+
+        assertEquals(1, predictions.size());
+        assertTrue(predictions.containsKey("ABC-1"));
+        assertFalse(predictions.containsKey("XYZ-9"));
+    }
+
+    @Test
+    public void testNonJsonAnswerGivesEmptyResult()
+    {
+        assertTrue(BatchPromptResponse.parse("2-3 дня", Arrays.asList("ABC-1")).isEmpty());
+        assertTrue(BatchPromptResponse.parse("{не json}", Arrays.asList("ABC-1")).isEmpty());
+        assertTrue(BatchPromptResponse.parse(null, Arrays.asList("ABC-1")).isEmpty());
+    }
+}
@@ -0,0 +1,84 @@
+package ut.com.atlassian.tutorial.myPlugin.service;
+
+import com.atlassian.tutorial.myPlugin.service.CircuitBreaker;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest
+{
+    private final AtomicLong now = new AtomicLong(1_000_000L);
+    private final CircuitBreaker breaker = new CircuitBreaker("test", 3, 30_000L, now::get);
+
+    @Test
+    public void testOpensAfterConsecutiveFailures()
+    {
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertFalse(breaker.isCallPermitted());
+    }
+
+    @Test
+    public void testHalfOpenLetsSingleTrialThrough()
+    {
+        openBreaker();
+        now.addAndGet(30_000L);
+
+        assertTrue(breaker.isCallPermitted());
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void testFailedTrialReopens()
+    {
+        openBreaker();
+        now.addAndGet(30_000L);
+        assertTrue(breaker.allowRequest());
+
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(now.get() + 30_000L, breaker.getRetryAt());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    public void testReleasedTrialCanBeRetaken()
+    {
+        openBreaker();
+        now.addAndGet(30_000L);
+        assertTrue(breaker.allowRequest());
+
+        breaker.release();
+
+        assertTrue(breaker.allowRequest());
+    }
+
+    private void openBreaker()
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            breaker.onFailure();
+        }
+    }
+}
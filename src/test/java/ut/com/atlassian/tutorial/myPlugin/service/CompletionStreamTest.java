@@ -0,0 +1,74 @@
+package ut.com.atlassian.tutorial.myPlugin.service;
+
+import com.atlassian.tutorial.myPlugin.service.CompletionStream;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompletionStreamTest
+{
+    private static String chunk(String content)
+    {
+        return "data: {\"choices\":[{\"delta\":{\"content\":\"" + content + "\"},\"index\":0}]}";
+    }
+
+    @Test
+    public void testDeltasAreCollectedAndForwarded()
+    {
+        List<String> deltas = new ArrayList<>();
+        CompletionStream stream = new CompletionStream(deltas::add);
+
+        stream.onLine(chunk("{\\\"min\\\": 2, "));
+        stream.onLine("");
+        stream.onLine(chunk("\\\"max\\\": 3}"));
+
+        assertEquals(2, deltas.size());
+        assertEquals("{\"min\": 2, \"max\": 3}", stream.getText());
+        assertTrue(stream.hasContent());
+        assertFalse(stream.isDone());
+    }
+
+    @Test
+    public void testLineBreaksInsideAnswerArePreserved()
+    {
+        CompletionStream stream = new CompletionStream(null);
+
+        stream.onLine(chunk("первая\\n"));
+        stream.onLine(chunk("вторая"));
+
+        assertEquals("первая\nвторая", stream.getText());
+    }
+
+    @Test
+    public void testDoneStopsParsingAndUsageIsKept()
+    {
+        CompletionStream stream = new CompletionStream(null);
+
+        stream.onLine(": keep-alive");
+        stream.onLine(chunk("3 дня"));
+        stream.onLine("data: {\"choices\":[{\"delta\":{},\"finish_reason\":\"stop\"}],\"usage\":{\"prompt_tokens\":120,\"completion_tokens\":8}}");
+        stream.onLine("data: [DONE]");
+        stream.onLine(chunk(" лишнее"));
+
+        assertTrue(stream.isDone());
+        assertEquals("3 дня", stream.getText());
+        assertEquals(120, stream.getUsage().getInt("prompt_tokens"));
+    }
+
+    @Test
+    public void testEmptyStream()
+    {
+        CompletionStream stream = new CompletionStream(null);
+
+        stream.onLine("data: [DONE]");
+
+        assertFalse(stream.hasContent());
+        assertNull(stream.getUsage());
+    }
+}
@@ -0,0 +1,89 @@
+package ut.com.atlassian.tutorial.myPlugin.service;
+
+import com.atlassian.tutorial.myPlugin.service.DurationParser;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DurationParserTest
+{
+    private static final double DELTA = 1e-6;
+
+    @Test
+    public void testRangeUsesMidpoint()
+    {
+        DurationParser.Result result = DurationParser.DEFAULT.parse("2-3 дня");
+
+        assertEquals(16, result.getMinHours(), DELTA);
+        assertEquals(24, result.getMaxHours(), DELTA);
+        assertEquals(20, result.getHours(), DELTA);
+        assertEquals(20, DurationParser.parseHours("от 2 до 3 дней"), DELTA);
+    }
+
+    @Test
+    public void testRangeSidesHaveOwnUnits()
+    {
+        DurationParser.Result result = DurationParser.DEFAULT.parse("2 часа - 1 день");
+
+        assertEquals(2, result.getMinHours(), DELTA);
+        assertEquals(8, result.getMaxHours(), DELTA);
+        assertEquals(12, DurationParser.parseHours("от 1 дня до 2 дней"), DELTA);
+        assertEquals(28, DurationParser.parseHours("1 день 4 часа - 1 неделя 4 часа"), DELTA);
+        assertEquals(4, DurationParser.parseHours("4 часа - это примерно 2 дня"), DELTA);
+    }
+
+    @Test
+    public void testMixedUnitsAreSummed()
+    {
+        assertEquals(56, DurationParser.parseHours("1 неделя 2 дня"), DELTA);
+        assertEquals(1.5, DurationParser.parseHours("1 час 30 минут"), DELTA);
+        assertEquals(12, DurationParser.parseHours("полтора дня"), DELTA);
+    }
+
+    @Test
+    public void testEnglishAndSingularUnits()
+    {
+        assertEquals(4, DurationParser.parseHours("about 4 hours"), DELTA);
+        assertEquals(40, DurationParser.parseHours("около недели"), DELTA);
+        assertEquals(5, DurationParser.parseHours("5"), DELTA);
+    }
+
+    @Test
+    public void testExplanationAfterEstimateIsIgnored()
+    {
+        assertEquals(4, DurationParser.parseHours("4 часа (примерно полдня, через 2 дня ревью)"), DELTA);
+        assertEquals(4, DurationParser.parseHours("4 часа; минимум 2 часа"), DELTA);
+    }
+
+    @Test
+    public void testStructuredAnswer()
+    {
+        DurationParser.Result result = DurationParser.DEFAULT.parse("```json\n{\"min\": 2, \"max\": 3, \"unit\": \"дни\"}\n```");
+
+        assertTrue(result.isStructured());
+        assertEquals(20, result.getHours(), DELTA);
+        assertEquals("2-3 дн.", result.format(8));
+        assertEquals("4 ч.", DurationParser.DEFAULT.parse("{\"min\": 4, \"max\": 4, \"unit\": \"часы\"}").format(8));
+    }
+
+    @Test
+    public void testWorkdayLengthIsConfigurable()
+    {
+        DurationParser parser = new DurationParser(6, 4);
+
+        assertEquals(12, parser.parse("2 дня").getHours(), DELTA);
+        assertEquals(24, parser.parse("{\"min\": 1, \"max\": 1, \"unit\": \"недели\"}").getHours(), DELTA);
+        assertFalse(parser.parse("2 дня").isStructured());
+    }
+
+    @Test
+    public void testUnknownTextIsNull()
+    {
+        assertNull(DurationParser.parseHours("не могу оценить"));
+        assertNull(DurationParser.parseHours(""));
+        assertNull(DurationParser.parseHours(null));
+    }
+}
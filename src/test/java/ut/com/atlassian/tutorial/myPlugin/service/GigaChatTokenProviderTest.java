@@ -0,0 +1,81 @@
+package ut.com.atlassian.tutorial.myPlugin.service;
+
+import com.atlassian.tutorial.myPlugin.service.GigaChatTokenProvider;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class GigaChatTokenProviderTest
+{
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    public void testTokenIsReusedUntilExpiry() throws Exception
+    {
+        final AtomicInteger calls = new AtomicInteger();
+        GigaChatTokenProvider provider = new GigaChatTokenProvider(key ->
+                new GigaChatTokenProvider.AccessToken("t" + calls.incrementAndGet(), System.currentTimeMillis() + HOUR));
+
+        assertEquals("t1", provider.getToken("key"));
+        assertEquals("t1", provider.getToken("key"));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testKeyChangeAndInvalidateFetchNewToken() throws Exception
+    {
+        final AtomicInteger calls = new AtomicInteger();
+        GigaChatTokenProvider provider = new GigaChatTokenProvider(key ->
+                new GigaChatTokenProvider.AccessToken(key + calls.incrementAndGet(), System.currentTimeMillis() + HOUR));
+
+        assertEquals("a1", provider.getToken("a"));
+        assertEquals("b2", provider.getToken("b"));
+        provider.invalidate();
+        assertEquals("b3", provider.getToken("b"));
+    }
+
+    @Test
+    public void testConcurrentCallersShareOneRefresh() throws Exception
+    {
+        final AtomicInteger calls = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        final GigaChatTokenProvider provider = new GigaChatTokenProvider(key -> {
+            calls.incrementAndGet();
+            release.await(5, TimeUnit.SECONDS);
+            return new GigaChatTokenProvider.AccessToken("t", System.currentTimeMillis() + HOUR);
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++)
+        {
+            pool.execute(() -> {
+                try
+                {
+                    provider.getToken("key");
+                }
+                catch (Exception ignored)
+                {
+                }
+            });
+        }
+        Thread.sleep(200);
+        release.countDown();
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testExpiresAtInSecondsIsNormalized()
+    {
+        GigaChatTokenProvider.AccessToken token = GigaChatTokenProvider.AccessToken.fromOAuthResponse("t", 1_700_000_000L);
+        assertEquals(1_700_000_000_000L, token.getExpiresAt());
+    }
+}
@@ -0,0 +1,39 @@
+package ut.com.atlassian.tutorial.myPlugin.service;
+
+import com.atlassian.sal.api.pluginsettings.PluginSettings;
+import com.atlassian.sal.api.pluginsettings.PluginSettingsFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PluginSettings в памяти. Фабрика всегда отдает это же хранилище, как общая база для всех узлов кластера.
+ */
+public class InMemoryPluginSettings implements PluginSettings
+{
+    private final Map<String, Object> values = new ConcurrentHashMap<>();
+
+    public Object get(String key)
+    {
+        return values.get(key);
+    }
+
+    public Object put(String key, Object value)
+    {
+        return value != null ? values.put(key, value) : values.remove(key);
+    }
+
+    public Object remove(String key)
+    {
+        return values.remove(key);
+    }
+
+    public PluginSettingsFactory factory()
+    {
+        return new PluginSettingsFactory()
+        {
+            public PluginSettings createGlobalSettings() { return InMemoryPluginSettings.this; }
+            public PluginSettings createSettingsForKey(String key) { return InMemoryPluginSettings.this; }
+        };
+    }
+}
@@ -0,0 +1,97 @@
+package ut.com.atlassian.tutorial.myPlugin.service;
+
+import com.atlassian.tutorial.myPlugin.service.PredictionCache;
+import org.junit.Before;
+import org.junit.Test;
+import ut.com.atlassian.tutorial.myPlugin.store.InMemoryHistoryStore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class PredictionCacheTest
+{
+    private InMemoryHistoryStore history;
+
+    @Before
+    public void setUp()
+    {
+        history = new InMemoryHistoryStore();
+    }
+
+    // Сервис сначала пишет прогноз в историю, затем кладет его в кэш
+    private void save(PredictionCache cache, Long issueId, String fingerprint, String prediction, String prompt)
+    {
+        history.append(issueId, fingerprint, prediction);
+        cache.put(issueId, fingerprint, prediction, prompt);
+    }
+
+    @Test
+    public void testHitForSameFingerprint()
+    {
+        PredictionCache cache = new PredictionCache(history);
+        save(cache, 10L, "abc", "2 дня", "prompt");
+
+        PredictionCache.CachedPrediction cached = cache.get(10L, "abc");
+        assertNotNull(cached);
+        assertEquals("2 дня", cached.getPrediction());
+        assertEquals("prompt", cached.getPrompt());
+    }
+
+    @Test
+    public void testChangedFingerprintMissesButKeepsLatest()
+    {
+        PredictionCache cache = new PredictionCache(history);
+        save(cache, 10L, "abc", "2 дня", "prompt");
+
+        assertNull(cache.get(10L, "changed"));
+        assertEquals("2 дня", cache.getLatest(10L).getPrediction());
+        assertEquals("2 дня", new PredictionCache(history).getLatest(10L).getPrediction());
+    }
+
+    @Test
+    public void testNewPredictionReplacesStaleEntry()
+    {
+        PredictionCache cache = new PredictionCache(history);
+        save(cache, 10L, "abc", "2 дня", "prompt");
+        cache.get(10L, "changed");
+
+        save(cache, 10L, "changed", "4 дня", "prompt");
+
+        assertNull(cache.get(10L, "abc"));
+        assertEquals("4 дня", cache.get(10L, "changed").getPrediction());
+    }
+
+    @Test
+    public void testEvictedEntryIsReloadedFromHistory()
+    {
+        PredictionCache cache = new PredictionCache(history, 1);
+        save(cache, 1L, "f1", "1 час", "p1");
+        save(cache, 2L, "f2", "2 часа", "p2");
+
+        PredictionCache.CachedPrediction cached = cache.get(1L, "f1");
+        assertNotNull(cached);
+        assertEquals("1 час", cached.getPrediction());
+    }
+
+    @Test
+    public void testSurvivesRestart()
+    {
+        save(new PredictionCache(history), 5L, "f", "3 часа", "p");
+
+        PredictionCache.CachedPrediction cached = new PredictionCache(history).get(5L, "f");
+        assertNotNull(cached);
+        assertEquals("3 часа", cached.getPrediction());
+    }
+
+    @Test
+    public void testHistoryWithoutFingerprintIsNotAHit()
+    {
+        // Прогноз локальной модели или перенесенный из старого формата: отпечатка нет
+        history.append(3L, null, "1 день");
+        PredictionCache cache = new PredictionCache(history);
+
+        assertNull(cache.get(3L, "f"));
+        assertEquals("1 день", cache.getLatest(3L).getPrediction());
+    }
+}
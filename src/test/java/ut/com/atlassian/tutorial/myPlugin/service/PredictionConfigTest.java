@@ -0,0 +1,80 @@
+package ut.com.atlassian.tutorial.myPlugin.service;
+
+import com.atlassian.tutorial.myPlugin.llm.LlmProviderRegistry;
+import com.atlassian.tutorial.myPlugin.service.DurationParser;
+import com.atlassian.tutorial.myPlugin.service.GeminiPredictionService;
+import com.atlassian.tutorial.myPlugin.service.GigaChatHttpClient;
+import com.atlassian.tutorial.myPlugin.service.PredictionConfig;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class PredictionConfigTest
+{
+    private InMemoryPluginSettings settings;
+
+    @Before
+    public void setUp()
+    {
+        settings = new InMemoryPluginSettings();
+    }
+
+    @Test
+    public void testEmptySettingsGiveDefaults()
+    {
+        PredictionConfig config = PredictionConfig.load(settings);
+
+        assertNull(config.getAuthKey());
+        assertNull(config.getDefaultProviderId());
+        assertEquals(GigaChatHttpClient.DEFAULT_READ_TIMEOUT_MILLIS, config.getHttpSettings().getReadTimeoutMillis());
+        assertEquals(DurationParser.DEFAULT_WORKDAY_HOURS, config.getDurationParser().getWorkdayHours(), 0.0);
+        assertEquals(0, config.getProjectProviders().size());
+    }
+
+    @Test
+    public void testValuesAreParsedOnce()
+    {
+        settings.put(GeminiPredictionService.GEMINI_API_KEY_PLUGIN_SETTING, "  key== ");
+        settings.put(GeminiPredictionService.CONNECT_TIMEOUT_SETTING, "2500");
+        settings.put(GeminiPredictionService.WORKDAY_HOURS_SETTING, "7,5");
+        settings.put(GeminiPredictionService.REQUESTS_PER_SECOND_SETTING, "0.5");
+        settings.put(LlmProviderRegistry.DEFAULT_PROVIDER_SETTING, "local");
+        settings.put(LlmProviderRegistry.PROJECT_PROVIDERS_SETTING, "abc=gigachat\nOPS = Local");
+
+        PredictionConfig config = PredictionConfig.load(settings);
+
+        assertEquals("key==", config.getAuthKey());
+        assertEquals(2500, config.getHttpSettings().getConnectTimeoutMillis());
+        assertEquals(7.5, config.getDurationParser().getWorkdayHours(), 0.0);
+        assertEquals(0.5, config.getRequestsPerSecond(), 0.0);
+        assertEquals("local", config.getDefaultProviderId());
+        assertEquals("gigachat", config.getProjectProviders().get("ABC"));
+        assertEquals("local", config.getProjectProviders().get("OPS"));
+    }
+
+    @Test
+    public void testInvalidNumbersFallBackToDefaults()
+    {
+        settings.put(GeminiPredictionService.READ_TIMEOUT_SETTING, "long");
+        settings.put(GeminiPredictionService.WORKWEEK_DAYS_SETTING, "-1");
+
+        PredictionConfig config = PredictionConfig.load(settings);
+
+        assertEquals(GigaChatHttpClient.DEFAULT_READ_TIMEOUT_MILLIS, config.getHttpSettings().getReadTimeoutMillis());
+        assertEquals(DurationParser.DEFAULT_WORKWEEK_DAYS, config.getDurationParser().getWorkweekDays(), 0.0);
+    }
+
+    @Test
+    public void testSnapshotIsNotAffectedByLaterChanges()
+    {
+        settings.put(GeminiPredictionService.GEMINI_API_KEY_PLUGIN_SETTING, "old");
+        PredictionConfig config = PredictionConfig.load(settings);
+
+        settings.put(GeminiPredictionService.GEMINI_API_KEY_PLUGIN_SETTING, "new");
+
+        assertEquals("old", config.getAuthKey());
+        assertEquals("new", PredictionConfig.load(settings).getAuthKey());
+    }
+}
@@ -0,0 +1,77 @@
+package ut.com.atlassian.tutorial.myPlugin.service;
+
+import com.atlassian.tutorial.myPlugin.service.SingleFlight;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class SingleFlightTest
+{
+    private final SingleFlight<String, String> flights = new SingleFlight<>();
+
+    @Test
+    public void testConcurrentCallsShareOneComputation() throws Exception
+    {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(5);
+        try
+        {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 5; i++)
+            {
+                results.add(pool.submit(() -> flights.execute("ABC-1", () -> {
+                    calls.incrementAndGet();
+                    release.await(5, TimeUnit.SECONDS);
+                    return "2-3 дн.";
+                })));
+            }
+            // Ждем, пока все пять вызовов встанут за первым
+            while (calls.get() == 0)
+            {
+                Thread.sleep(5);
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<String> result : results)
+            {
+                assertEquals("2-3 дн.", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, calls.get());
+            assertEquals(0, flights.size());
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailureIsNotRemembered() throws Exception
+    {
+        try
+        {
+            flights.execute("ABC-1", () -> {
+                throw new IllegalStateException("timeout");
+            });
+            fail("exception expected");
+        }
+        catch (IllegalStateException expected)
+        {
+            assertEquals("timeout", expected.getMessage());
+        }
+
+        assertEquals("4 ч.", flights.execute("ABC-1", () -> "4 ч."));
+    }
+}
@@ -0,0 +1,98 @@
+package ut.com.atlassian.tutorial.myPlugin.stats;
+
+import com.atlassian.tutorial.myPlugin.stats.AccuracyMetrics;
+import com.atlassian.tutorial.myPlugin.stats.ErrorStats;
+import com.atlassian.tutorial.myPlugin.store.AccuracyEntry;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AccuracyMetricsTest
+{
+    private static final double DELTA = 0.05;
+
+    @Test
+    public void testErrorMetricsForModel()
+    {
+        AccuracyMetrics metrics = new AccuracyMetrics();
+        metrics.record(entry(1L, "TEST", "5", 10, 12.0, null));
+        metrics.record(entry(2L, "TEST", "5", 20, 10.0, null));
+        metrics.record(entry(3L, "TEST", "5", 40, 46.0, null));
+
+        ErrorStats stats = metrics.get("GigaChat", AccuracyMetrics.Dimension.ALL, null);
+        assertEquals(3, stats.getCount());
+        // Ошибки: +2, -10, +6
+        assertEquals(6.0, stats.getMeanAbsoluteError(), DELTA);
+        assertEquals(-0.67, stats.getBias(), DELTA);
+        assertEquals((20 + 50 + 15) / 3.0, stats.getMeanAbsolutePercentError(), DELTA);
+        assertEquals(6.0, stats.getMedianAbsoluteError(), 6.0 * 0.03);
+        assertEquals(2.0 / 3, stats.getOverestimatedShare(), DELTA);
+    }
+
+    @Test
+    public void testBaselineIsScoredSeparately()
+    {
+        AccuracyMetrics metrics = new AccuracyMetrics();
+        metrics.record(entry(1L, "TEST", "5", 10, 12.0, 30.0));
+        metrics.record(entry(2L, "TEST", "5", 20, null, 25.0));
+
+        assertEquals(1, metrics.get("GigaChat", AccuracyMetrics.Dimension.ALL, null).getCount());
+        ErrorStats baseline = metrics.get(AccuracyMetrics.BASELINE_MODEL, AccuracyMetrics.Dimension.ALL, null);
+        assertEquals(2, baseline.getCount());
+        assertEquals(12.5, baseline.getMeanAbsoluteError(), DELTA);
+    }
+
+    @Test
+    public void testBreakdownByDimension()
+    {
+        AccuracyMetrics metrics = new AccuracyMetrics();
+        metrics.record(entry(1L, "TEST", "3", 10, 12.0, 8.0));
+        metrics.record(entry(2L, "OTHER", "5", 20, 10.0, null));
+
+        Map<String, Map<String, ErrorStats>> byProject = metrics.breakdown(AccuracyMetrics.Dimension.PROJECT);
+        assertEquals(Arrays.asList("OTHER", "TEST"), Arrays.asList(byProject.keySet().toArray()));
+        assertEquals(2, byProject.get("TEST").size());
+        assertEquals(1, byProject.get("OTHER").size());
+        assertEquals(2.0, metrics.get("GigaChat", AccuracyMetrics.Dimension.COMPLEXITY, "3").getMeanAbsoluteError(), DELTA);
+    }
+
+    @Test
+    public void testReopenedIssueRemovesContribution()
+    {
+        AccuracyMetrics metrics = new AccuracyMetrics();
+        metrics.record(entry(1L, "TEST", "5", 10, 12.0, null));
+        metrics.record(entry(2L, "TEST", "5", 20, 10.0, null));
+        metrics.record(entry(2L, "TEST", "5", 20, 22.0, null));
+        metrics.remove(1L);
+
+        ErrorStats stats = metrics.get("GigaChat", AccuracyMetrics.Dimension.ALL, null);
+        assertEquals(1, stats.getCount());
+        assertEquals(2.0, stats.getMeanAbsoluteError(), DELTA);
+        metrics.remove(2L);
+        assertNull(metrics.get("GigaChat", AccuracyMetrics.Dimension.ALL, null));
+        assertTrue(metrics.breakdown(AccuracyMetrics.Dimension.PROJECT).isEmpty());
+    }
+
+    @Test
+    public void testRebuildReplacesState()
+    {
+        AccuracyMetrics metrics = new AccuracyMetrics();
+        metrics.record(entry(1L, "TEST", "5", 10, 12.0, null));
+        metrics.rebuild(Arrays.asList(entry(2L, "TEST", "5", 20, 30.0, null), entry(3L, "TEST", "5", 20, 20.0, null)));
+
+        assertEquals(2, metrics.getSampleCount());
+        assertEquals(5.0, metrics.get("GigaChat", AccuracyMetrics.Dimension.ALL, null).getMeanAbsoluteError(), DELTA);
+    }
+
+    private static AccuracyEntry entry(Long issueId, String projectKey, String complexity, double actualHours,
+                                       Double predictedHours, Double baselineHours)
+    {
+        return new AccuracyEntry(issueId, projectKey + "-" + issueId, projectKey, complexity, "10001",
+                1000L, 500L, actualHours, predictedHours, "GigaChat", baselineHours);
+    }
+}
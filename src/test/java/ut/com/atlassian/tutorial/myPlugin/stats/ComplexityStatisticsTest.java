@@ -0,0 +1,62 @@
+package ut.com.atlassian.tutorial.myPlugin.stats;
+
+import com.atlassian.tutorial.myPlugin.stats.ComplexityStatistics;
+import com.atlassian.tutorial.myPlugin.stats.DurationStats;
+import com.atlassian.tutorial.myPlugin.stats.IssueSample;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ComplexityStatisticsTest
+{
+    @Test
+    public void testAverageByComplexityAndProject()
+    {
+        ComplexityStatistics statistics = new ComplexityStatistics();
+        statistics.record(new IssueSample(1L, "5", "TEST", "bug", 10));
+        statistics.record(new IssueSample(2L, "5", "TEST", "task", 20));
+        statistics.record(new IssueSample(3L, "5", "OTHER", "bug", 60));
+
+        assertEquals(3, statistics.get("5", null, null).getCount());
+        assertEquals(30, statistics.get("5", null, null).getAverageMillis());
+        assertEquals(15, statistics.get("5", "TEST", null).getAverageMillis());
+        assertEquals(10, statistics.get("5", "TEST", "bug").getAverageMillis());
+    }
+
+    @Test
+    public void testUpdatedIssueReplacesItsContribution()
+    {
+        ComplexityStatistics statistics = new ComplexityStatistics();
+        statistics.record(new IssueSample(1L, "3", "TEST", "bug", 10));
+        statistics.record(new IssueSample(1L, "8", "TEST", "bug", 40));
+
+        assertNull(statistics.get("3", null, null));
+        DurationStats stats = statistics.get("8", null, null);
+        assertEquals(1, stats.getCount());
+        assertEquals(40, stats.getAverageMillis());
+
+        statistics.remove(1L);
+        assertNull(statistics.get("8", null, null));
+    }
+
+    @Test
+    public void testRebuildReplacesStateAndBecomesReady()
+    {
+        ComplexityStatistics statistics = new ComplexityStatistics();
+        statistics.record(new IssueSample(1L, "3", "TEST", "bug", 10));
+        assertFalse(statistics.isReady());
+
+        statistics.rebuild(Arrays.asList(
+                new IssueSample(2L, "3", "TEST", "bug", 30),
+                new IssueSample(3L, "3", "TEST", "bug", 50)));
+
+        assertTrue(statistics.isReady());
+        assertEquals(2, statistics.get("3", null, null).getCount());
+        assertEquals(40, statistics.get("3", null, null).getAverageMillis());
+    }
+}
@@ -0,0 +1,44 @@
+package ut.com.atlassian.tutorial.myPlugin.stats;
+
+import com.atlassian.tutorial.myPlugin.stats.DurationHistogram;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class DurationHistogramTest
+{
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    public void testQuantilesWithinRelativeAccuracy()
+    {
+        DurationHistogram histogram = new DurationHistogram();
+        for (int hours = 1; hours <= 100; hours++)
+        {
+            histogram.add(hours * HOUR);
+        }
+
+        assertEquals(50 * HOUR, histogram.getValueAtQuantile(0.5), 50 * HOUR * 0.02);
+        assertEquals(80 * HOUR, histogram.getValueAtQuantile(0.8), 80 * HOUR * 0.02);
+        assertEquals(95 * HOUR, histogram.getValueAtQuantile(0.95), 95 * HOUR * 0.02);
+    }
+
+    @Test
+    public void testRemoveAndMerge()
+    {
+        DurationHistogram first = new DurationHistogram();
+        first.add(2 * HOUR);
+        first.add(1000 * HOUR);
+        first.remove(1000 * HOUR);
+
+        DurationHistogram second = new DurationHistogram();
+        second.add(4 * HOUR);
+        first.merge(second);
+
+        assertEquals(2, first.getTotalCount());
+        assertEquals(4 * HOUR, first.getValueAtQuantile(1.0), 4 * HOUR * 0.02);
+        assertEquals(-1, new DurationHistogram().getValueAtQuantile(0.5));
+    }
+}
@@ -0,0 +1,101 @@
+package ut.com.atlassian.tutorial.myPlugin.store;
+
+import com.atlassian.tutorial.myPlugin.store.PredictionEntry;
+import com.atlassian.tutorial.myPlugin.store.PredictionHistoryStore;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * История прогнозов в памяти вместо таблицы AO. Как и в PredictionHistoryStore, новые записи -
+ * добавленные последними - идут первыми. Одно хранилище можно отдать нескольким "узлам": таблица общая.
+ */
+public class InMemoryHistoryStore extends PredictionHistoryStore
+{
+    public final List<PredictionEntry> entries = new CopyOnWriteArrayList<>();
+    // Сколько страниц прочитали через find
+    public final AtomicInteger pageReads = new AtomicInteger();
+    // true - find падает, как AO, пока плагин не включен полностью
+    public volatile boolean failReads;
+
+    public InMemoryHistoryStore()
+    {
+        super(null, null, null);
+    }
+
+    @Override
+    public void append(PredictionEntry entry)
+    {
+        entries.add(entry);
+    }
+
+    @Override
+    public List<PredictionEntry> find(String projectKey, Long fromMillis, Long toMillis, int offset, int limit)
+    {
+        pageReads.incrementAndGet();
+        if (failReads)
+        {
+            throw new IllegalStateException("AO is not ready");
+        }
+        List<PredictionEntry> newestFirst = newestFirst();
+        return newestFirst.subList(Math.min(offset, newestFirst.size()), Math.min(offset + limit, newestFirst.size()));
+    }
+
+    @Override
+    public List<PredictionEntry> findByIssue(Long issueId)
+    {
+        List<PredictionEntry> found = new ArrayList<>();
+        for (PredictionEntry entry : newestFirst())
+        {
+            if (entry.getIssueId().equals(issueId))
+            {
+                found.add(entry);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public PredictionEntry findLatestForIssue(Long issueId)
+    {
+        List<PredictionEntry> found = findByIssue(issueId);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    @Override
+    public Map<Long, PredictionEntry> findLatestForIssues(Collection<Long> issueIds)
+    {
+        Map<Long, PredictionEntry> latest = new HashMap<>();
+        for (Long issueId : issueIds)
+        {
+            PredictionEntry entry = findLatestForIssue(issueId);
+            if (entry != null)
+            {
+                latest.put(issueId, entry);
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Запись прогноза с отпечатком, как ее сохраняет сервис.
+     */
+    public void append(Long issueId, String fingerprint, String prediction)
+    {
+        append(new PredictionEntry(issueId, "ABC-" + issueId, "ABC", System.currentTimeMillis(), prediction, null,
+                "model", "hash", null, fingerprint));
+    }
+
+    private List<PredictionEntry> newestFirst()
+    {
+        List<PredictionEntry> newestFirst = new ArrayList<>(entries);
+        Collections.reverse(newestFirst);
+        return newestFirst;
+    }
+}
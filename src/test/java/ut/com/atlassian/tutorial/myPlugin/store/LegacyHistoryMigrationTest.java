@@ -0,0 +1,34 @@
+package ut.com.atlassian.tutorial.myPlugin.store;
+
+import com.atlassian.tutorial.myPlugin.store.LegacyHistoryMigration;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LegacyHistoryMigrationTest
+{
+    @Test
+    public void testParsesLegacyHistoryString()
+    {
+        List<String[]> pairs = LegacyHistoryMigration.parse("TEST-1:3 часа;TEST-2:около 2-3 дней, но это: оценка;");
+
+        assertEquals(2, pairs.size());
+        assertEquals("TEST-1", pairs.get(0)[0]);
+        assertEquals("3 часа", pairs.get(0)[1]);
+        assertEquals("TEST-2", pairs.get(1)[0]);
+        assertEquals("около 2-3 дней, но это: оценка", pairs.get(1)[1]);
+    }
+
+    @Test
+    public void testSkipsBrokenEntries()
+    {
+        List<String[]> pairs = LegacyHistoryMigration.parse(";garbage;TEST-3:1 неделя");
+
+        assertEquals(1, pairs.size());
+        assertEquals("TEST-3", pairs.get(0)[0]);
+        assertTrue(LegacyHistoryMigration.parse(null).isEmpty());
+    }
+}
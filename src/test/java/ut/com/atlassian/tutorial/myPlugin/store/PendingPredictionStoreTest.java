@@ -0,0 +1,109 @@
+package ut.com.atlassian.tutorial.myPlugin.store;
+
+import com.atlassian.tutorial.myPlugin.store.PendingPredictionRecord;
+import com.atlassian.tutorial.myPlugin.store.PendingPredictionStore;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class PendingPredictionStoreTest
+{
+    private static final long SECOND = 1000L;
+    private static final long DEBOUNCE = 30 * SECOND;
+    private static final long MAX_DELAY = 300 * SECOND;
+
+    @Test
+    public void testEventsPostponeRunUpToMaxDelay()
+    {
+        PendingPredictionRecord record = record(1L, 0L);
+
+        PendingPredictionStore.reschedule(record, 10 * SECOND, DEBOUNCE, MAX_DELAY);
+        assertEquals(40 * SECOND, (long) record.getDueAt());
+
+        // Задача правится без перерыва: дальше предельной задержки от постановки не откладываем
+        PendingPredictionStore.reschedule(record, 290 * SECOND, DEBOUNCE, MAX_DELAY);
+        assertEquals(MAX_DELAY, (long) record.getDueAt());
+
+        // Предел уже прошел: считаем сразу, но не в прошлом
+        PendingPredictionStore.reschedule(record, 310 * SECOND, DEBOUNCE, MAX_DELAY);
+        assertEquals(310 * SECOND, (long) record.getDueAt());
+    }
+
+    @Test
+    public void testEventBumpsVersionAndResetsAttempts()
+    {
+        PendingPredictionRecord record = record(1L, 0L);
+        record.setAttempts(2);
+        List<PendingPredictionStore.Pending> taken = PendingPredictionStore.firstPerIssue(new PendingPredictionRecord[]{record});
+
+        // Событие в ту же миллисекунду, что и взятие в работу, все равно меняет версию
+        PendingPredictionStore.reschedule(record, 0L, DEBOUNCE, MAX_DELAY);
+
+        assertEquals(0, taken.get(0).getVersion());
+        assertEquals(1, (int) record.getVersion());
+        assertEquals(0, (int) record.getAttempts());
+    }
+
+    @Test
+    public void testRetryRestartsDebounce()
+    {
+        PendingPredictionRecord record = record(1L, 0L);
+        PendingPredictionStore.Pending pending = PendingPredictionStore.firstPerIssue(new PendingPredictionRecord[]{record}).get(0);
+
+        PendingPredictionStore.applyRetry(record, pending, 420 * SECOND);
+        assertEquals(420 * SECOND, (long) record.getDueAt());
+        assertEquals(1, (int) record.getAttempts());
+
+        // Правка до повтора снова ждет паузу, а не запускает прогноз сразу
+        PendingPredictionStore.reschedule(record, 400 * SECOND, DEBOUNCE, MAX_DELAY);
+        assertEquals(430 * SECOND, (long) record.getDueAt());
+    }
+
+    @Test
+    public void testDuplicatesCollapseToFirstRecord()
+    {
+        PendingPredictionRecord first = record(1L, 0L);
+        first.setVersion(3);
+        PendingPredictionRecord other = record(2L, 0L);
+        PendingPredictionRecord duplicate = record(1L, 0L);
+
+        List<PendingPredictionStore.Pending> due = PendingPredictionStore.firstPerIssue(new PendingPredictionRecord[]{first, other, duplicate});
+
+        assertEquals(2, due.size());
+        assertEquals(Long.valueOf(1L), due.get(0).getIssueId());
+        assertEquals(3, due.get(0).getVersion());
+        assertEquals(Long.valueOf(2L), due.get(1).getIssueId());
+    }
+
+    // Запись очереди без базы: геттеры и сеттеры AO поверх карты
+    private static PendingPredictionRecord record(Long issueId, long queuedAt)
+    {
+        final Map<String, Object> values = new HashMap<>();
+        PendingPredictionRecord record = (PendingPredictionRecord) Proxy.newProxyInstance(
+                PendingPredictionRecord.class.getClassLoader(), new Class<?>[]{PendingPredictionRecord.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("set") && args != null && args.length == 1)
+                    {
+                        values.put(name.substring(3), args[0]);
+                        return null;
+                    }
+                    if (name.startsWith("get"))
+                    {
+                        return values.get(name.substring(3));
+                    }
+                    return null;
+                });
+        record.setIssueId(issueId);
+        record.setQueuedAt(queuedAt);
+        record.setDueAt(queuedAt + DEBOUNCE);
+        record.setVersion(0);
+        record.setAttempts(0);
+        return record;
+    }
+}
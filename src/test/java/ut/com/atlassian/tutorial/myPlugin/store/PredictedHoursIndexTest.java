@@ -0,0 +1,111 @@
+package ut.com.atlassian.tutorial.myPlugin.store;
+
+import com.atlassian.tutorial.myPlugin.cluster.ClusterCoordinator;
+import com.atlassian.tutorial.myPlugin.store.PredictedHoursIndex;
+import com.atlassian.tutorial.myPlugin.store.PredictionEntry;
+import org.junit.Before;
+import org.junit.Test;
+import ut.com.atlassian.tutorial.myPlugin.cluster.InMemoryCluster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PredictedHoursIndexTest
+{
+    private InMemoryHistoryStore historyStore;
+
+    @Before
+    public void setUp()
+    {
+        historyStore = new InMemoryHistoryStore();
+    }
+
+    @Test
+    public void testLatestPredictionWins()
+    {
+        historyStore.append(entry(1L, 100L, 8.0));
+        historyStore.append(entry(1L, 200L, 16.0));
+        historyStore.append(entry(2L, 150L, 4.0));
+
+        PredictedHoursIndex index = new PredictedHoursIndex(historyStore, new InMemoryCluster().node("a"));
+        index.load();
+
+        assertEquals(16.0, index.get(1L), 0.001);
+        assertEquals(4.0, index.get(2L), 0.001);
+        assertNull(index.get(3L));
+    }
+
+    @Test
+    public void testUnparsedLatestPredictionHasNoValue()
+    {
+        historyStore.append(entry(1L, 100L, 8.0));
+        historyStore.append(entry(1L, 200L, null));
+
+        PredictedHoursIndex index = new PredictedHoursIndex(historyStore, new InMemoryCluster().node("a"));
+        index.load();
+
+        assertNull(index.get(1L));
+    }
+
+    @Test
+    public void testHistoryIsReadOnceForManyLookups()
+    {
+        historyStore.append(entry(1L, 100L, 8.0));
+        PredictedHoursIndex index = new PredictedHoursIndex(historyStore, new InMemoryCluster().node("a"));
+        index.load();
+
+        for (int i = 0; i < 1000; i++)
+        {
+            index.get(1L);
+            index.get((long) i);
+        }
+
+        assertEquals(1, historyStore.pageReads.get());
+    }
+
+    @Test
+    public void testOtherNodeReloadsOnMessage()
+    {
+        historyStore.append(entry(1L, 100L, 8.0));
+        InMemoryCluster cluster = new InMemoryCluster();
+        PredictedHoursIndex nodeB = new PredictedHoursIndex(historyStore, cluster.node("b"));
+        nodeB.start();
+        nodeB.load();
+        assertEquals(8.0, nodeB.get(1L), 0.001);
+
+        // Узел A записал новый прогноз в общую историю и разослал id задачи
+        historyStore.append(entry(1L, 200L, 24.0));
+        ClusterCoordinator nodeA = cluster.node("a");
+        nodeA.publish(PredictedHoursIndex.CLUSTER_CHANNEL, "1");
+
+        assertEquals(24.0, nodeB.get(1L), 0.001);
+        nodeB.shutdown();
+    }
+
+    @Test
+    public void testFailedLoadIsNotRetriedOnLookup()
+    {
+        historyStore.append(entry(1L, 100L, 8.0));
+        historyStore.failReads = true;
+        PredictedHoursIndex index = new PredictedHoursIndex(historyStore, new InMemoryCluster().node("a"));
+
+        assertFalse(index.load());
+        for (int i = 0; i < 100; i++)
+        {
+            assertNull(index.get(1L));
+        }
+        assertEquals(1, historyStore.pageReads.get());
+
+        // AO поднялся: следующая попытка загрузки из фона заполняет поле
+        historyStore.failReads = false;
+        assertTrue(index.load());
+        assertEquals(8.0, index.get(1L), 0.001);
+    }
+
+    private static PredictionEntry entry(Long issueId, long createdAt, Double hours)
+    {
+        return new PredictionEntry(issueId, "ABC-" + issueId, "ABC", createdAt, "прогноз", hours, "model", "hash", null);
+    }
+}